@@ -1,93 +1,146 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.Objects;
-import java.util.Set;
-import java.util.regex.Pattern;
-
-import com.alexeygrigorev.rseq.ReflectionUtils.ValueExtractor;
-
-/**
- * Utility class with convenience methods for creating matchers that work on
- * java-bean classes: that is, classes with getters that follow the bean
- * convention. It can use reflection to compare the content of the java bean
- * properties:<br>
- * 
- * <ul>
- * <li>to test equality, {@link #eq(Class, String, Object)} method,</li>
- * <li>regular expression match - only for string properties,
- * {@link #regex(Class, String, String)} method</li>
- * <li>in set - to check if the property values is contained is some set,
- * {@link #in(Class, String, Set)} method</li>
- * </ul>
- * 
- * @author Alexey Grigorev
- *
- */
-public class BeanMatchers {
-
-    private BeanMatchers() {
-    }
-
-    /**
-     * Creates a matcher that checks if the java bean's property is equal to the
-     * provided value
-     * 
-     * @param otherClass java bean's class
-     * @param propertyName property of the java bean
-     * @param otherValue value to check against
-     */
-    public static <O, V> XMatcher<O> eq(final Class<O> otherClass, final String propertyName,
-            final V otherValue) {
-        final ValueExtractor<O, V> extractor = ReflectionUtils.property(otherClass, propertyName);
-
-        return new ParentMatcher<O>() {
-            @Override
-            public boolean match(O object) {
-                V value = extractor.get(object);
-                return Objects.equals(value, otherValue);
-            }
-
-            @Override
-            public String toString() {
-                return otherClass.getSimpleName() + "." + propertyName + " == " + otherValue;
-            }
-        };
-    }
-
-    public static <E> XMatcher<E> regex(final Class<E> otherClass, final String propertyName,
-            final String regex) {
-        final ValueExtractor<E, String> extractor = ReflectionUtils.property(otherClass, propertyName);
-        final Pattern pattern = Pattern.compile(regex);
-
-        return new ParentMatcher<E>() {
-            @Override
-            public boolean match(E object) {
-                String value = extractor.get(object);
-                return pattern.matcher(value).matches();
-            }
-
-            public String toString() {
-                return otherClass.getSimpleName() + "." + propertyName + " =~ " + pattern.pattern();
-            }
-        };
-    }
-
-    public static <O, V> XMatcher<O> in(final Class<O> otherClass, final String propertyName,
-            final Set<V> values) {
-        final ValueExtractor<O, V> extractor = ReflectionUtils.property(otherClass, propertyName);
-
-        return new ParentMatcher<O>() {
-            @Override
-            public boolean match(O object) {
-                V value = extractor.get(object);
-                return values.contains(value);
-            }
-
-            @Override
-            public String toString() {
-                return otherClass.getSimpleName() + "." + propertyName + " in " + values;
-            }
-        };
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import com.alexeygrigorev.rseq.ReflectionUtils.ValueExtractor;
+
+/**
+ * Utility class with convenience methods for creating matchers that work on
+ * java-bean classes: that is, classes with getters that follow the bean
+ * convention. It can use reflection to compare the content of the java bean
+ * properties:<br>
+ * 
+ * <ul>
+ * <li>to test equality, {@link #eq(Class, String, Object)} method,</li>
+ * <li>regular expression match - only for string properties,
+ * {@link #regex(Class, String, String)} method</li>
+ * <li>in set - to check if the property values is contained is some set,
+ * {@link #in(Class, String, Set)} method</li>
+ * </ul>
+ * 
+ * When matched against a {@link ColumnarSequence}, the matchers test the
+ * column with the name of the property instead, without reflection. The
+ * matchers can also take typed accessors like <code>Word::getPos</code>
+ * instead of the names of the properties
+ * 
+ * @author Alexey Grigorev
+ * 
+ */
+public class BeanMatchers {
+
+    private BeanMatchers() {
+    }
+
+    /**
+     * Creates a matcher that checks if the java bean's property is equal to the
+     * provided value
+     * 
+     * @param otherClass java bean's class
+     * @param propertyName property of the java bean
+     * @param otherValue value to check against
+     */
+    public static <O, V> XMatcher<O> eq(final Class<O> otherClass, final String propertyName,
+            final V otherValue) {
+        return new PropertyMatcher<O, V>(otherClass, propertyName, "==", otherValue) {
+            @Override
+            boolean test(V value) {
+                return Objects.equals(value, otherValue);
+            }
+        };
+    }
+
+    /**
+     * Creates a matcher that checks if the property returned by the accessor
+     * is equal to the provided value. The accessor is called directly, but
+     * unlike {@link #eq(Class, String, Object)} the matcher does not test the
+     * columns of a {@link ColumnarSequence}
+     * 
+     * @param property accessor of the property, e.g. <code>Word::getPos</code>
+     * @param otherValue value to check against
+     */
+    public static <O, V> XMatcher<O> eq(final Function<O, ? extends V> property, final V otherValue) {
+        return new PropertyMatcher<O, V>(property, "==", otherValue) {
+            @Override
+            boolean test(V value) {
+                return Objects.equals(value, otherValue);
+            }
+        };
+    }
+
+    public static <E> XMatcher<E> regex(final Class<E> otherClass, final String propertyName,
+            final String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+
+        return new PropertyMatcher<E, String>(otherClass, propertyName, "=~", regex) {
+            @Override
+            boolean test(String value) {
+                return pattern.matcher(value).matches();
+            }
+        };
+    }
+
+    /**
+     * Creates a matcher that checks if the string property returned by the
+     * accessor matches the regular expression
+     * 
+     * @param property accessor of the property
+     * @param regex to match the whole value with
+     */
+    public static <E> XMatcher<E> regex(final Function<E, String> property, final String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+
+        return new PropertyMatcher<E, String>(property, "=~", regex) {
+            @Override
+            boolean test(String value) {
+                return pattern.matcher(value).matches();
+            }
+        };
+    }
+
+    /**
+     * Creates a matcher that matches the longest phrase of the dictionary
+     * starting at the current element, comparing the phrases with the values
+     * of the java bean's property
+     * 
+     * @param otherClass java bean's class
+     * @param propertyName property of the java bean
+     * @param phrases of the dictionary, lists of property values
+     * @see Matchers#dictionary(List)
+     */
+    public static <E> XMatcher<E> dictionary(Class<E> otherClass, String propertyName,
+            List<? extends List<?>> phrases) {
+        ValueExtractor<E, Object> extractor = ReflectionUtils.property(otherClass, propertyName);
+        return new DictionaryMatcher<E>(phrases, extractor, otherClass.getSimpleName() + "." + propertyName);
+    }
+
+    public static <O, V> XMatcher<O> in(final Class<O> otherClass, final String propertyName,
+            final Set<V> values) {
+        return new PropertyMatcher<O, V>(otherClass, propertyName, "in", values) {
+            @Override
+            boolean test(V value) {
+                return values.contains(value);
+            }
+        };
+    }
+
+    /**
+     * Creates a matcher that checks if the property returned by the accessor
+     * is contained in the set
+     * 
+     * @param property accessor of the property
+     * @param values to look the property up in
+     */
+    public static <O, V> XMatcher<O> in(final Function<O, ? extends V> property, final Set<V> values) {
+        return new PropertyMatcher<O, V>(property, "in", values) {
+            @Override
+            boolean test(V value) {
+                return values.contains(value);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Matches a pattern against many documents with several workers, see
+ * {@link Pattern#findAll(Iterable, Executor, MatchConsumer)}. The workers
+ * take the documents in small batches, and each of them keeps a single
+ * {@link MatchCursor} that is reset for every document, so no per-document
+ * state is allocated besides the found matches
+ */
+class BulkFinder<E> {
+
+    /** the documents a worker takes at once */
+    static final int BATCH = 64;
+
+    private final Pattern<E> pattern;
+    private final Iterator<? extends List<E>> documents;
+    private final MatchConsumer<E> consumer;
+
+    private int nextDocument;
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    BulkFinder(Pattern<E> pattern, Iterable<? extends List<E>> documents, MatchConsumer<E> consumer) {
+        this.pattern = pattern;
+        this.documents = documents.iterator();
+        this.consumer = consumer;
+    }
+
+    void run(Executor executor) {
+        int workers = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(this::work, executor);
+        }
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void work() {
+        List<List<E>> batch = new ArrayList<List<E>>(BATCH);
+        MatchCursor<E> cursor = null;
+
+        try {
+            int first;
+            while ((first = take(batch)) >= 0) {
+                for (int i = 0; i < batch.size(); i++) {
+                    List<E> document = batch.get(i);
+                    if (cursor == null) {
+                        cursor = pattern.matcher(document);
+                    } else {
+                        cursor.reset(document);
+                    }
+
+                    while (cursor.find()) {
+                        consumer.accept(first + i, cursor.toMatch());
+                    }
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // the other workers stop after their current batch
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Fills the batch with the next documents
+     * 
+     * @return the index of the first document in the batch, or
+     *         <code>-1</code> if there are no documents left
+     */
+    private int take(List<List<E>> batch) {
+        batch.clear();
+        synchronized (documents) {
+            if (failed.get()) {
+                return -1;
+            }
+            int first = nextDocument;
+            while (batch.size() < BATCH && documents.hasNext()) {
+                batch.add(documents.next());
+            }
+            nextDocument = nextDocument + batch.size();
+            return batch.isEmpty() ? -1 : first;
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The sentences of a {@link Corpus} a pattern may match, found with a
+ * {@link CorpusIndex}, see {@link CorpusIndex#candidates(Pattern)}. Every
+ * sentence the pattern matches is a candidate, but not every candidate is
+ * matched. When the pattern has required leaves at a fixed distance from the
+ * start of its matches, the positions where the matches can start are known
+ * too.<br>
+ * <br>
+ * 
+ * The candidates are iterated in the order of the sentences, like
+ * {@link MatchCursor} iterates matches
+ * 
+ * <pre>
+ * Candidates candidates = index.candidates(pattern);
+ * while (candidates.next()) {
+ *     ColumnarSequence&lt;String[]&gt; sentence = corpus.sentence(candidates.sentence());
+ * }
+ * </pre>
+ */
+public class Candidates {
+
+    private final long sentenceCount;
+    /** the required leaves, the most selective first */
+    private final Leaf[] leaves;
+
+    private long sentence = -1;
+    /** the candidate starts of the current sentence, if known */
+    int[] starts = new int[16];
+    /** the number of the starts, <code>-1</code> if they are not known */
+    int startCount = -1;
+
+    Candidates(long sentenceCount, List<Leaf> leaves) {
+        this.sentenceCount = sentenceCount;
+        this.leaves = leaves.toArray(new Leaf[0]);
+        Arrays.sort(this.leaves, Comparator.comparingLong(leaf -> leaf.cost));
+    }
+
+    /**
+     * Moves to the next candidate sentence
+     * 
+     * @return <code>true</code> if there is one
+     */
+    public boolean next() {
+        if (sentence == Postings.END) {
+            return false;
+        }
+
+        long target = sentence + 1;
+        while (target < sentenceCount) {
+            long next = target;
+            for (Leaf leaf : leaves) {
+                next = leaf.advance(target);
+                if (next != target) {
+                    break;
+                }
+            }
+            if (next == Postings.END) {
+                break;
+            }
+            if (next != target) {
+                // one of the leaves does not occur in the sentence
+                target = next;
+                continue;
+            }
+
+            sentence = target;
+            if (findStarts()) {
+                return true;
+            }
+            target = sentence + 1;
+        }
+
+        sentence = Postings.END;
+        startCount = -1;
+        return false;
+    }
+
+    /**
+     * Intersects the positions of the leaves at fixed distances from the
+     * start of the matches
+     * 
+     * @return <code>false</code> if no match can start in the sentence
+     */
+    private boolean findStarts() {
+        startCount = -1;
+        for (Leaf leaf : leaves) {
+            if (leaf.offset < 0) {
+                continue;
+            }
+            leaf.readPositions(sentence);
+            if (startCount < 0) {
+                startCount = 0;
+                if (starts.length < leaf.size) {
+                    starts = new int[leaf.size];
+                }
+                for (int i = 0; i < leaf.size; i++) {
+                    int start = leaf.positions[i] - leaf.offset;
+                    if (start >= 0) {
+                        starts[startCount++] = start;
+                    }
+                }
+            } else {
+                startCount = intersect(starts, startCount, leaf);
+            }
+            if (startCount == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int intersect(int[] starts, int count, Leaf leaf) {
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            int position = starts[i] + leaf.offset;
+            while (j < leaf.size && leaf.positions[j] < position) {
+                j++;
+            }
+            if (j < leaf.size && leaf.positions[j] == position) {
+                starts[size++] = starts[i];
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the index of the current candidate sentence
+     */
+    public long sentence() {
+        Validate.validState(sentence >= 0 && sentence != Postings.END, "There is no current candidate");
+        return sentence;
+    }
+
+    /**
+     * @return the positions in the current sentence where the matches can
+     *         start, sorted, or <code>null</code> if a match can start
+     *         anywhere
+     */
+    public int[] starts() {
+        sentence();
+        return startCount < 0 ? null : Arrays.copyOf(starts, startCount);
+    }
+
+    /**
+     * A leaf every match of the pattern consumes an element for: the union
+     * of the posting lists of all the values it matches
+     */
+    static class Leaf {
+        private final PriorityQueue<Postings> queue = new PriorityQueue<Postings>(
+                Comparator.comparingLong(Postings::sentence));
+        /** the number of elements the matches consume before the leaf, or -1 */
+        private final int offset;
+        /** the size of the posting lists, to try the rarest leaves first */
+        private final long cost;
+
+        private int[] positions = new int[16];
+        private int size;
+
+        Leaf(List<Postings> postings, int offset, long cost) {
+            this.offset = offset;
+            this.cost = cost;
+            for (Postings list : postings) {
+                if (list.advance(0) != Postings.END) {
+                    queue.add(list);
+                }
+            }
+        }
+
+        /**
+         * @return the first sentence that contains the leaf, starting from
+         *         the target, or {@link Postings#END}
+         */
+        long advance(long target) {
+            while (!queue.isEmpty() && queue.peek().sentence() < target) {
+                Postings list = queue.poll();
+                if (list.advance(target) != Postings.END) {
+                    queue.add(list);
+                }
+            }
+            return queue.isEmpty() ? Postings.END : queue.peek().sentence();
+        }
+
+        /**
+         * Reads the sorted positions of the leaf in the current sentence
+         */
+        void readPositions(long sentence) {
+            size = 0;
+            for (Postings list : queue) {
+                if (list.sentence() == sentence) {
+                    int count = list.positionCount();
+                    positions = list.positions(positions, size);
+                    size = size + count;
+                }
+            }
+            Arrays.sort(positions, 0, size);
+        }
+    }
+
+}
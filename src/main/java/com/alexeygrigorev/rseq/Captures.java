@@ -0,0 +1,79 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * The captured variables and groups of a pattern in the order of their slots.
+ * Capture <code>k</code> of a match is kept in the slots <code>2k + 2</code>
+ * and <code>2k + 3</code>, as in {@link NfaProgram}. The slots are resolved
+ * once when the pattern is created, and all the engines number the captures
+ * the same way, so a capture can be looked up by its slot instead of its name
+ * 
+ * @see Pattern#variableSlot(String)
+ * @see Pattern#groupSlot(String)
+ */
+class Captures {
+
+    static final Captures NONE = new Captures(new String[0], new boolean[0]);
+
+    final String[] names;
+    /** tells for each capture if it is a group or a variable */
+    final boolean[] groups;
+
+    Captures(String[] names, boolean[] groups) {
+        this.names = names;
+        this.groups = groups;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the slot of the variable, or <code>-1</code> if there is no
+     *         such variable
+     */
+    int variable(String name) {
+        return find(name, false);
+    }
+
+    /**
+     * @return the slot of the group, or <code>-1</code> if there is no such
+     *         group
+     */
+    int group(String name) {
+        return find(name, true);
+    }
+
+    private int find(String name, boolean group) {
+        for (int i = 0; i < names.length; i++) {
+            if (groups[i] == group && names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that the slot belongs to a capture of the given kind
+     */
+    void validate(int slot, boolean group) {
+        if (slot < 0 || slot >= names.length || groups[slot] != group) {
+            // checked on every lookup, so no varargs array unless it fails
+            throw new IllegalArgumentException(String.format("No %s with slot %d", group ? "group" : "variable", slot));
+        }
+    }
+
+    /**
+     * @param slots of a match
+     * @return <code>true</code> if the capture got something in the match: a
+     *         group can capture no elements, a variable captures exactly one
+     */
+    boolean isCaptured(int[] slots, int slot) {
+        int start = slots[2 * slot + 2];
+        int end = slots[2 * slot + 3];
+        if (start < 0) {
+            return false;
+        }
+        return groups[slot] ? end >= start : end > start;
+    }
+
+}
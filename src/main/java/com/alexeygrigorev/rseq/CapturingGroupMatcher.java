@@ -1,34 +1,51 @@
-package com.alexeygrigorev.rseq;
-
-class CapturingGroupMatcher<E> extends DelegatingMatcher<E> {
-
-    private final String name;
-    private final ParentMatcher<E> delegate;
-
-    public CapturingGroupMatcher(String name, ParentMatcher<E> matcher) {
-        super(matcher);
-        this.name = name;
-        this.delegate = matcher;
-    }
-
-    @Override
-    public boolean match(E object) {
-        if (delegateMatch(object)) {
-            context().captureGroup(name);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    int register(MatchingContext<E> context) {
-        this.index = delegate.register(context);
-        return index;
-    }
-
-    @Override
-    public String toString() {
-        return name + "={" + delegateToString() + "}";
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+class CapturingGroupMatcher<E> extends DelegatingMatcher<E> {
+
+    private final String name;
+    private final ParentMatcher<E> delegate;
+    /** the slot of the group, <code>-1</code> if the matcher is not compiled */
+    private final int slot;
+
+    public CapturingGroupMatcher(String name, ParentMatcher<E> matcher) {
+        this(name, matcher, -1);
+    }
+
+    private CapturingGroupMatcher(String name, ParentMatcher<E> matcher, int slot) {
+        super(matcher);
+        this.name = name;
+        this.delegate = matcher;
+        this.slot = slot;
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        if (delegateMatch(object, context)) {
+            context.captureGroup(slot, name);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    ParentMatcher<E> compile(List<ParentMatcher<E>> program, Captures captures) {
+        ParentMatcher<E> compiled = delegate.compile(program, captures);
+        return new CapturingGroupMatcher<E>(name, compiled, captures.group(name));
+    }
+
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        int slot = nfa.group(name);
+        nfa.save(slot);
+        emitDelegate(nfa);
+        nfa.save(slot + 1);
+    }
+
+    @Override
+    public String toString() {
+        return name + "={" + delegateToString() + "}";
+    }
+
+}
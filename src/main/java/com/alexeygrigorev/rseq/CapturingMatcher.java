@@ -1,26 +1,56 @@
-package com.alexeygrigorev.rseq;
-
-class CapturingMatcher<E> extends DelegatingMatcher<E> {
-
-    private String name;
-
-    public CapturingMatcher(String name, Matcher<E> matcher) {
-        super(matcher);
-        this.name = name;
-    }
-
-    @Override
-    public boolean match(E object) {
-        if (delegateMatch(object)) {
-            context().setVariable(name, object);
-            return true;
-        }
-        return false;
-    }
-
-    @Override
-    public String toString() {
-        return name + "={" + delegateToString() + "}";
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+class CapturingMatcher<E> extends DelegatingMatcher<E> {
+
+    private final String name;
+    /** the slot of the variable, <code>-1</code> if the matcher is not compiled */
+    private final int slot;
+
+    public CapturingMatcher(String name, Matcher<E> matcher) {
+        this(name, matcher, -1);
+    }
+
+    private CapturingMatcher(String name, Matcher<E> matcher, int slot) {
+        super(matcher);
+        this.name = name;
+        this.slot = slot;
+    }
+
+    @Override
+    public boolean match(E object) {
+        return delegate().match(object);
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        int position = context.position();
+        if (delegateMatch(object, context)) {
+            context.captureVariable(slot, name, position);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    ParentMatcher<E> compile(List<ParentMatcher<E>> program, Captures captures) {
+        ParentMatcher<E> bound = new CapturingMatcher<E>(name, delegate(), captures.variable(name));
+        program.add(bound);
+        return bound;
+    }
+
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        int slot = nfa.variable(name);
+        nfa.save(slot);
+        emitDelegate(nfa);
+        nfa.save(slot + 1);
+    }
+
+    @Override
+    public String toString() {
+        return name + "={" + delegateToString() + "}";
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Utility class with matchers that test the columns of a
+ * {@link ColumnarSequence} directly, for the sequences that have no element
+ * class. They can only be matched against columnar sequences, with the
+ * {@link Engine#NFA} or {@link Engine#DFA} engine or with
+ * {@link Evaluation#COLUMNAR}. When there is an element class, the matchers
+ * of {@link BeanMatchers} test the columns in the same way, and can also be
+ * matched against the elements
+ * 
+ * <br><br>
+ * For readability it might be better to <code>import static</code> the methods
+ * of this class.
+ */
+public class ColumnMatchers {
+
+    private ColumnMatchers() {
+    }
+
+    /**
+     * Creates a matcher that checks if the value of the column is equal to the
+     * provided value
+     * 
+     * @param column the name of the column
+     * @param otherValue value to check against
+     */
+    public static <E, V> XMatcher<E> eq(String column, final V otherValue) {
+        Validate.notNull(column, "Column must not be null");
+        return new PropertyMatcher<E, V>(null, column, "==", otherValue) {
+            @Override
+            boolean test(V value) {
+                return Objects.equals(value, otherValue);
+            }
+        };
+    }
+
+    /**
+     * Creates a matcher that checks if the value of the column is one of the
+     * provided values
+     * 
+     * @param column the name of the column
+     * @param values to check against
+     */
+    public static <E, V> XMatcher<E> in(String column, final Set<V> values) {
+        Validate.notNull(column, "Column must not be null");
+        return new PropertyMatcher<E, V>(null, column, "in", values) {
+            @Override
+            boolean test(V value) {
+                return values.contains(value);
+            }
+        };
+    }
+
+    /**
+     * Creates a matcher that checks if the value of the column is one of the
+     * provided values
+     * 
+     * @param column the name of the column
+     * @param values to check against
+     */
+    @SafeVarargs
+    public static <E, V> XMatcher<E> in(String column, V... values) {
+        Set<V> set = new HashSet<V>();
+        for (V value : values) {
+            set.add(value);
+        }
+        return in(column, set);
+    }
+
+    /**
+     * Creates a matcher that checks if the value of a string column matches
+     * the regular expression
+     * 
+     * @param column the name of the column
+     * @param regex to match the values with
+     */
+    public static <E> XMatcher<E> regex(String column, final String regex) {
+        Validate.notNull(column, "Column must not be null");
+        final Pattern pattern = Pattern.compile(regex);
+        return new PropertyMatcher<E, String>(null, column, "=~", regex) {
+            @Override
+            boolean test(String value) {
+                return pattern.matcher(value).matches();
+            }
+        };
+    }
+
+}
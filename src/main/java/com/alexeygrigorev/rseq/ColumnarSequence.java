@@ -0,0 +1,249 @@
+package com.alexeygrigorev.rseq;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A sequence kept as a struct of arrays: each attribute of the elements, e.g.
+ * the token, the part of speech or the lemma of a word, is a separate array
+ * column. Plain columns are arrays of values, and dictionary-encoded columns
+ * are arrays of ids into a dictionary of values.<br>
+ * <br>
+ * 
+ * The matchers of {@link BeanMatchers} and {@link ColumnMatchers} test the
+ * column with the name of their property directly, so the elements
+ * themselves are never created when a pattern is matched with the
+ * {@link Engine#NFA} or {@link Engine#DFA} engine, or with
+ * {@link Evaluation#MEMOIZED} or {@link Evaluation#COLUMNAR}. For a dictionary-encoded column a matcher is
+ * evaluated once per dictionary entry, after that testing an element is an
+ * array lookup.<br>
+ * <br>
+ * 
+ * The elements are created from the columns by the row factory only when
+ * they are asked for, e.g. by {@link Match#getMatchedSubsequence()}, by
+ * other matchers or by the {@link Engine#SEQUENTIAL} engine with
+ * {@link Evaluation#DIRECT}. The columns
+ * must not be modified while the sequence is in use
+ * 
+ * <pre>
+ * ColumnarSequence&lt;Word&gt; words = new ColumnarSequence&lt;Word&gt;(tokens.length, i -&gt; new Word(tokens[i], tags[pos[i]]))
+ *         .addColumn(&quot;token&quot;, tokens)
+ *         .addColumn(&quot;pos&quot;, pos, tags);
+ * List&lt;Match&lt;Word&gt;&gt; matches = pattern.withEngine(Engine.DFA).find(words);
+ * </pre>
+ * 
+ * @param <E> the type of the elements the rows stand for
+ */
+public class ColumnarSequence<E> extends AbstractList<E> implements RandomAccess {
+
+    private final int size;
+    private final IntFunction<E> rows;
+    private final Map<String, Column> columns = new HashMap<String, Column>();
+
+    /**
+     * Creates a sequence without columns, they are added with the
+     * <code>addColumn</code> methods
+     * 
+     * @param size the number of elements
+     * @param rows creates the element at the given position from the columns,
+     *        <code>null</code> if the elements cannot be created: then the
+     *        sequence can only be matched with the matchers of its columns
+     */
+    public ColumnarSequence(int size, IntFunction<E> rows) {
+        Validate.isTrue(size >= 0, "Size must not be negative");
+        this.size = size;
+        this.rows = rows;
+    }
+
+    /**
+     * Adds a column of values, e.g. a <code>String[]</code>
+     * 
+     * @param name of the column, the same as the name of the property the
+     *        matchers test
+     * @param values of the column, one for each element
+     * @return this sequence
+     */
+    public ColumnarSequence<E> addColumn(String name, Object[] values) {
+        Validate.notNull(values, "Values must not be null");
+        return addColumn(name, new ObjectColumn(values), values.length);
+    }
+
+    /**
+     * Adds a column of int values
+     * 
+     * @param name of the column
+     * @param values of the column, one for each element
+     * @return this sequence
+     */
+    public ColumnarSequence<E> addColumn(String name, int[] values) {
+        Validate.notNull(values, "Values must not be null");
+        return addColumn(name, new IntColumn(values, null), values.length);
+    }
+
+    /**
+     * Adds a dictionary-encoded column. Sequences that share the same
+     * dictionary array also share the outcomes of the matchers for its
+     * entries
+     * 
+     * @param name of the column
+     * @param ids of the values in the dictionary, one for each element
+     * @param dictionary the values of the column
+     * @return this sequence
+     */
+    public ColumnarSequence<E> addColumn(String name, int[] ids, Object[] dictionary) {
+        Validate.notNull(ids, "Ids must not be null");
+        Validate.notNull(dictionary, "Dictionary must not be null");
+        return addColumn(name, new IntColumn(ids, dictionary), ids.length);
+    }
+
+    /**
+     * Adds a column of int values or ids kept in a buffer, e.g. in a file
+     * mapped to memory. The values are not copied
+     * 
+     * @param name of the column
+     * @param ids the values of the column or their ids in the dictionary,
+     *        from the position of the buffer to its limit
+     * @param dictionary the values of the column, <code>null</code> if the
+     *        buffer keeps the values themselves
+     * @return this sequence
+     * @see Corpus
+     */
+    public ColumnarSequence<E> addColumn(String name, IntBuffer ids, Object[] dictionary) {
+        Validate.notNull(ids, "Ids must not be null");
+        IntBuffer values = ids.slice();
+        return addColumn(name, new BufferColumn(values, dictionary), values.remaining());
+    }
+
+    private ColumnarSequence<E> addColumn(String name, Column column, int length) {
+        Validate.notNull(name, "Name must not be null");
+        Validate.isTrue(length == size, "The column %s has %d values, expected %d", name, length, size);
+        Validate.isTrue(!columns.containsKey(name), "The column %s is already added", name);
+        columns.put(name, column);
+        return this;
+    }
+
+    /**
+     * @param column the name of the column
+     * @param index of the element
+     * @return the value of the column for the element
+     */
+    public Object getValue(String column, int index) {
+        Column values = columns.get(column);
+        Validate.isTrue(values != null, "No column %s", column);
+        return values.value(index);
+    }
+
+    @Override
+    public E get(int index) {
+        if (rows == null) {
+            throw new UnsupportedOperationException("The elements of the sequence cannot be created, "
+                    + "it can only be matched with the matchers of its columns");
+        }
+        Validate.validIndex(this, index);
+        return rows.apply(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    Column column(String name) {
+        return columns.get(name);
+    }
+
+    /**
+     * Binds the leaves of a pattern to the columns of the sequence
+     * 
+     * @param leaves of the pattern, in the order of their ids
+     * @param sequence to be matched
+     * @return the tests of the leaves that have a column in the sequence,
+     *         indexed by leaf id, or <code>null</code> if the sequence is not
+     *         columnar
+     */
+    static <E> ColumnTest[] bind(List<? extends Matcher<E>> leaves, List<E> sequence) {
+        if (!(sequence instanceof ColumnarSequence)) {
+            return null;
+        }
+        ColumnarSequence<E> columnar = (ColumnarSequence<E>) sequence;
+
+        ColumnTest[] tests = new ColumnTest[leaves.size()];
+        for (int i = 0; i < tests.length; i++) {
+            Matcher<E> leaf = leaves.get(i);
+            if (leaf instanceof PropertyMatcher) {
+                tests[i] = ((PropertyMatcher<E, ?>) leaf).bind(columnar);
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * Tests a leaf matcher against the value of its column at a position
+     */
+    static interface ColumnTest {
+        boolean test(int position);
+    }
+
+    abstract static class Column {
+        abstract Object value(int index);
+    }
+
+    static class ObjectColumn extends Column {
+        final Object[] values;
+
+        ObjectColumn(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Object value(int index) {
+            return values[index];
+        }
+    }
+
+    static class IntColumn extends Column {
+        final int[] values;
+        /** <code>null</code> if the values are not ids */
+        final Object[] dictionary;
+
+        IntColumn(int[] values, Object[] dictionary) {
+            this.values = values;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        Object value(int index) {
+            if (dictionary == null) {
+                return values[index];
+            }
+            return dictionary[values[index]];
+        }
+    }
+
+    static class BufferColumn extends Column {
+        final IntBuffer values;
+        /** <code>null</code> if the values are not ids */
+        final Object[] dictionary;
+
+        BufferColumn(IntBuffer values, Object[] dictionary) {
+            this.values = values;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        Object value(int index) {
+            if (dictionary == null) {
+                return values.get(index);
+            }
+            return dictionary[values.get(index)];
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+package com.alexeygrigorev.rseq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A corpus written by {@link CorpusWriter}, mapped to memory. Only the header
+ * with the dictionaries is read to the heap, so the memory the corpus takes
+ * does not depend on its size, only on the size of its vocabulary. The
+ * sentences are {@link ColumnarSequence}s with one dictionary-encoded column
+ * per attribute, backed by the mapped file without copying, and can be
+ * matched with the matchers of {@link BeanMatchers} and
+ * {@link ColumnMatchers} like any other columnar sequence.<br>
+ * <br>
+ * 
+ * The corpus can be read from several threads at the same time
+ * 
+ * <pre>
+ * try (Corpus corpus = Corpus.open(file)) {
+ *     for (ColumnarSequence&lt;String[]&gt; sentence : corpus.sentences()) {
+ *         List&lt;Match&lt;String[]&gt;&gt; matches = pattern.withEngine(Engine.DFA).find(sentence);
+ *     }
+ * }
+ * </pre>
+ */
+public class Corpus implements Closeable {
+
+    /** the columns are mapped in segments of 1 GB */
+    private static final int INT_SEGMENT_BITS = 28;
+    private static final int LONG_SEGMENT_BITS = 27;
+
+    private final FileChannel channel;
+    private final long tokenCount;
+    private final long sentenceCount;
+    private final List<String> attributes;
+    private final String[][] dictionaries;
+    private final MappedRegion offsets;
+    private final MappedRegion[] columns;
+
+    private Corpus(FileChannel channel, int segmentBits) throws IOException {
+        this.channel = channel;
+
+        ByteBuffer start = read(0, 12);
+        int magic = start.getInt();
+        int version = start.getInt();
+        int headerLength = start.getInt();
+        if (magic != CorpusWriter.MAGIC) {
+            throw new IOException("Not a corpus file");
+        }
+        if (version != CorpusWriter.VERSION) {
+            throw new IOException("Unsupported version of the corpus file: " + version);
+        }
+
+        ByteBuffer header = read(12, headerLength - 12);
+        this.tokenCount = header.getLong();
+        this.sentenceCount = header.getLong();
+        int maxSentenceLength = header.getInt();
+        int attributeCount = header.getInt();
+
+        String[] names = new String[attributeCount];
+        this.dictionaries = new String[attributeCount][];
+        for (int i = 0; i < attributeCount; i++) {
+            names[i] = getString(header);
+            String[] dictionary = new String[header.getInt()];
+            for (int j = 0; j < dictionary.length; j++) {
+                dictionary[j] = getString(header);
+            }
+            dictionaries[i] = dictionary;
+        }
+        this.attributes = Collections.unmodifiableList(Arrays.asList(names));
+
+        int offsetBits = Math.min(segmentBits, LONG_SEGMENT_BITS);
+        this.offsets = new MappedRegion(channel, headerLength, sentenceCount + 1, 8, offsetBits, 0);
+        long columnBase = headerLength + (sentenceCount + 1) * 8;
+        this.columns = new MappedRegion[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            long base = columnBase + i * tokenCount * 4;
+            columns[i] = new MappedRegion(channel, base, tokenCount, 4, segmentBits, maxSentenceLength);
+        }
+    }
+
+    /**
+     * Maps a corpus file to memory
+     * 
+     * @param file written by {@link CorpusWriter}
+     * @return the corpus, to be closed when it is no longer used
+     * @throws IOException if the file cannot be read or is not a corpus file
+     */
+    public static Corpus open(Path file) throws IOException {
+        return open(file, INT_SEGMENT_BITS);
+    }
+
+    static Corpus open(Path file, int segmentBits) throws IOException {
+        Validate.notNull(file, "File must not be null");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new Corpus(channel, segmentBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The corpus file is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long tokenCount() {
+        return tokenCount;
+    }
+
+    public long sentenceCount() {
+        return sentenceCount;
+    }
+
+    /**
+     * @return the names of the attributes of the tokens, also the names of
+     *         the columns of the sentences
+     */
+    public List<String> attributes() {
+        return attributes;
+    }
+
+    /**
+     * @param attribute the name of the attribute
+     * @return the values of the attribute, the ids of the column are indexes
+     *         in this array
+     */
+    public String[] dictionary(String attribute) {
+        return dictionaries[attributeIndex(attribute)].clone();
+    }
+
+    /**
+     * @return the dictionary of the attribute, shared by all the sentences
+     */
+    String[] values(int attribute) {
+        return dictionaries[attribute];
+    }
+
+    /**
+     * @return the ids of the values of the attribute for the tokens of the
+     *         sentence, backed by the file
+     */
+    IntBuffer ids(int attribute, long sentence) {
+        return columns[attribute].ints(offsets.getLong(sentence), offsets.getLong(sentence + 1));
+    }
+
+    int attributeIndex(String attribute) {
+        int index = attributes.indexOf(attribute);
+        Validate.isTrue(index >= 0, "No attribute %s", attribute);
+        return index;
+    }
+
+    /**
+     * @param index of the sentence
+     * @return the sentence, its elements are the values of the attributes of
+     *         each token in the order of {@link #attributes()}
+     */
+    public ColumnarSequence<String[]> sentence(long index) {
+        return sentence(index, Function.identity());
+    }
+
+    /**
+     * @param index of the sentence
+     * @param rows creates an element from the values of the attributes of a
+     *        token, in the order of {@link #attributes()}
+     * @return the sentence
+     */
+    public <E> ColumnarSequence<E> sentence(long index, Function<String[], E> rows) {
+        Validate.isTrue(index >= 0 && index < sentenceCount, "No sentence %d", index);
+        Validate.notNull(rows, "Rows must not be null");
+
+        IntBuffer[] ids = new IntBuffer[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            ids[i] = ids(i, index);
+        }
+
+        ColumnarSequence<E> sentence = new ColumnarSequence<E>(ids[0].remaining(), position -> {
+            String[] values = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                values[i] = dictionaries[i][ids[i].get(position)];
+            }
+            return rows.apply(values);
+        });
+        for (int i = 0; i < columns.length; i++) {
+            sentence.addColumn(attributes.get(i), ids[i], dictionaries[i]);
+        }
+        return sentence;
+    }
+
+    /**
+     * @return all the sentences of the corpus, each read from the file when
+     *         the iteration gets to it
+     */
+    public Iterable<ColumnarSequence<String[]>> sentences() {
+        return () -> new Iterator<ColumnarSequence<String[]>>() {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < sentenceCount;
+            }
+
+            @Override
+            public ColumnarSequence<String[]> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return sentence(next++);
+            }
+        };
+    }
+
+    /**
+     * Closes the file. The sentences taken before stay readable, the mapped
+     * segments are released when they are no longer referenced
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,399 @@
+package com.alexeygrigorev.rseq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An inverted index of a {@link Corpus}: for each value of each attribute, the
+ * sentences that contain it and its positions there. The posting lists are
+ * compressed with variable-length ints, see {@link Postings}, and the index
+ * file is mapped to memory like the corpus, so opening it costs nothing.<br>
+ * <br>
+ * 
+ * Before a pattern is run, the index finds the leaves every match of it must
+ * consume, e.g. a required <code>BeanMatchers.eq(Word.class, "pos", "NN")</code>,
+ * evaluates each of them once per entry of the dictionary of its attribute,
+ * and intersects the unions of the posting lists of the matching entries,
+ * the rarest leaves first. Only the candidate sentences are read from the
+ * corpus and matched, and when a required leaf is at a fixed distance from
+ * the start of the pattern, only the candidate start positions are tried.
+ * Leaves of other kinds, and leaves of attributes not in the corpus, do not
+ * restrict the candidates
+ * 
+ * <pre>
+ * CorpusIndex.build(corpus, indexFile);
+ * try (CorpusIndex index = CorpusIndex.open(indexFile, corpus)) {
+ *     index.find(pattern, values -&gt; new Word(values[0], values[1]), (match, sentence) -&gt; ...);
+ * }
+ * </pre>
+ */
+public class CorpusIndex implements Closeable {
+
+    static final int MAGIC = 0x58444952;
+    static final int VERSION = 1;
+
+    private static final int LONG_SEGMENT_BITS = 27;
+    private static final int BYTE_SEGMENT_BITS = 30;
+    /** the bytes of the posting lists kept in memory before they are spilled */
+    private static final long SPILL_THRESHOLD = 1 << 26;
+
+    private final Corpus corpus;
+    private final FileChannel channel;
+    /** for each attribute, where the posting list of each value starts */
+    private final MappedRegion[] offsets;
+    /** for each attribute, all its posting lists */
+    private final MappedRegion[] postings;
+
+    private CorpusIndex(Corpus corpus, FileChannel channel, int segmentBits) throws IOException {
+        this.corpus = corpus;
+        this.channel = channel;
+
+        ByteBuffer start = read(0, 12);
+        if (start.getInt() != MAGIC) {
+            throw new IOException("Not an index file");
+        }
+        int version = start.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of the index file: " + version);
+        }
+        int headerLength = start.getInt();
+
+        ByteBuffer header = read(12, headerLength - 12);
+        long tokenCount = header.getLong();
+        long sentenceCount = header.getLong();
+        int attributeCount = header.getInt();
+        if (tokenCount != corpus.tokenCount() || sentenceCount != corpus.sentenceCount()
+                || attributeCount != corpus.attributes().size()) {
+            throw new IOException("The index is built for another corpus");
+        }
+
+        this.offsets = new MappedRegion[attributeCount];
+        this.postings = new MappedRegion[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            byte[] name = new byte[header.getInt()];
+            header.get(name);
+            int valueCount = header.getInt();
+            long offsetsBase = header.getLong();
+            long postingsBase = header.getLong();
+            if (!corpus.attributes().get(i).equals(new String(name, StandardCharsets.UTF_8))
+                    || valueCount != corpus.values(i).length) {
+                throw new IOException("The index is built for another corpus");
+            }
+
+            offsets[i] = new MappedRegion(channel, offsetsBase, valueCount + 1, 8,
+                    Math.min(segmentBits, LONG_SEGMENT_BITS), 0);
+            long size = offsets[i].getLong(valueCount);
+            postings[i] = new MappedRegion(channel, postingsBase, size, 1, Math.min(segmentBits, BYTE_SEGMENT_BITS),
+                    0);
+        }
+    }
+
+    /**
+     * Builds the index of the corpus and writes it to a file. The posting
+     * lists of one attribute at a time are built, and when they take too
+     * much memory they are spilled to a temporary file next to the index
+     * file
+     * 
+     * @param corpus to index
+     * @param file to write the index to
+     * @throws IOException if the file cannot be written
+     */
+    public static void build(Corpus corpus, Path file) throws IOException {
+        build(corpus, file, SPILL_THRESHOLD);
+    }
+
+    static void build(Corpus corpus, Path file, long spillThreshold) throws IOException {
+        Validate.notNull(corpus, "Corpus must not be null");
+        Validate.notNull(file, "File must not be null");
+
+        List<String> attributes = corpus.attributes();
+        byte[][] names = new byte[attributes.size()][];
+        int headerLength = 4 + 4 + 4 + 8 + 8 + 4;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = attributes.get(i).getBytes(StandardCharsets.UTF_8);
+            headerLength = headerLength + 4 + names[i].length + 4 + 8 + 8;
+        }
+
+        long[] offsetsBase = new long[names.length];
+        long[] postingsBase = new long[names.length];
+        Path spillFile = file.resolveSibling(file.getFileName() + ".postings.tmp");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                FileChannel spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            long position = headerLength;
+            out.position(position);
+
+            for (int i = 0; i < names.length; i++) {
+                spill.truncate(0);
+                Postings.Writer[] lists = postings(corpus, i, spill, spillThreshold);
+
+                offsetsBase[i] = position;
+                long offset = 0;
+                for (Postings.Writer list : lists) {
+                    buffer = put(out, buffer, offset);
+                    offset = offset + list.size();
+                }
+                buffer = put(out, buffer, offset);
+                position = position + 8L * (lists.length + 1);
+
+                postingsBase[i] = position;
+                for (Postings.Writer list : lists) {
+                    if (list.inMemory() && list.bytesInMemory() <= buffer.remaining()) {
+                        buffer.put(list.bytes(), 0, list.bytesInMemory());
+                        continue;
+                    }
+                    flush(out, buffer);
+                    if (list.inMemory() && list.bytesInMemory() <= buffer.remaining()) {
+                        buffer.put(list.bytes(), 0, list.bytesInMemory());
+                    } else {
+                        list.transferTo(out, spill);
+                    }
+                }
+                position = position + offset;
+            }
+            flush(out, buffer);
+
+            ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(headerLength);
+            header.putLong(corpus.tokenCount());
+            header.putLong(corpus.sentenceCount());
+            header.putInt(names.length);
+            for (int i = 0; i < names.length; i++) {
+                header.putInt(names[i].length);
+                header.put(names[i]);
+                header.putInt(corpus.values(i).length);
+                header.putLong(offsetsBase[i]);
+                header.putLong(postingsBase[i]);
+            }
+            header.flip();
+            out.position(0);
+            write(out, header);
+        }
+    }
+
+    /**
+     * @return the posting list of each value of the attribute
+     */
+    private static Postings.Writer[] postings(Corpus corpus, int attribute, FileChannel spill, long spillThreshold)
+            throws IOException {
+        Postings.Writer[] lists = new Postings.Writer[corpus.values(attribute).length];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new Postings.Writer();
+        }
+
+        // the positions of the sentence, sorted by the ids of the values
+        long[] keys = new long[16];
+        int[] positions = new int[16];
+        long inMemory = 0;
+        for (long sentence = 0; sentence < corpus.sentenceCount(); sentence++) {
+            IntBuffer ids = corpus.ids(attribute, sentence);
+            int length = ids.remaining();
+            if (keys.length < length) {
+                keys = new long[length];
+                positions = new int[length];
+            }
+            for (int i = 0; i < length; i++) {
+                keys[i] = (long) ids.get(i) << 32 | i;
+            }
+            Arrays.sort(keys, 0, length);
+
+            int from = 0;
+            while (from < length) {
+                int id = (int) (keys[from] >>> 32);
+                int to = from;
+                while (to < length && (int) (keys[to] >>> 32) == id) {
+                    positions[to] = (int) keys[to];
+                    to++;
+                }
+                inMemory = inMemory + lists[id].add(sentence, positions, from, to);
+                from = to;
+            }
+
+            if (inMemory > spillThreshold) {
+                for (Postings.Writer list : lists) {
+                    list.spill(spill);
+                }
+                inMemory = 0;
+            }
+        }
+        return lists;
+    }
+
+    private static ByteBuffer put(FileChannel out, ByteBuffer buffer, long value) throws IOException {
+        if (buffer.remaining() < 8) {
+            flush(out, buffer);
+        }
+        return buffer.putLong(value);
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        write(out, buffer);
+        buffer.clear();
+    }
+
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Maps an index file to memory
+     * 
+     * @param file written by {@link #build(Corpus, Path)}
+     * @param corpus the index is built for, the candidates are read from it
+     * @return the index, to be closed when it is no longer used
+     * @throws IOException if the file cannot be read or does not belong to
+     *         the corpus
+     */
+    public static CorpusIndex open(Path file, Corpus corpus) throws IOException {
+        return open(file, corpus, BYTE_SEGMENT_BITS);
+    }
+
+    static CorpusIndex open(Path file, Corpus corpus, int segmentBits) throws IOException {
+        Validate.notNull(file, "File must not be null");
+        Validate.notNull(corpus, "Corpus must not be null");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new CorpusIndex(corpus, channel, segmentBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The index file is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Plans the query for the pattern: finds its required leaves and the
+     * posting lists of the values they match
+     * 
+     * @param pattern to find the candidate sentences for
+     * @return the candidates, positioned before the first one
+     */
+    public Candidates candidates(Pattern<?> pattern) {
+        Validate.notNull(pattern, "Pattern must not be null");
+        return plan(pattern);
+    }
+
+    private <E> Candidates plan(Pattern<E> pattern) {
+        NfaFinder<E> finder = new NfaFinder<E>(pattern.matchers());
+        boolean[] required = finder.program.requiredLeaves();
+        int[] leafOffsets = finder.program.leafOffsets();
+
+        List<Candidates.Leaf> leaves = new ArrayList<Candidates.Leaf>();
+        for (int leaf = 0; leaf < required.length; leaf++) {
+            Matcher<E> matcher = finder.leaves.get(leaf);
+            if (!required[leaf] || !(matcher instanceof PropertyMatcher)) {
+                continue;
+            }
+            String property = ((PropertyMatcher<E, ?>) matcher).propertyName();
+            int attribute = corpus.attributes().indexOf(property);
+            if (attribute < 0) {
+                continue;
+            }
+
+            boolean[] outcomes = ((PropertyMatcher<E, ?>) matcher).outcomes(corpus.values(attribute));
+            List<Postings> lists = new ArrayList<Postings>();
+            long cost = 0;
+            for (int value = 0; value < outcomes.length; value++) {
+                if (outcomes[value]) {
+                    long from = offsets[attribute].getLong(value);
+                    long to = offsets[attribute].getLong(value + 1);
+                    lists.add(new Postings(postings[attribute], from, to));
+                    cost = cost + to - from;
+                }
+            }
+            leaves.add(new Candidates.Leaf(lists, leafOffsets[leaf], cost));
+        }
+
+        return new Candidates(corpus.sentenceCount(), leaves);
+    }
+
+    /**
+     * Finds the matches of the pattern in the candidate sentences of the
+     * corpus. The matches are the same as if the pattern was run on every
+     * sentence
+     * 
+     * @param pattern to find
+     * @param rows creates an element from the values of the attributes of a
+     *        token, see {@link Corpus#sentence(long, Function)}
+     * @param consumer gets each match and the index of its sentence
+     */
+    public <E> void find(Pattern<E> pattern, Function<String[], E> rows, ObjLongConsumer<Match<E>> consumer) {
+        Validate.notNull(consumer, "Consumer must not be null");
+        Candidates candidates = candidates(pattern);
+
+        MatchCursor<E> cursor = null;
+        while (candidates.next()) {
+            long index = candidates.sentence();
+            ColumnarSequence<E> sentence = corpus.sentence(index, rows);
+            if (cursor == null) {
+                cursor = pattern.matcher(sentence);
+            } else {
+                cursor.reset(sentence);
+            }
+
+            int count = candidates.startCount;
+            if (count < 0) {
+                while (cursor.find()) {
+                    consumer.accept(cursor.toMatch(), index);
+                }
+                continue;
+            }
+
+            int[] starts = candidates.starts;
+            cursor.limitStarts(starts[count - 1] + 1);
+            int next = 0;
+            while (true) {
+                cursor.startAt(starts[next]);
+                if (!cursor.find()) {
+                    break;
+                }
+                consumer.accept(cursor.toMatch(), index);
+                // no match starts between the candidates
+                while (next < count && starts[next] < cursor.end()) {
+                    next++;
+                }
+                if (next == count) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
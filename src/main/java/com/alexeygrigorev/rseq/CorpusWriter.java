@@ -0,0 +1,268 @@
+package com.alexeygrigorev.rseq;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Writes a corpus of sentences to a file that {@link Corpus} maps to memory.
+ * Each attribute of the tokens, e.g. the token itself, the part of speech or
+ * the lemma, is dictionary-encoded: the file keeps the dictionary of its
+ * values and a column with the ids of the values, four bytes per token.<br>
+ * <br>
+ * 
+ * The layout of the file, all numbers are little-endian:
+ * <ul>
+ * <li>the header: magic, version, the length of the header, the number of
+ * tokens and of sentences, the length of the longest sentence, then the name
+ * and the dictionary of each attribute</li>
+ * <li>the offsets of the sentences, one long per sentence and one for the end
+ * of the last sentence</li>
+ * <li>the columns of the attributes, one after another</li>
+ * </ul>
+ * The columns are written to temporary files next to the corpus file while
+ * the sentences are added, and put together when the writer is closed
+ * 
+ * <pre>
+ * try (CorpusWriter writer = new CorpusWriter(file, &quot;token&quot;, &quot;pos&quot;)) {
+ *     writer.addSentence(tokens, tags);
+ * }
+ * </pre>
+ */
+public class CorpusWriter implements Closeable {
+
+    static final int MAGIC = 0x51455352;
+    static final int VERSION = 1;
+    /** the length of the longest sentence the file can keep */
+    static final int MAX_SENTENCE_LENGTH = 1 << 24;
+
+    private final Path file;
+    private final String[] attributes;
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<Map<String, Integer>>();
+    private final Path[] columnFiles;
+    private final Sink[] columns;
+    private final Path offsetsFile;
+    private final Sink offsets;
+
+    private long tokenCount;
+    private long sentenceCount;
+    private int maxSentenceLength;
+    private boolean closed;
+
+    /**
+     * @param file to write the corpus to
+     * @param attributes the names of the attributes of the tokens, the same
+     *        as the properties the matchers test
+     * @throws IOException if the temporary files cannot be created
+     */
+    public CorpusWriter(Path file, String... attributes) throws IOException {
+        Validate.notNull(file, "File must not be null");
+        Validate.notEmpty(attributes, "There should be at least one attribute");
+        this.file = file;
+        this.attributes = attributes.clone();
+
+        this.columnFiles = new Path[attributes.length];
+        this.columns = new Sink[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            Validate.notNull(attributes[i], "Attribute names must not be null");
+            dictionaries.add(new HashMap<String, Integer>());
+            columnFiles[i] = temporaryFile("column" + i);
+            columns[i] = new Sink(columnFiles[i]);
+        }
+
+        this.offsetsFile = temporaryFile("offsets");
+        this.offsets = new Sink(offsetsFile);
+        offsets.putLong(0);
+    }
+
+    private Path temporaryFile(String suffix) {
+        return file.resolveSibling(file.getFileName() + "." + suffix + ".tmp");
+    }
+
+    /**
+     * Adds a sentence to the corpus
+     * 
+     * @param values the values of each attribute for the tokens of the
+     *        sentence, in the order of the attributes
+     * @throws IOException if the sentence cannot be written
+     */
+    public void addSentence(String[]... values) throws IOException {
+        Validate.validState(!closed, "The writer is closed");
+        Validate.isTrue(values.length == attributes.length, "Expected %d attributes, got %d", attributes.length,
+                values.length);
+        int length = values[0].length;
+        Validate.isTrue(length <= MAX_SENTENCE_LENGTH, "The sentence is too long: %d tokens", length);
+        for (int i = 0; i < values.length; i++) {
+            Validate.isTrue(values[i].length == length, "The attribute %s has %d values, expected %d",
+                    attributes[i], values[i].length, length);
+            Validate.noNullElements(values[i], "The attribute %s has a null value", attributes[i]);
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            Map<String, Integer> dictionary = dictionaries.get(i);
+            for (String value : values[i]) {
+                Integer id = dictionary.get(value);
+                if (id == null) {
+                    id = dictionary.size();
+                    dictionary.put(value, id);
+                }
+                columns[i].putInt(id);
+            }
+        }
+
+        tokenCount = tokenCount + length;
+        sentenceCount++;
+        maxSentenceLength = Math.max(maxSentenceLength, length);
+        offsets.putLong(tokenCount);
+    }
+
+    /**
+     * Puts the corpus file together and removes the temporary files
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        offsets.close();
+        for (Sink column : columns) {
+            column.close();
+        }
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = header();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            append(out, offsetsFile);
+            for (Path columnFile : columnFiles) {
+                append(out, columnFile);
+            }
+        } finally {
+            Files.deleteIfExists(offsetsFile);
+            for (Path columnFile : columnFiles) {
+                Files.deleteIfExists(columnFile);
+            }
+        }
+    }
+
+    private ByteBuffer header() {
+        List<byte[]> strings = new ArrayList<byte[]>();
+        int length = 4 + 4 + 4 + 8 + 8 + 4 + 4;
+        for (int i = 0; i < attributes.length; i++) {
+            strings.add(attributes[i].getBytes(StandardCharsets.UTF_8));
+            String[] dictionary = dictionary(i);
+            strings.add(null);
+            for (String value : dictionary) {
+                strings.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        for (byte[] string : strings) {
+            length = length + 4 + (string == null ? 0 : string.length);
+        }
+        // the offsets are aligned to their size
+        length = (length + 7) & ~7;
+
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(length);
+        header.putLong(tokenCount);
+        header.putLong(sentenceCount);
+        header.putInt(maxSentenceLength);
+        header.putInt(attributes.length);
+
+        int next = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            putString(header, strings.get(next++));
+            next++;
+            header.putInt(dictionaries.get(i).size());
+            for (int j = 0; j < dictionaries.get(i).size(); j++) {
+                putString(header, strings.get(next++));
+            }
+        }
+
+        header.position(0);
+        return header;
+    }
+
+    private String[] dictionary(int attribute) {
+        Map<String, Integer> ids = dictionaries.get(attribute);
+        String[] dictionary = new String[ids.size()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            dictionary[entry.getValue()] = entry.getKey();
+        }
+        return dictionary;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        buffer.putInt(string.length);
+        buffer.put(string);
+    }
+
+    private static void append(FileChannel out, Path part) throws IOException {
+        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+            long size = in.size();
+            long done = 0;
+            while (done < size) {
+                done = done + in.transferTo(done, size - done, out);
+            }
+        }
+    }
+
+    /**
+     * Writes numbers to a file through a buffer
+     */
+    private static class Sink {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Sink(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            if (buffer.remaining() < 8) {
+                flush();
+            }
+            buffer.putLong(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+}
@@ -1,68 +1,86 @@
-package com.alexeygrigorev.rseq;
-
-abstract class DelegatingMatcher<E> extends ParentMatcher<E> {
-
-    private final Matcher<E> delegate;
-
-    public DelegatingMatcher(Matcher<E> delegate) {
-        this.delegate = delegate;
-    }
-
-    public abstract boolean match(E object);
-
-    public boolean delegateMatch(E e) {
-        return delegate.match(e);
-    }
-
-    public String delegateToString() {
-        return delegate.toString();
-    }
-
-    /**
-     * Tries to match with simplest possible matcher. Used to avoid wildcard
-     * matchers that can use the whole sequence when testing a lazy matchers
-     * 
-     * @param e object to be matched with
-     * @return <code>true</code> if the underlying matcher returns
-     *         <code>true</code>, <code>false</code> otherwise
-     * 
-     * @see ZeroOrMoreLazyMatcher
-     * @see OneOrMoreLazyMatcher
-     */
-    boolean unwrappingMatch(E e) {
-        if (delegate instanceof DelegatingMatcher) {
-            return ((DelegatingMatcher<E>) delegate).unwrappingMatch(e);
-        } else {
-            return delegate.match(e);
-        }
-    }
-
-    @Override
-    public void setContext(MatchingContext<E> context) {
-        super.setContext(context);
-        if (delegate instanceof ParentMatcher) {
-            ((ParentMatcher<E>) delegate).setContext(context);
-        }
-    }
-
-    @Override
-    void initialize(MatchingContext<E> context) {
-        if (delegate instanceof ParentMatcher) {
-            ((ParentMatcher<E>) delegate).initialize(context);
-        }
-    }
-
-    static <E> DelegatingMatcher<E> wrap(Matcher<E> matcher) {
-        return new DelegatingMatcher<E>(matcher) {
-            @Override
-            public boolean match(E object) {
-                return delegateMatch(object);
-            }
-
-            @Override
-            public String toString() {
-                return delegateToString();
-            }
-        };
-    }
-}
+package com.alexeygrigorev.rseq;
+
+abstract class DelegatingMatcher<E> extends ParentMatcher<E> {
+
+    private final Matcher<E> delegate;
+
+    public DelegatingMatcher(Matcher<E> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean match(E object) {
+        throw new UnsupportedOperationException(this + " can only be matched as a part of a pattern");
+    }
+
+    @Override
+    abstract boolean match(E object, MatchingContext<E> context);
+
+    boolean delegateMatch(E e, MatchingContext<E> context) {
+        if (delegate instanceof ParentMatcher) {
+            return ((ParentMatcher<E>) delegate).match(e, context);
+        } else {
+            return context.matchLeaf(delegate, e);
+        }
+    }
+
+    Matcher<E> delegate() {
+        return delegate;
+    }
+
+    void emitDelegate(NfaBuilder<Matcher<E>> nfa) {
+        if (delegate instanceof ParentMatcher) {
+            ((ParentMatcher<E>) delegate).emit(nfa);
+        } else {
+            nfa.leaf(delegate);
+        }
+    }
+
+    public String delegateToString() {
+        return delegate.toString();
+    }
+
+    /**
+     * Tries to match with simplest possible matcher. Used to avoid wildcard
+     * matchers that can use the whole sequence when testing a lazy matchers
+     * 
+     * @param e object to be matched with
+     * @param context of the current matching call
+     * @return <code>true</code> if the underlying matcher returns
+     *         <code>true</code>, <code>false</code> otherwise
+     * 
+     * @see ZeroOrMoreLazyMatcher
+     * @see OneOrMoreLazyMatcher
+     */
+    boolean unwrappingMatch(E e, MatchingContext<E> context) {
+        if (delegate instanceof DelegatingMatcher) {
+            return ((DelegatingMatcher<E>) delegate).unwrappingMatch(e, context);
+        } else {
+            return delegateMatch(e, context);
+        }
+    }
+
+    static <E> DelegatingMatcher<E> wrap(Matcher<E> matcher) {
+        return new DelegatingMatcher<E>(matcher) {
+            @Override
+            public boolean match(E object) {
+                return delegate().match(object);
+            }
+
+            @Override
+            boolean match(E object, MatchingContext<E> context) {
+                return delegateMatch(object, context);
+            }
+
+            @Override
+            void emit(NfaBuilder<Matcher<E>> nfa) {
+                emitDelegate(nfa);
+            }
+
+            @Override
+            public String toString() {
+                return delegateToString();
+            }
+        };
+    }
+}
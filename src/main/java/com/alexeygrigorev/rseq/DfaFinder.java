@@ -0,0 +1,123 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+/**
+ * The finder of the {@link Engine#DFA} engine. A forward {@link LazyDfa}
+ * finds where the leftmost match ends, and a reversed one finds where it
+ * starts. The {@link PikeVm} is run only for extracting the captures and when
+ * the DFA gives up
+ */
+class DfaFinder<E> extends NfaFinder<E> {
+
+    private static final int MAX_STATES = 1024;
+
+    private final NfaProgram reversed;
+
+    /** The DFAs are filled while searching, so each thread has its own pair */
+    private final ThreadLocal<LazyDfa[]> dfas = new ThreadLocal<LazyDfa[]>() {
+        @Override
+        protected LazyDfa[] initialValue() {
+            LazyDfa forward = new LazyDfa(program, false, MAX_STATES);
+            LazyDfa backward = new LazyDfa(reversed, true, MAX_STATES);
+            return new LazyDfa[] { forward, backward };
+        }
+    };
+
+    DfaFinder(List<ParentMatcher<E>> matchers) {
+        super(matchers);
+        NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(true, leaves);
+        emit(matchers, builder);
+        this.reversed = builder.build();
+    }
+
+    @Override
+    MatchCursor<E> matcher(List<E> sequence, final PikeVm.Input input) {
+        LazyDfa[] dfa = dfas.get();
+        dfa[0].reset();
+        dfa[1].reset();
+
+        return new SlotCursor<E>(program, sequence) {
+            private PikeVm vm;
+            private boolean gaveUp;
+
+            @Override
+            void reset(List<E> sequence) {
+                super.reset(resetInput(input, sequence));
+                gaveUp = false;
+                LazyDfa[] dfa = dfas.get();
+                dfa[0].reset();
+                dfa[1].reset();
+            }
+
+            @Override
+            boolean search(int from) {
+                int size = sequence.size();
+                if (from >= size) {
+                    return false;
+                }
+
+                int start = from;
+                int end = LazyDfa.GAVE_UP;
+
+                if (!gaveUp) {
+                    // the cursor may be moved to another thread between calls
+                    LazyDfa[] dfa = dfas.get();
+                    end = dfa[0].searchForward(input, from, size, startLimit);
+                    if (end == LazyDfa.NO_MATCH) {
+                        return false;
+                    }
+                    if (end != LazyDfa.GAVE_UP) {
+                        start = dfa[1].searchReverse(input, end, from);
+                    }
+                    gaveUp = end == LazyDfa.GAVE_UP || start == LazyDfa.GAVE_UP;
+                }
+
+                if (!gaveUp && !program.hasCaptures()) {
+                    found(start, end);
+                    return true;
+                }
+
+                if (vm == null) {
+                    vm = new PikeVm(program);
+                }
+                if (!vm.search(input, gaveUp ? from : start, size, startLimit)) {
+                    return false;
+                }
+                found(vm.matchSlots());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    int count(List<E> sequence, PikeVm.Input input) {
+
+        LazyDfa forward = dfas.get()[0];
+        forward.reset();
+
+        int size = sequence.size();
+        int from = 0;
+        int count = 0;
+        while (from < size) {
+            int end = forward.searchForward(input, from, size);
+            if (end == LazyDfa.NO_MATCH) {
+                return count;
+            }
+            if (end == LazyDfa.GAVE_UP) {
+                break;
+            }
+            count++;
+            from = end;
+        }
+
+        PikeVm vm = new PikeVm(program);
+        while (from < size && vm.search(input, from, size)) {
+            count++;
+            from = vm.matchSlots()[1];
+        }
+
+        return count;
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+import com.alexeygrigorev.rseq.ReflectionUtils.ValueExtractor;
+
+/**
+ * Matches the longest phrase of a dictionary that starts at the current
+ * element. The phrases are kept in a {@link PhraseTrie}, so the time to find a
+ * phrase depends only on its length, not on the number of phrases. The
+ * automata step through the same trie with {@link NfaProgram#TRIE}
+ * instructions
+ * 
+ * @see Matchers#dictionary(List)
+ * @see BeanMatchers#dictionary(Class, String, List)
+ */
+class DictionaryMatcher<E> extends ParentMatcher<E> {
+
+    private final PhraseTrie trie = new PhraseTrie();
+    private final List<List<?>> phrases = new ArrayList<List<?>>();
+    private final ValueExtractor<E, ?> keys;
+    private final String propertyName;
+
+    /** the trie of the reversed phrases, built for the reversed programs */
+    private PhraseTrie reversed;
+    /** the leaf of the trie instructions, it extracts the keys of the elements */
+    private final Keys keyLeaf = new Keys();
+
+    /**
+     * @param phrases of the dictionary
+     * @param keys extracts the keys from the elements, <code>null</code> if
+     *        the elements themselves are the keys
+     * @param propertyName the name of the property with the keys, if any
+     */
+    DictionaryMatcher(List<? extends List<?>> phrases, ValueExtractor<E, ?> keys, String propertyName) {
+        Validate.notEmpty(phrases, "Dictionary must not be empty");
+        this.keys = keys;
+        this.propertyName = propertyName;
+
+        for (List<?> phrase : phrases) {
+            Validate.notEmpty(phrase, "Phrases must not be empty");
+            if (trie.add(phrase) == this.phrases.size()) {
+                this.phrases.add(new ArrayList<Object>(phrase));
+            }
+        }
+    }
+
+    @Override
+    public boolean match(E object) {
+        throw new UnsupportedOperationException(this + " can only be matched as a part of a pattern");
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        int node = trie.child(PhraseTrie.ROOT, key(context.element(object)));
+        if (node == PhraseTrie.NONE) {
+            return false;
+        }
+
+        SequenceCursor<E> matchCursor = context.getCurrentMatchCursor();
+        int consumed = 1;
+        int longest = trie.phraseId(node) != PhraseTrie.NONE ? 1 : 0;
+        while (matchCursor.hasNext() && !trie.children(node).isEmpty()) {
+            node = trie.child(node, key(context.element(matchCursor.next())));
+            consumed++;
+            if (node == PhraseTrie.NONE) {
+                break;
+            }
+            if (trie.phraseId(node) != PhraseTrie.NONE) {
+                longest = consumed;
+            }
+        }
+
+        // give back the elements after the longest phrase, or all but the
+        // first one when there is no phrase
+        int keep = Math.max(longest, 1);
+        for (int i = keep; i < consumed; i++) {
+            matchCursor.back();
+        }
+
+        return longest > 0;
+    }
+
+    /**
+     * Emits one trie instruction for each node of the trie, so an element is
+     * matched with one lookup, however large the dictionary is. Longer phrases
+     * are preferred to shorter ones. In a reversed program the trie of the
+     * reversed phrases is emitted
+     */
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        PhraseTrie trie = nfa.isReversed() ? reversedTrie() : this.trie;
+        int id = nfa.trie(keyLeaf, trie);
+        int[] pcs = new int[trie.nodeCount()];
+        List<Integer> exits = new ArrayList<Integer>();
+
+        for (int node = 0; node < pcs.length; node++) {
+            pcs[node] = nfa.pc();
+            boolean terminal = trie.phraseId(node) != PhraseTrie.NONE;
+            boolean inner = !trie.children(node).isEmpty();
+            if (terminal && inner) {
+                int split = nfa.split();
+                nfa.patch(split, split + 1, split + 2);
+                nfa.step(id, node);
+                exits.add(nfa.jump());
+            } else if (inner) {
+                nfa.step(id, node);
+            } else {
+                exits.add(nfa.jump());
+            }
+        }
+        nfa.patchTrie(id, pcs);
+
+        int end = nfa.pc();
+        for (int exit : exits) {
+            nfa.patchJump(exit, end);
+        }
+    }
+
+    private synchronized PhraseTrie reversedTrie() {
+        if (reversed == null) {
+            reversed = new PhraseTrie();
+            for (List<?> phrase : phrases) {
+                List<Object> keys = new ArrayList<Object>(phrase);
+                Collections.reverse(keys);
+                reversed.add(keys);
+            }
+        }
+        return reversed;
+    }
+
+    /**
+     * @param keys the leaf of a trie instruction of a dictionary
+     * @return the key of the element in the dictionary
+     */
+    static <E> Object key(Matcher<E> keys, E element) {
+        @SuppressWarnings("unchecked")
+        DictionaryMatcher<E>.Keys leaf = (DictionaryMatcher<E>.Keys) keys;
+        return leaf.get(element);
+    }
+
+    private Object key(E element) {
+        if (keys == null) {
+            return element;
+        }
+        return keys.get(element);
+    }
+
+    @Override
+    public XMatcher<E> captureAs(String name) {
+        return new CapturingGroupMatcher<>(name, this);
+    }
+
+    /**
+     * The leaf the trie instructions extract the keys with. As a matcher, it
+     * matches the elements that start a phrase
+     */
+    private class Keys extends ParentMatcher<E> {
+        Object get(E element) {
+            return key(element);
+        }
+
+        @Override
+        public boolean match(E object) {
+            return trie.child(PhraseTrie.ROOT, key(object)) != PhraseTrie.NONE;
+        }
+
+        @Override
+        public String toString() {
+            return "keys of " + DictionaryMatcher.this;
+        }
+    }
+
+    @Override
+    public String toString() {
+        String prefix = propertyName == null ? "" : propertyName + " ";
+        return prefix + "in dictionary of " + phrases.size() + " phrases";
+    }
+
+}
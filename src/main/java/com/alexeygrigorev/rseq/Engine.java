@@ -0,0 +1,71 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+/**
+ * Engines that can be used for finding the matches of a {@link Pattern}, see
+ * {@link Pattern#withEngine(Engine)}
+ */
+public enum Engine {
+
+    /**
+     * The default engine. It tries to match the pattern starting from each
+     * position of the sequence, running the matchers one after another.
+     * Quantifiers never give back the elements they consumed: greedy ones take
+     * as many elements as they can, lazy ones stop as soon as the next matcher
+     * of the pattern matches. <br>
+     * <br>
+     * 
+     * Patterns of fixed length (without quantifiers and optional matchers) of
+     * up to 64 elements are matched with the bit-parallel Shift-And algorithm
+     * instead, in a single pass over the sequence
+     */
+    SEQUENTIAL {
+        @Override
+        <E> Finder<E> finder(List<ParentMatcher<E>> matchers, Evaluation evaluation) {
+            ShiftAndFinder<E> shiftAnd = ShiftAndFinder.create(matchers);
+            if (shiftAnd != null) {
+                return shiftAnd;
+            }
+            return new SequentialFinder<E>(matchers, evaluation);
+        }
+    },
+
+    /**
+     * Compiles the pattern to a Thompson NFA and simulates it in one pass over
+     * the sequence. It finds the same matches as a backtracking regular
+     * expression engine would (e.g. <code>x+ x</code> matches
+     * <code>x x x</code>), but a search never takes more than O(n * m) steps
+     * for a sequence of n elements and a pattern of m matchers, and each leaf
+     * matcher is evaluated at most once per element during a search
+     */
+    NFA {
+        @Override
+        <E> Finder<E> finder(List<ParentMatcher<E>> matchers, Evaluation evaluation) {
+            return new NfaFinder<E>(matchers);
+        }
+    },
+
+    /**
+     * Finds the same matches as {@link #NFA}, but builds a DFA from the NFA
+     * lazily during the search and caches its states, so each element is
+     * processed with one table lookup once the DFA is warm. The captured
+     * variables and groups are extracted by the NFA only for the found
+     * matches. Best for long sequences and patterns without captures. If the
+     * DFA grows too big, the search falls back to the NFA simulation
+     */
+    DFA {
+        @Override
+        <E> Finder<E> finder(List<ParentMatcher<E>> matchers, Evaluation evaluation) {
+            return new DfaFinder<E>(matchers);
+        }
+    };
+
+    /**
+     * @param matchers the compiled matchers of a pattern
+     * @param evaluation of the leaf matchers
+     * @return the finder for the pattern
+     */
+    abstract <E> Finder<E> finder(List<ParentMatcher<E>> matchers, Evaluation evaluation);
+
+}
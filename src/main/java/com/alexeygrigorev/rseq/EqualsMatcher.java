@@ -0,0 +1,46 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Objects;
+
+/**
+ * Matches objects equal to the given value, see {@link Matchers#eq(Object)}.
+ * Knowing the value lets a pattern of such matchers be scanned without
+ * testing each position, see {@link HorspoolFinder}. Matchers with equal
+ * values are equal, so a {@link PatternSet} evaluates them only once
+ */
+class EqualsMatcher<E> extends ParentMatcher<E> {
+
+    private final E value;
+
+    public EqualsMatcher(E value) {
+        this.value = value;
+    }
+
+    @Override
+    public boolean match(E object) {
+        return Objects.equals(object, value);
+    }
+
+    E value() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof EqualsMatcher)) {
+            return false;
+        }
+        return Objects.equals(value, ((EqualsMatcher<?>) obj).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return "== " + value;
+    }
+
+}
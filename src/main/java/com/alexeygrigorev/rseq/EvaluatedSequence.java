@@ -0,0 +1,116 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+import com.alexeygrigorev.rseq.ColumnarSequence.ColumnTest;
+
+/**
+ * A sequence together with the outcomes of leaf matchers evaluated over the
+ * whole of it. Each leaf matcher is evaluated column-wise, in one tight loop
+ * over all the elements, when some pattern needs it for the first time, and
+ * the outcomes are kept as a bitset. Patterns that share the same leaf matcher
+ * instances reuse these bitsets, so an expensive matcher is evaluated only
+ * once for each element even when the sequence is matched against many
+ * patterns. <br>
+ * <br>
+ * 
+ * The instances can be used by several threads at the same time
+ * 
+ * @see Pattern#find(EvaluatedSequence)
+ * @see Evaluation#COLUMNAR
+ */
+public class EvaluatedSequence<E> {
+
+    private final List<E> sequence;
+    private final Map<Matcher<E>, long[]> columns = new IdentityHashMap<Matcher<E>, long[]>();
+
+    /**
+     * @param sequence to be matched, should not be modified while in use
+     */
+    public EvaluatedSequence(List<E> sequence) {
+        Validate.notNull(sequence, "Sequence must not be null");
+        this.sequence = NfaFinder.randomAccess(sequence);
+    }
+
+    public List<E> getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the outcomes of the matcher for all elements of the sequence,
+     *         bit <code>i % 64</code> of word <code>i / 64</code> is set if
+     *         element <code>i</code> matches
+     */
+    long[] column(Matcher<E> leaf) {
+        synchronized (columns) {
+            long[] column = columns.get(leaf);
+            if (column != null) {
+                return column;
+            }
+        }
+
+        // evaluated outside of the lock, so different leaves can be evaluated
+        // by different threads at the same time
+        long[] column = evaluate(leaf, sequence);
+
+        synchronized (columns) {
+            long[] existing = columns.get(leaf);
+            if (existing != null) {
+                return existing;
+            }
+            columns.put(leaf, column);
+            return column;
+        }
+    }
+
+    private static <E> long[] evaluate(Matcher<E> leaf, List<E> sequence) {
+        ColumnTest[] tests = ColumnarSequence.bind(Collections.singletonList(leaf), sequence);
+        if (tests != null && tests[0] != null) {
+            return evaluate(tests[0], sequence.size());
+        }
+
+        int size = sequence.size();
+        long[] column = new long[(size + 63) >>> 6];
+
+        for (int word = 0; word < column.length; word++) {
+            int from = word << 6;
+            int to = Math.min(from + 64, size);
+            long bits = 0;
+            for (int i = from; i < to; i++) {
+                if (leaf.match(sequence.get(i))) {
+                    bits = bits | (1L << i);
+                }
+            }
+            column[word] = bits;
+        }
+
+        return column;
+    }
+
+    /**
+     * Evaluates the leaf over its column of a {@link ColumnarSequence}
+     */
+    private static long[] evaluate(ColumnTest test, int size) {
+        long[] column = new long[(size + 63) >>> 6];
+
+        for (int word = 0; word < column.length; word++) {
+            int from = word << 6;
+            int to = Math.min(from + 64, size);
+            long bits = 0;
+            for (int i = from; i < to; i++) {
+                if (test.test(i)) {
+                    bits = bits | (1L << i);
+                }
+            }
+            column[word] = bits;
+        }
+
+        return column;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * Strategies for evaluating the leaf matchers of a {@link Pattern}, i.e. the
+ * matchers that test single elements, like {@link Matchers#eq(Object)} or
+ * {@link BeanMatchers#regex(Class, String, String)}. See
+ * {@link Pattern#withEvaluation(Evaluation)}
+ */
+public enum Evaluation {
+
+    /**
+     * The default strategy: a leaf matcher is called each time the engine
+     * needs it. With the {@link Engine#SEQUENTIAL} engine the same element can
+     * be tested by the same matcher once for each start position that reaches
+     * it. Good for cheap matchers
+     */
+    DIRECT,
+
+    /**
+     * Each distinct leaf matcher is evaluated at most once per position of
+     * the sequence during a call, the outcomes are remembered in bitsets. Good
+     * for expensive matchers, e.g. ones using reflection or regular
+     * expressions. The {@link Engine#NFA} and {@link Engine#DFA} engines never
+     * test an element twice anyway
+     */
+    MEMOIZED,
+
+    /**
+     * Before matching, each leaf matcher is evaluated over the whole sequence
+     * in one loop, and the outcomes are kept as bitsets. Then the engine only
+     * looks up bits. Good for batch jobs with expensive matchers that test
+     * most of the elements anyway. To reuse the outcomes between several
+     * patterns, use {@link Pattern#find(EvaluatedSequence)}
+     */
+    COLUMNAR;
+
+}
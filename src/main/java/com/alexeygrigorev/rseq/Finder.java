@@ -0,0 +1,63 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+/**
+ * The part of a {@link Pattern} that actually looks for matches in a sequence.
+ * Each {@link Engine} provides its own implementation. Finders are created
+ * once per pattern and must not keep any per-call state
+ */
+interface Finder<E> {
+
+    /**
+     * Finds all non-overlapping matches in the sequence, from left to right
+     * 
+     * @param sequence to be matched
+     * @return list of found matches
+     */
+    List<Match<E>> find(List<E> sequence);
+
+    /**
+     * Counts the matches that {@link #find(List)} would return
+     * 
+     * @param sequence to be matched
+     * @return the number of found matches
+     */
+    int count(List<E> sequence);
+
+    /**
+     * Finds all non-overlapping matches in the sequence, taking the outcomes
+     * of the leaf matchers from its columns
+     * 
+     * @param sequence to be matched
+     * @return list of found matches
+     */
+    List<Match<E>> find(EvaluatedSequence<E> sequence);
+
+    /**
+     * Counts the matches that {@link #find(EvaluatedSequence)} would return
+     * 
+     * @param sequence to be matched
+     * @return the number of found matches
+     */
+    int count(EvaluatedSequence<E> sequence);
+
+    /**
+     * Creates the cursor that finds the same matches as {@link #find(List)}
+     * one by one
+     * 
+     * @param sequence to be matched
+     * @return the cursor positioned before the first match
+     */
+    MatchCursor<E> matcher(List<E> sequence);
+
+    /**
+     * Creates the cursor that finds the same matches as
+     * {@link #find(EvaluatedSequence)} one by one
+     * 
+     * @param sequence to be matched
+     * @return the cursor positioned before the first match
+     */
+    MatchCursor<E> matcher(EvaluatedSequence<E> sequence);
+
+}
@@ -1,84 +1,75 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.Iterator;
-import java.util.List;
-
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.Validate;
-
-class GroupMatcher<E> extends ParentMatcher<E> {
-
-    private List<ParentMatcher<E>> matchers;
-
-    GroupMatcher(List<ParentMatcher<E>> matchers) {
-        Validate.isTrue(!matchers.isEmpty(), "There should be at least one matcher in the group");
-        this.matchers = matchers;
-    }
-
-    @Override
-    public boolean match(E object) {
-        Iterator<ParentMatcher<E>> it = matchers.iterator();
-        ParentMatcher<E> matcher = it.next();
-        if (!matcher.match(object)) {
-            return false;
-        }
-
-        Iterator<E> matchIterator = context().getCurrentMatchIterator();
-
-        while (it.hasNext()) {
-            matcher = it.next();
-            if (!matchIterator.hasNext()) {
-                if (matcher.isOptional()) {
-                    continue;
-                }
-                return false;
-            }
-            E next = matchIterator.next();
-            if (!matcher.match(next)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    @Override
-    void setContext(MatchingContext<E> context) {
-        super.setContext(context);
-        for (ParentMatcher<E> matcher : matchers) {
-            matcher.setContext(context);
-        }
-    }
-
-    @Override
-    int register(MatchingContext<E> context) {
-        Iterator<ParentMatcher<E>> it = matchers.iterator();
-
-        int index = it.next().register(context);
-        this.index = index;
-
-        while (it.hasNext()) {
-            it.next().register(context);
-        }
-
-        return index;
-    }
-
-    @Override
-    void initialize(MatchingContext<E> context) {
-        for (ParentMatcher<E> matcher : matchers) {
-            matcher.initialize(context);
-        }
-    }
-
-    @Override
-    public XMatcher<E> captureAs(String name) {
-        return new CapturingGroupMatcher<>(name, this);
-    }
-
-    @Override
-    public String toString() {
-        return "(" + StringUtils.join(matchers, ", ") + ")";
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+class GroupMatcher<E> extends ParentMatcher<E> {
+
+    private final List<ParentMatcher<E>> matchers;
+
+    GroupMatcher(List<ParentMatcher<E>> matchers) {
+        Validate.isTrue(!matchers.isEmpty(), "There should be at least one matcher in the group");
+        this.matchers = matchers;
+    }
+
+    @Override
+    public boolean match(E object) {
+        throw new UnsupportedOperationException(this + " can only be matched as a part of a pattern");
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        if (!matchers.get(0).match(object, context)) {
+            return false;
+        }
+
+        SequenceCursor<E> matchCursor = context.getCurrentMatchCursor();
+
+        for (int i = 1; i < matchers.size(); i++) {
+            ParentMatcher<E> matcher = matchers.get(i);
+            if (!matchCursor.hasNext()) {
+                if (matcher.isOptional()) {
+                    continue;
+                }
+                return false;
+            }
+            E next = matchCursor.next();
+            if (!matcher.match(next, context)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    ParentMatcher<E> compile(List<ParentMatcher<E>> program, Captures captures) {
+        List<ParentMatcher<E>> compiled = new ArrayList<ParentMatcher<E>>(matchers.size());
+        for (ParentMatcher<E> matcher : matchers) {
+            compiled.add(matcher.compile(program, captures));
+        }
+        return new GroupMatcher<E>(compiled);
+    }
+
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        for (int i = 0; i < matchers.size(); i++) {
+            int index = nfa.isReversed() ? matchers.size() - 1 - i : i;
+            matchers.get(index).emit(nfa);
+        }
+    }
+
+    @Override
+    public XMatcher<E> captureAs(String name) {
+        return new CapturingGroupMatcher<>(name, this);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + StringUtils.join(matchers, ", ") + ")";
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The finder for patterns that consist only of {@link Matchers#eq(Object)}
+ * literals, like phrases of a gazetteer. It uses the Boyer-Moore-Horspool
+ * algorithm: the pattern is compared with the sequence from right to left,
+ * and on a mismatch the window jumps ahead by up to the length of the pattern,
+ * depending on the last element of the window. So most of the elements of the
+ * sequence are never compared when the phrase is rare
+ */
+class HorspoolFinder<E> extends ShiftAndFinder<E> {
+
+    private final Object[] literals;
+    /** for each literal, how far the window can jump when it is last */
+    private final Map<Object, Integer> shifts = new HashMap<Object, Integer>();
+
+    HorspoolFinder(NfaProgram program, List<Matcher<E>> leaves, int[] leafAt, int[] topLevelStarts) {
+        super(program, leaves, leafAt, topLevelStarts);
+
+        this.literals = new Object[length];
+        for (int i = 0; i < length; i++) {
+            literals[i] = ((EqualsMatcher<E>) leaves.get(leafAt[i])).value();
+        }
+        for (int i = 0; i < length - 1; i++) {
+            shifts.put(literals[i], length - 1 - i);
+        }
+    }
+
+    static <E> boolean isApplicable(List<Matcher<E>> leaves) {
+        for (Matcher<E> leaf : leaves) {
+            if (!(leaf instanceof EqualsMatcher)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Match<E>> find(EvaluatedSequence<E> sequence) {
+        // comparing the literals is cheaper than evaluating the columns
+        return find(sequence.getSequence());
+    }
+
+    @Override
+    public MatchCursor<E> matcher(EvaluatedSequence<E> sequence) {
+        return matcher(sequence.getSequence());
+    }
+
+    @Override
+    public int count(EvaluatedSequence<E> sequence) {
+        return count(sequence.getSequence());
+    }
+
+    /**
+     * Runs the Horspool search from the given position, the input is not
+     * used
+     */
+    @Override
+    int next(List<E> sequence, PikeVm.Input input, int from, int to) {
+        int last = length - 1;
+
+        int start = from;
+        while (start + last < to) {
+            int i = last;
+            while (i >= 0 && Objects.equals(sequence.get(start + i), literals[i])) {
+                i--;
+            }
+            if (i < 0) {
+                return start + length;
+            }
+
+            Integer shift = shifts.get(sequence.get(start + last));
+            start = start + (shift == null ? length : shift);
+        }
+
+        return -1;
+    }
+
+}
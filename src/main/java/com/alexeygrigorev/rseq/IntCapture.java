@@ -0,0 +1,58 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * Captures what an int matcher matches: a single value as a variable, or a
+ * subsequence as a group, see {@link XIntMatcher#captureAs(String)}
+ */
+class IntCapture extends XIntMatcher {
+
+    private final String name;
+    private final XIntMatcher delegate;
+
+    IntCapture(String name, XIntMatcher delegate) {
+        this.name = name;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean match(int value) {
+        return delegate.match(value);
+    }
+
+    @Override
+    void emit(NfaBuilder<IntMatcher> nfa) {
+        int slot = delegate.isLeaf() ? nfa.variable(name) : nfa.group(name);
+        nfa.save(slot);
+        delegate.emit(nfa);
+        nfa.save(slot + 1);
+    }
+
+    @Override
+    XIntMatcher atEnd() {
+        XIntMatcher last = delegate.atEnd();
+        if (last == delegate) {
+            return this;
+        }
+        return new IntCapture(name, last);
+    }
+
+    @Override
+    XIntMatcher greedy() {
+        XIntMatcher greedy = delegate.greedy();
+        if (greedy == delegate) {
+            return this;
+        }
+        return new IntCapture(name, greedy);
+    }
+
+    @Override
+    boolean isLeaf() {
+        return delegate.isLeaf();
+    }
+
+    @Override
+    public String toString() {
+        return name + "={" + delegate + "}";
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Matches int matchers one after another, see
+ * {@link IntMatchers#group(IntMatcher...)}
+ */
+class IntGroup extends XIntMatcher {
+
+    private final XIntMatcher[] matchers;
+
+    IntGroup(XIntMatcher[] matchers) {
+        Validate.isTrue(matchers.length > 0, "There should be at least one matcher in the group");
+        this.matchers = matchers;
+    }
+
+    @Override
+    public boolean match(int value) {
+        throw new UnsupportedOperationException(this + " can only be matched as a part of a pattern");
+    }
+
+    @Override
+    void emit(NfaBuilder<IntMatcher> nfa) {
+        for (int i = 0; i < matchers.length; i++) {
+            int index = nfa.isReversed() ? matchers.length - 1 - i : i;
+            matchers[index].emit(nfa);
+        }
+    }
+
+    @Override
+    XIntMatcher atEnd() {
+        XIntMatcher[] copy = Arrays.copyOf(matchers, matchers.length);
+        copy[copy.length - 1] = copy[copy.length - 1].atEnd();
+        return new IntGroup(copy);
+    }
+
+    @Override
+    XIntMatcher greedy() {
+        XIntMatcher[] copy = new XIntMatcher[matchers.length];
+        for (int i = 0; i < matchers.length; i++) {
+            copy[i] = matchers[i].greedy();
+        }
+        return new IntGroup(copy);
+    }
+
+    @Override
+    boolean isLeaf() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + StringUtils.join(matchers, ", ") + ")";
+    }
+
+}
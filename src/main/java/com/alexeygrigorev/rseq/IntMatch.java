@@ -0,0 +1,105 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+
+/**
+ * A match of an {@link IntPattern} in an <code>int[]</code> sequence. Like
+ * {@link Match}, it keeps the sequence and the positions of the match and of
+ * its captures in it, so the sequence must not be modified while its matches
+ * are in use. The positions are indexes in the whole array, also when only a
+ * slice of it is matched
+ */
+public class IntMatch {
+
+    private final int[] sequence;
+    /** the captures of the pattern, shared by all its matches */
+    private final Captures captures;
+    /** the bounds of the match and of its captures, as in {@link Match} */
+    private final int[] slots;
+
+    IntMatch(int[] sequence, int[] slots, Captures captures) {
+        this.sequence = sequence;
+        this.slots = slots;
+        this.captures = captures;
+    }
+
+    /**
+     * @return the index of the first matched value in the sequence
+     */
+    public int matchedFrom() {
+        return slots[0];
+    }
+
+    /**
+     * @return the index after the last matched value in the sequence
+     */
+    public int matchedTo() {
+        return slots[1];
+    }
+
+    /**
+     * @return the number of matched values
+     */
+    public int length() {
+        return slots[1] - slots[0];
+    }
+
+    /**
+     * @return a copy of the matched values
+     */
+    public int[] getMatchedSubsequence() {
+        return Arrays.copyOfRange(sequence, slots[0], slots[1]);
+    }
+
+    /**
+     * @param name of the variable, as given to
+     *        {@link XIntMatcher#captureAs(String)}
+     * @param defaultValue to return if the variable did not capture anything
+     * @return the value captured by the variable
+     */
+    public int getVariable(String name, int defaultValue) {
+        int slot = captures.variable(name);
+        if (slot < 0 || !captures.isCaptured(slots, slot)) {
+            return defaultValue;
+        }
+        return sequence[slots[2 * slot + 2]];
+    }
+
+    /**
+     * @param name of the group, as given to
+     *        {@link XIntMatcher#captureAs(String)}
+     * @return a copy of the values captured by the group, or <code>null</code>
+     *         if it did not capture anything
+     */
+    public int[] getCapturedGroup(String name) {
+        int slot = captures.group(name);
+        if (slot < 0 || !captures.isCaptured(slots, slot)) {
+            return null;
+        }
+        return Arrays.copyOfRange(sequence, slots[2 * slot + 2], slots[2 * slot + 3]);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IntMatch)) {
+            return false;
+        }
+        IntMatch other = (IntMatch) obj;
+        return sequence == other.sequence && Arrays.equals(slots, other.slots);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(slots);
+    }
+
+    @Override
+    public String toString() {
+        return "IntMatch [matchedFrom=" + matchedFrom() + ", match=" + Arrays.toString(getMatchedSubsequence())
+                + "]";
+    }
+
+}
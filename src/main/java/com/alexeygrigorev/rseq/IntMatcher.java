@@ -0,0 +1,22 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * Tests if an <code>int</code> satisfies user-defined criteria, the
+ * primitive counterpart of {@link Matcher} for sequences of token ids. Some
+ * pre-defined matchers can be found in {@link IntMatchers}
+ * 
+ * @see IntPattern
+ */
+public interface IntMatcher {
+
+    /**
+     * Must return <code>true</code> if the value satisfies some user-defined
+     * criteria
+     * 
+     * @param value to test
+     * @return <code>true</code> if the match is successful, <code>false</code>
+     *         otherwise
+     */
+    boolean match(int value);
+
+}
@@ -0,0 +1,251 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The counterpart of {@link Matchers} for the sequences of <code>int</code>
+ * values, e.g. dictionary-encoded tokens. The values are tested as they are,
+ * without boxing
+ * 
+ * <br><br>
+ * For readability it might be better to <code>import static</code> the methods
+ * of this class.
+ * 
+ * @see IntPattern
+ * @see XIntMatcher
+ */
+public class IntMatchers {
+
+    private IntMatchers() {
+    }
+
+    private static final XIntMatcher ANYTHING_MATCHER = new XIntMatcher() {
+        @Override
+        public boolean match(int value) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return ".";
+        }
+    };
+
+    /**
+     * Produces a matcher that matches any value
+     * 
+     * @return the "." matcher
+     */
+    public static XIntMatcher anything() {
+        return ANYTHING_MATCHER;
+    }
+
+    /**
+     * Wraps a user-defined {@link IntMatcher}, e.g. a lambda, so that it has
+     * the same fluent interface as other {@link XIntMatcher} classes
+     * 
+     * @param matcher to wrap
+     * @return the same matcher, but wrapped into {@link XIntMatcher}
+     */
+    public static XIntMatcher x(final IntMatcher matcher) {
+        if (matcher instanceof XIntMatcher) {
+            return (XIntMatcher) matcher;
+        }
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return matcher.match(value);
+            }
+
+            @Override
+            public String toString() {
+                return matcher.toString();
+            }
+        };
+    }
+
+    /**
+     * @param other value to compare with
+     * @return a matcher that matches the given value
+     */
+    public static XIntMatcher eq(final int other) {
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return value == other;
+            }
+
+            @Override
+            public String toString() {
+                return "== " + other;
+            }
+        };
+    }
+
+    /**
+     * Produces a matcher that checks if the value is one of the given ones
+     * 
+     * @param values to be tested with
+     * @return the IN matcher
+     */
+    public static XIntMatcher in(int... values) {
+        Validate.notNull(values, "Values must not be null");
+        final int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return Arrays.binarySearch(sorted, value) >= 0;
+            }
+
+            @Override
+            public String toString() {
+                return "in " + Arrays.toString(sorted);
+            }
+        };
+    }
+
+    /**
+     * Produces a matcher that checks if the value is in the range, e.g. one
+     * of the ids of a part of speech
+     * 
+     * @param from the smallest matched value
+     * @param to the largest matched value
+     * @return the range matcher
+     */
+    public static XIntMatcher range(final int from, final int to) {
+        Validate.isTrue(from <= to, "The range from %d to %d is empty", from, to);
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return value >= from && value <= to;
+            }
+
+            @Override
+            public String toString() {
+                return "in [" + from + ", " + to + "]";
+            }
+        };
+    }
+
+    /**
+     * Combines two matchers by using the OR test
+     * 
+     * @param a first matcher
+     * @param b second matcher
+     * @return a matcher that matches a value if at least one of the matchers
+     *         does
+     */
+    public static XIntMatcher or(final IntMatcher a, final IntMatcher b) {
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return a.match(value) || b.match(value);
+            }
+
+            @Override
+            public String toString() {
+                return a.toString() + " or " + b.toString();
+            }
+        };
+    }
+
+    /**
+     * Combines two matchers by using the AND test
+     * 
+     * @param a first matcher
+     * @param b second matcher
+     * @return a matcher that matches a value if both the matchers do
+     */
+    public static XIntMatcher and(final IntMatcher a, final IntMatcher b) {
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return a.match(value) && b.match(value);
+            }
+
+            @Override
+            public String toString() {
+                return a.toString() + " and " + b.toString();
+            }
+        };
+    }
+
+    /**
+     * Produces a matcher that inverts the result of the provided matcher
+     * 
+     * @param matcher the matcher to invert
+     * @return NOT matcher
+     */
+    public static XIntMatcher not(final IntMatcher matcher) {
+        return new XIntMatcher() {
+            @Override
+            public boolean match(int value) {
+                return !matcher.match(value);
+            }
+
+            @Override
+            public String toString() {
+                return "not [" + matcher.toString() + "]";
+            }
+        };
+    }
+
+    /**
+     * Groups matchers into a subsequence
+     * 
+     * @param matchers to be grouped
+     * @return matcher that matches against a group of values
+     */
+    public static XIntMatcher group(IntMatcher... matchers) {
+        XIntMatcher[] wrapped = new XIntMatcher[matchers.length];
+        for (int i = 0; i < matchers.length; i++) {
+            wrapped[i] = x(matchers[i]);
+        }
+        return new IntGroup(wrapped);
+    }
+
+    /**
+     * Produces a capturing matcher. A matcher of a single value is captured
+     * as a variable, see {@link IntMatch#getVariable(String, int)}, and
+     * groups and quantifiers are captured as groups, see
+     * {@link IntMatch#getCapturedGroup(String)}
+     * 
+     * @param matcher the basic matcher
+     * @param name of the capture
+     * @return a capturing matcher
+     */
+    public static XIntMatcher capture(IntMatcher matcher, String name) {
+        return new IntCapture(name, x(matcher));
+    }
+
+    /**
+     * Produces an optional matcher - a matcher that may or may not match the
+     * value in the sequence
+     * 
+     * @param matcher that may be optional
+     * @return the "?" matcher
+     */
+    public static XIntMatcher optional(IntMatcher matcher) {
+        return new IntQuantifier(x(matcher), IntQuantifier.OPTIONAL, true);
+    }
+
+    public static XIntMatcher oneOrMoreGreedy(IntMatcher matcher) {
+        return new IntQuantifier(x(matcher), IntQuantifier.ONE_OR_MORE, true);
+    }
+
+    public static XIntMatcher zeroOrMoreGreedy(IntMatcher matcher) {
+        return new IntQuantifier(x(matcher), IntQuantifier.ZERO_OR_MORE, true);
+    }
+
+    public static XIntMatcher oneOrMore(IntMatcher matcher) {
+        return new IntQuantifier(x(matcher), IntQuantifier.ONE_OR_MORE, false);
+    }
+
+    public static XIntMatcher zeroOrMore(IntMatcher matcher) {
+        return new IntQuantifier(x(matcher), IntQuantifier.ZERO_OR_MORE, false);
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A pattern over <code>int[]</code> sequences, e.g. of dictionary-encoded
+ * token ids. It is the primitive counterpart of {@link Pattern}: the values
+ * are passed to the {@link IntMatcher}s as they are, without boxing them into
+ * a list.<br>
+ * <br>
+ * 
+ * The pattern is compiled to the same {@link NfaProgram} as the
+ * {@link Engine#DFA} engine uses, and it finds the same leftmost-first
+ * matches: a lazy DFA finds the bounds of each match, and the NFA simulation
+ * is run only to extract the captures. Like {@link Pattern}, it is immutable
+ * and can be used by several threads at the same time
+ * 
+ * <pre>
+ * IntPattern pattern = IntPattern.create(eq(DET), range(ADJ_FROM, ADJ_TO).zeroOrMore(), eq(NOUN).captureAs(&quot;noun&quot;));
+ * for (IntMatch match : pattern.find(posIds)) {
+ *     int noun = tokenIds[match.matchedTo() - 1];
+ * }
+ * </pre>
+ * 
+ * @see IntMatchers
+ */
+public class IntPattern {
+
+    private static final int MAX_STATES = 1024;
+
+    private final XIntMatcher[] matchers;
+    private final IntMatcher[] leaves;
+    private final NfaProgram program;
+    private final NfaProgram reversed;
+
+    /** The DFAs are filled while searching, so each thread has its own */
+    private final ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(Searcher::new);
+
+    private IntPattern(XIntMatcher[] matchers) {
+        this.matchers = matchers;
+
+        NfaBuilder<IntMatcher> builder = new NfaBuilder<IntMatcher>(false);
+        for (XIntMatcher matcher : matchers) {
+            matcher.emit(builder);
+        }
+        this.program = builder.build();
+        List<IntMatcher> leafList = builder.leaves();
+        this.leaves = leafList.toArray(new IntMatcher[0]);
+
+        NfaBuilder<IntMatcher> reversedBuilder = new NfaBuilder<IntMatcher>(true, leafList);
+        for (int i = matchers.length - 1; i >= 0; i--) {
+            matchers[i].emit(reversedBuilder);
+        }
+        this.reversed = reversedBuilder.build();
+    }
+
+    /**
+     * Creates a pattern from the matchers
+     * 
+     * @param matchers to be matched one after another
+     * @return the pattern
+     */
+    public static IntPattern create(IntMatcher... matchers) {
+        Validate.notEmpty(matchers, "There should be at least one matcher in the pattern");
+        XIntMatcher[] wrapped = new XIntMatcher[matchers.length];
+        for (int i = 0; i < matchers.length; i++) {
+            wrapped[i] = IntMatchers.x(matchers[i]);
+        }
+        wrapped[wrapped.length - 1] = wrapped[wrapped.length - 1].atEnd();
+        return new IntPattern(wrapped);
+    }
+
+    /**
+     * Finds all non-overlapping matches in the sequence, from left to right
+     * 
+     * @param sequence to be matched
+     * @return list of found matches
+     */
+    public List<IntMatch> find(int[] sequence) {
+        Validate.notNull(sequence, "Sequence must not be null");
+        return find(sequence, 0, sequence.length);
+    }
+
+    /**
+     * Finds all non-overlapping matches in a slice of the sequence. The
+     * matches do not go beyond the slice, and their positions are indexes in
+     * the whole array
+     * 
+     * @param sequence to be matched
+     * @param from the first index of the slice
+     * @param to the index after the last one of the slice
+     * @return list of found matches
+     */
+    public List<IntMatch> find(int[] sequence, int from, int to) {
+        checkSlice(sequence, from, to);
+        Searcher searcher = searchers.get();
+        searcher.start(sequence);
+
+        List<IntMatch> results = new ArrayList<IntMatch>();
+        int[] slots;
+        while ((slots = searcher.search(from, to)) != null) {
+            results.add(new IntMatch(sequence, slots, program.captures));
+            from = slots[1];
+        }
+        return results;
+    }
+
+    /**
+     * Counts the matches that {@link #find(int[])} would return, without
+     * creating them
+     * 
+     * @param sequence to be matched
+     * @return the number of found matches
+     */
+    public int count(int[] sequence) {
+        Validate.notNull(sequence, "Sequence must not be null");
+        return count(sequence, 0, sequence.length);
+    }
+
+    /**
+     * Counts the matches that {@link #find(int[], int, int)} would return
+     * 
+     * @param sequence to be matched
+     * @param from the first index of the slice
+     * @param to the index after the last one of the slice
+     * @return the number of found matches
+     */
+    public int count(int[] sequence, int from, int to) {
+        checkSlice(sequence, from, to);
+        Searcher searcher = searchers.get();
+        searcher.start(sequence);
+
+        int count = 0;
+        int end;
+        while ((end = searcher.searchEnd(from, to)) >= 0) {
+            count++;
+            from = end;
+        }
+        return count;
+    }
+
+    private static void checkSlice(int[] sequence, int from, int to) {
+        Validate.notNull(sequence, "Sequence must not be null");
+        Validate.isTrue(0 <= from && from <= to && to <= sequence.length, "Invalid slice [%d, %d) of %d values",
+                from, to, sequence.length);
+    }
+
+    @Override
+    public String toString() {
+        return "IntPattern [" + StringUtils.join(matchers, ", ") + "]";
+    }
+
+    /**
+     * The state of the matching calls of one thread
+     */
+    private class Searcher implements PikeVm.Input {
+        private final LazyDfa forward = new LazyDfa(program, false, MAX_STATES);
+        private final LazyDfa backward = new LazyDfa(reversed, true, MAX_STATES);
+        private PikeVm vm;
+        private boolean gaveUp;
+
+        private int[] sequence;
+
+        void start(int[] sequence) {
+            this.sequence = sequence;
+            this.gaveUp = false;
+            forward.reset();
+            backward.reset();
+        }
+
+        @Override
+        public boolean test(int leaf, int position) {
+            return leaves[leaf].match(sequence[position]);
+        }
+
+        /**
+         * @return the slots of the leftmost match in <code>[from, to)</code>,
+         *         or <code>null</code> if there is none
+         */
+        int[] search(int from, int to) {
+            if (from >= to) {
+                return null;
+            }
+
+            int start = from;
+            int end = LazyDfa.GAVE_UP;
+
+            if (!gaveUp) {
+                end = forward.searchForward(this, from, to);
+                if (end == LazyDfa.NO_MATCH) {
+                    return null;
+                }
+                if (end != LazyDfa.GAVE_UP) {
+                    start = backward.searchReverse(this, end, from);
+                }
+                gaveUp = end == LazyDfa.GAVE_UP || start == LazyDfa.GAVE_UP;
+            }
+
+            if (!gaveUp && !program.hasCaptures()) {
+                return new int[] { start, end };
+            }
+
+            if (vm == null) {
+                vm = new PikeVm(program);
+            }
+            if (!vm.search(this, gaveUp ? from : start, to)) {
+                return null;
+            }
+            return Arrays.copyOf(vm.matchSlots(), program.slotCount());
+        }
+
+        /**
+         * @return the end of the leftmost match in <code>[from, to)</code>,
+         *         or <code>-1</code> if there is none
+         */
+        int searchEnd(int from, int to) {
+            if (from >= to) {
+                return -1;
+            }
+            if (!gaveUp) {
+                int end = forward.searchForward(this, from, to);
+                if (end == LazyDfa.NO_MATCH) {
+                    return -1;
+                }
+                if (end != LazyDfa.GAVE_UP) {
+                    return end;
+                }
+                gaveUp = true;
+            }
+
+            if (vm == null) {
+                vm = new PikeVm(program);
+            }
+            if (!vm.search(this, from, to)) {
+                return -1;
+            }
+            return vm.matchSlots()[1];
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * Repeats an int matcher: optional, one or more and zero or more times,
+ * greedy or lazy. It can only be matched as a part of an {@link IntPattern}
+ */
+class IntQuantifier extends XIntMatcher {
+
+    static final int OPTIONAL = 0;
+    static final int ONE_OR_MORE = 1;
+    static final int ZERO_OR_MORE = 2;
+
+    private final XIntMatcher delegate;
+    private final int kind;
+    private final boolean greedy;
+
+    IntQuantifier(XIntMatcher delegate, int kind, boolean greedy) {
+        this.delegate = delegate.greedy();
+        this.kind = kind;
+        this.greedy = greedy;
+    }
+
+    @Override
+    public boolean match(int value) {
+        throw new UnsupportedOperationException(this + " can only be matched as a part of a pattern");
+    }
+
+    @Override
+    void emit(NfaBuilder<IntMatcher> nfa) {
+        if (kind == ONE_OR_MORE) {
+            int body = nfa.pc();
+            delegate.emit(nfa);
+            int split = nfa.split();
+            if (greedy) {
+                nfa.patch(split, body, nfa.pc());
+            } else {
+                nfa.patch(split, nfa.pc(), body);
+            }
+            return;
+        }
+
+        int split = nfa.split();
+        int body = nfa.pc();
+        delegate.emit(nfa);
+        if (kind == ZERO_OR_MORE) {
+            nfa.jump(split);
+        }
+        if (greedy) {
+            nfa.patch(split, body, nfa.pc());
+        } else {
+            nfa.patch(split, nfa.pc(), body);
+        }
+    }
+
+    @Override
+    XIntMatcher atEnd() {
+        return greedy();
+    }
+
+    @Override
+    XIntMatcher greedy() {
+        if (greedy) {
+            return this;
+        }
+        return new IntQuantifier(delegate, kind, true);
+    }
+
+    @Override
+    boolean isLeaf() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        String suffix = kind == OPTIONAL ? "?" : kind == ONE_OR_MORE ? "+" : "*";
+        return "[" + delegate + "]" + suffix + (greedy || kind == OPTIONAL ? "" : "?");
+    }
+
+}
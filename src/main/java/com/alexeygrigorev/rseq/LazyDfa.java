@@ -0,0 +1,494 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A DFA for an {@link NfaProgram} that is built lazily, while scanning the
+ * sequences. A state of the DFA is the list of NFA threads in the order of
+ * their priority, and its alphabet is the vector of outcomes of the leaf
+ * matchers needed by these threads, together with the children the trie
+ * instructions of the threads move to. Once a transition is known, processing
+ * an element takes only the evaluation of the leaves, a lookup in each trie
+ * and one table lookup.<br>
+ * <br>
+ * 
+ * A forward DFA finds where the leftmost match ends, with the same priorities
+ * as the {@link PikeVm}, and a reversed DFA, built for the reversed program,
+ * finds where this match starts. Captures are not tracked.<br>
+ * <br>
+ * 
+ * The number of cached states is bounded. When the cache is full, it is
+ * flushed, and when it is flushed too often during one matching call, the
+ * search gives up and the caller should fall back to the NFA simulation.
+ * Since the cache is filled during the search, a DFA must not be shared
+ * between threads
+ */
+class LazyDfa {
+
+    static final int NO_MATCH = -1;
+    static final int GAVE_UP = -2;
+
+    private static final int MAX_FLUSHES = 3;
+    private static final int MAX_TABLE_BITS = 8;
+    private static final int MAX_LEAVES = 64;
+
+    private final NfaProgram program;
+    private final boolean reversed;
+    private final int maxStates;
+
+    private final Map<State, State> states = new HashMap<State, State>();
+    private State start;
+    private int flushes;
+
+    private final int[] seenIndex;
+    private final int[] seen;
+    private int seenSize;
+    private final int[] threads;
+    private int threadCount;
+    private final int[] stack;
+    private final int[] leafBits;
+    private final int[] targets;
+    private final TrieSymbol probe = new TrieSymbol();
+
+    /**
+     * @param program to build the DFA for
+     * @param reversed <code>true</code> if the program is reversed: then the
+     *        search is anchored at the end of the match and looks for the
+     *        longest match
+     * @param maxStates the maximal number of states to keep in the cache
+     */
+    LazyDfa(NfaProgram program, boolean reversed, int maxStates) {
+        this.program = program;
+        this.reversed = reversed;
+        this.maxStates = maxStates;
+
+        int size = program.size();
+        this.seenIndex = new int[size];
+        this.seen = new int[size];
+        this.threads = new int[size];
+        this.stack = new int[size + 1];
+        this.leafBits = new int[program.leafCount];
+        this.targets = new int[size];
+    }
+
+    /**
+     * Starts a new matching call
+     */
+    void reset() {
+        flushes = 0;
+    }
+
+    /**
+     * Scans the sequence from the given position
+     * 
+     * @return the end of the leftmost non-empty match starting at
+     *         <code>from</code> or later, {@link #NO_MATCH} if there is no
+     *         match and {@link #GAVE_UP} if the cache thrashes
+     */
+    int searchForward(PikeVm.Input input, int from, int to) {
+        return searchForward(input, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Scans the sequence from the given position, as
+     * {@link #searchForward(PikeVm.Input, int, int)}, but only for the matches
+     * that start before <code>startLimit</code>
+     */
+    int searchForward(PikeVm.Input input, int from, int to, int startLimit) {
+        if (from >= startLimit) {
+            return NO_MATCH;
+        }
+
+        State state = start();
+        int end = NO_MATCH;
+
+        for (int position = from;; position++) {
+            if (state.isMatch) {
+                end = position;
+            }
+            if (state.threads.length == 0 || position == to) {
+                break;
+            }
+
+            state = next(state, input, position);
+            if (state == null) {
+                return GAVE_UP;
+            }
+            if (position + 1 >= startLimit) {
+                state = withoutStarts(state);
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Scans the sequence backwards from the end of a match, the DFA must be
+     * built for the reversed program
+     * 
+     * @return the smallest position not before <code>from</code> where a
+     *         non-empty match ending at <code>end</code> starts,
+     *         {@link #NO_MATCH} if there is no such match and {@link #GAVE_UP}
+     *         if the cache thrashes
+     */
+    int searchReverse(PikeVm.Input input, int end, int from) {
+        State state = start();
+        int start = NO_MATCH;
+
+        for (int position = end;; position--) {
+            if (state.isMatch) {
+                start = position;
+            }
+            if (state.threads.length == 0 || position == from) {
+                break;
+            }
+
+            state = next(state, input, position - 1);
+            if (state == null) {
+                return GAVE_UP;
+            }
+        }
+
+        return start;
+    }
+
+    private State start() {
+        if (start == null) {
+            clearThreads();
+            closure(0, 0);
+            start = intern(false);
+        }
+        return start;
+    }
+
+    private State next(State state, PikeVm.Input input, int position) {
+        int[] leaves = state.leaves;
+        if (leaves.length > MAX_LEAVES) {
+            return null;
+        }
+
+        long symbol = 0;
+        for (int i = 0; i < leaves.length; i++) {
+            if (input.test(leaves[i], position)) {
+                symbol = symbol | (1L << i);
+            }
+        }
+
+        if (state.tries.length > 0) {
+            return next(state, input, position, symbol);
+        }
+
+        State next = state.transition(symbol);
+        if (next == null) {
+            next = build(state, symbol);
+            if (next == null) {
+                return null;
+            }
+            state.store(symbol, next);
+        }
+        return next;
+    }
+
+    /**
+     * Makes a transition from a state with trie threads: it also depends on
+     * the nodes the tries move to, so it is looked up by them
+     */
+    private State next(State state, PikeVm.Input input, int position, long symbol) {
+        int[] tries = state.tries;
+        for (int i = 0; i < tries.length; i++) {
+            int pc = tries[i];
+            targets[i] = program.target(pc, input.key(program.keyLeaf(pc), position));
+        }
+
+        probe.set(symbol, targets, tries.length);
+        State next = state.trieTransitions.get(probe);
+        if (next == null) {
+            next = build(state, symbol);
+            if (next == null) {
+                return null;
+            }
+            state.trieTransitions.put(probe.copy(), next);
+        }
+        return next;
+    }
+
+    /**
+     * @return the state without the threads that have just started, which
+     *         does not start new threads either
+     */
+    private State withoutStarts(State state) {
+        if (state.matched) {
+            return state;
+        }
+        if (state.withoutStarts == null) {
+            clearThreads();
+            for (int thread : state.threads) {
+                if ((thread & 1) == 1) {
+                    threads[threadCount++] = thread;
+                }
+            }
+            // the matched flag is what stops the new threads
+            state.withoutStarts = intern(true);
+        }
+        return state.withoutStarts;
+    }
+
+    /**
+     * Builds the next state for the symbol, and for the {@link #targets} of
+     * the trie threads if the state has any
+     */
+    private State build(State state, long symbol) {
+        int[] opcodes = program.opcodes;
+        int[] arg1 = program.arg1;
+
+        for (int i = 0; i < state.leaves.length; i++) {
+            leafBits[state.leaves[i]] = i;
+        }
+
+        clearThreads();
+        int trie = 0;
+        for (int i = 0; i < state.cut; i++) {
+            int pc = state.threads[i] >>> 1;
+            if (opcodes[pc] == NfaProgram.TRIE) {
+                int target = targets[trie++];
+                if (target >= 0) {
+                    closure(target, 1);
+                }
+                continue;
+            }
+            if (opcodes[pc] != NfaProgram.LEAF) {
+                continue;
+            }
+            if ((symbol & (1L << leafBits[arg1[pc]])) != 0) {
+                closure(pc + 1, 1);
+            }
+        }
+
+        boolean matched = state.matched || state.isMatch;
+        if (!reversed && !matched) {
+            closure(0, 0);
+        }
+
+        if (states.size() >= maxStates) {
+            states.clear();
+            start = null;
+            flushes++;
+            if (flushes > MAX_FLUSHES) {
+                return null;
+            }
+        }
+
+        return intern(matched);
+    }
+
+    private State intern(boolean matched) {
+        State key = new State(Arrays.copyOf(threads, threadCount), matched);
+        State state = states.get(key);
+        if (state != null) {
+            return state;
+        }
+
+        key.initialize(program, reversed);
+        states.put(key, key);
+        return key;
+    }
+
+    private void clearThreads() {
+        threadCount = 0;
+        seenSize = 0;
+    }
+
+    /**
+     * Follows the instructions that do not consume input in the order of
+     * their priority, adding the reached leaf and match instructions
+     */
+    private void closure(int startPc, int consumed) {
+        int[] opcodes = program.opcodes;
+        int[] arg1 = program.arg1;
+        int[] arg2 = program.arg2;
+
+        int top = 0;
+        stack[top++] = startPc;
+
+        while (top > 0) {
+            int pc = stack[--top];
+            while (!isSeen(pc)) {
+                seenIndex[pc] = seenSize;
+                seen[seenSize++] = pc;
+
+                int opcode = opcodes[pc];
+                if (opcode == NfaProgram.JUMP) {
+                    pc = arg1[pc];
+                } else if (opcode == NfaProgram.SPLIT) {
+                    stack[top++] = arg2[pc];
+                    pc = arg1[pc];
+                } else if (opcode == NfaProgram.SAVE) {
+                    pc = pc + 1;
+                } else {
+                    threads[threadCount++] = (pc << 1) | consumed;
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean isSeen(int pc) {
+        int i = seenIndex[pc];
+        return i < seenSize && seen[i] == pc;
+    }
+
+    /**
+     * A state of the DFA: the list of NFA threads, each encoded as
+     * <code>pc &lt;&lt; 1 | consumed</code>, where <code>consumed</code> tells
+     * if the thread has already consumed an element, so it can produce a
+     * non-empty match
+     */
+    private static class State {
+        final int[] threads;
+        final boolean matched;
+        private final int hash;
+
+        boolean isMatch;
+        int cut;
+        int[] leaves;
+        /** the addresses of the trie threads before the cut */
+        int[] tries;
+
+        private State[] table;
+        private Map<Long, State> map;
+        private Map<TrieSymbol, State> trieTransitions;
+        private State withoutStarts;
+
+        State(int[] threads, boolean matched) {
+            this.threads = threads;
+            this.matched = matched;
+            this.hash = 31 * Arrays.hashCode(threads) + (matched ? 1 : 0);
+        }
+
+        void initialize(NfaProgram program, boolean reversed) {
+            int[] opcodes = program.opcodes;
+
+            cut = threads.length;
+            for (int i = 0; i < threads.length; i++) {
+                int pc = threads[i] >>> 1;
+                boolean consumed = (threads[i] & 1) == 1;
+                if (opcodes[pc] == NfaProgram.MATCH && consumed) {
+                    isMatch = true;
+                    if (!reversed) {
+                        // threads with lower priority can be dropped
+                        cut = i;
+                        break;
+                    }
+                }
+            }
+
+            int[] ids = new int[cut];
+            int[] triePcs = new int[cut];
+            int count = 0;
+            int trieCount = 0;
+            for (int i = 0; i < cut; i++) {
+                int pc = threads[i] >>> 1;
+                if (opcodes[pc] == NfaProgram.TRIE) {
+                    triePcs[trieCount++] = pc;
+                }
+                if (opcodes[pc] != NfaProgram.LEAF) {
+                    continue;
+                }
+                int leaf = program.arg1[pc];
+                boolean known = false;
+                for (int j = 0; j < count && !known; j++) {
+                    known = ids[j] == leaf;
+                }
+                if (!known) {
+                    ids[count++] = leaf;
+                }
+            }
+            leaves = Arrays.copyOf(ids, count);
+            tries = Arrays.copyOf(triePcs, trieCount);
+
+            if (trieCount > 0) {
+                trieTransitions = new HashMap<TrieSymbol, State>();
+            } else if (count <= MAX_TABLE_BITS) {
+                table = new State[1 << count];
+            } else {
+                map = new HashMap<Long, State>();
+            }
+        }
+
+        State transition(long symbol) {
+            if (table != null) {
+                return table[(int) symbol];
+            }
+            return map.get(symbol);
+        }
+
+        void store(long symbol, State next) {
+            if (table != null) {
+                table[(int) symbol] = next;
+            } else {
+                map.put(symbol, next);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof State)) {
+                return false;
+            }
+            State other = (State) obj;
+            return matched == other.matched && Arrays.equals(threads, other.threads);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The symbol of a state with trie threads: the outcomes of the leaves and
+     * the addresses the trie instructions move to
+     */
+    private static class TrieSymbol {
+        private long leaves;
+        private int[] targets;
+        private int length;
+        private int hash;
+
+        void set(long leaves, int[] targets, int length) {
+            this.leaves = leaves;
+            this.targets = targets;
+            this.length = length;
+
+            int hash = Long.hashCode(leaves);
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + targets[i];
+            }
+            this.hash = hash;
+        }
+
+        TrieSymbol copy() {
+            TrieSymbol copy = new TrieSymbol();
+            copy.set(leaves, Arrays.copyOf(targets, length), length);
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TrieSymbol)) {
+                return false;
+            }
+            TrieSymbol other = (TrieSymbol) obj;
+            return leaves == other.leaves && length == other.length
+                    && Arrays.equals(targets, 0, length, other.targets, 0, other.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The columns of an {@link EvaluatedSequence} for the leaves of one pattern,
+ * indexed by leaf id. All the columns are evaluated when it is created, after
+ * that testing a leaf is a bit lookup
+ */
+class LeafColumns<E> implements LeafOutcomes<E>, PikeVm.Input {
+
+    private final List<Matcher<E>> leaves;
+    private final Map<Matcher<E>, Integer> ids;
+    private final List<E> sequence;
+    private final long[][] columns;
+
+    /**
+     * Creates the columns that are only used as the input of an automaton
+     * 
+     * @param leaves of the pattern, in the order of their ids
+     * @param evaluated the sequence being matched
+     */
+    LeafColumns(List<Matcher<E>> leaves, EvaluatedSequence<E> evaluated) {
+        this(leaves, Collections.<Matcher<E>, Integer> emptyMap(), evaluated);
+    }
+
+    /**
+     * @param leaves of the pattern, in the order of their ids
+     * @param ids of the leaf matchers, compared by identity
+     * @param evaluated the sequence being matched
+     */
+    LeafColumns(List<Matcher<E>> leaves, Map<Matcher<E>, Integer> ids, EvaluatedSequence<E> evaluated) {
+        this.leaves = leaves;
+        this.ids = ids;
+        this.sequence = evaluated.getSequence();
+        this.columns = new long[leaves.size()][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = evaluated.column(leaves.get(i));
+        }
+    }
+
+    @Override
+    public boolean test(int leaf, int position) {
+        return (columns[leaf][position >>> 6] & (1L << position)) != 0;
+    }
+
+    @Override
+    public boolean match(Matcher<E> leaf, E object, int position) {
+        Integer id = ids.get(leaf);
+        if (sequence instanceof ColumnarSequence) {
+            // its elements are created on each call, the position is exact
+            return id == null ? leaf.match(sequence.get(position)) : test(id, position);
+        }
+        if (id == null || position < 0 || sequence.get(position) != object) {
+            return leaf.match(object);
+        }
+        return test(id, position);
+    }
+
+    @Override
+    public Object key(int leaf, int position) {
+        return DictionaryMatcher.key(leaves.get(leaf), sequence.get(position));
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.alexeygrigorev.rseq.ColumnarSequence.ColumnTest;
+
+/**
+ * Tests the leaf matchers of a compiled pattern against the elements of a
+ * sequence. The result of the last test of each leaf is remembered, so a leaf
+ * is evaluated only once per position when several threads of an automaton
+ * need it
+ */
+class LeafInput<E> implements PikeVm.Input {
+
+    private final List<Matcher<E>> leaves;
+    private List<E> sequence;
+    private final int[] evaluatedAt;
+    private final boolean[] results;
+    /** the leaves tested against the columns of a columnar sequence, or <code>null</code> */
+    private ColumnTest[] columns;
+
+    LeafInput(List<Matcher<E>> leaves, List<E> sequence) {
+        this.leaves = leaves;
+        this.sequence = sequence;
+        this.evaluatedAt = new int[leaves.size()];
+        this.results = new boolean[leaves.size()];
+        this.columns = ColumnarSequence.bind(leaves, sequence);
+        Arrays.fill(evaluatedAt, -1);
+    }
+
+    /**
+     * Starts over with another sequence, keeping the allocated arrays
+     */
+    void reset(List<E> sequence) {
+        this.sequence = sequence;
+        this.columns = ColumnarSequence.bind(leaves, sequence);
+        Arrays.fill(evaluatedAt, -1);
+    }
+
+    @Override
+    public boolean test(int leaf, int position) {
+        if (columns != null && columns[leaf] != null) {
+            return columns[leaf].test(position);
+        }
+        if (evaluatedAt[leaf] != position) {
+            evaluatedAt[leaf] = position;
+            results[leaf] = leaves.get(leaf).match(sequence.get(position));
+        }
+        return results[leaf];
+    }
+
+    @Override
+    public Object key(int leaf, int position) {
+        return DictionaryMatcher.key(leaves.get(leaf), sequence.get(position));
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.alexeygrigorev.rseq.ColumnarSequence.ColumnTest;
+
+/**
+ * Remembers the outcomes of the leaf matchers of a pattern for each position
+ * of a sequence, see {@link Evaluation#MEMOIZED}. The bitsets of a leaf are
+ * allocated when the leaf is first evaluated
+ */
+class LeafMemo<E> implements LeafOutcomes<E>, PikeVm.Input {
+
+    private final List<Matcher<E>> leaves;
+    private final Map<Matcher<E>, Integer> ids;
+    private List<E> sequence;
+    private final long[][] evaluated;
+    private final long[][] results;
+    /** the leaves tested against the columns of a columnar sequence, or <code>null</code> */
+    private ColumnTest[] columns;
+
+    /**
+     * @param leaves of the pattern, in the order of their ids
+     * @param ids of the leaf matchers
+     * @param sequence being matched, must support fast random access
+     */
+    LeafMemo(List<Matcher<E>> leaves, Map<Matcher<E>, Integer> ids, List<E> sequence) {
+        this.leaves = leaves;
+        this.ids = ids;
+        this.sequence = sequence;
+        this.evaluated = new long[leaves.size()][];
+        this.results = new long[leaves.size()][];
+        this.columns = ColumnarSequence.bind(leaves, sequence);
+    }
+
+    /**
+     * Starts over with another sequence. The bitsets are kept when they are
+     * large enough for it
+     */
+    void reset(List<E> sequence) {
+        this.sequence = sequence;
+        this.columns = ColumnarSequence.bind(leaves, sequence);
+        int words = (sequence.size() + 63) >>> 6;
+        for (int leaf = 0; leaf < evaluated.length; leaf++) {
+            if (evaluated[leaf] == null) {
+                continue;
+            }
+            if (evaluated[leaf].length < words) {
+                evaluated[leaf] = null;
+                results[leaf] = null;
+            } else {
+                Arrays.fill(evaluated[leaf], 0, words, 0L);
+                Arrays.fill(results[leaf], 0, words, 0L);
+            }
+        }
+    }
+
+    /**
+     * Matches the object with the leaf matcher, or returns the remembered
+     * outcome. The outcome is remembered only for the objects that are
+     * really at the given position, so a caller that is not sure about the
+     * position still gets the correct result. The elements of a
+     * {@link ColumnarSequence} are tested by their position
+     */
+    @Override
+    public boolean match(Matcher<E> leaf, E object, int position) {
+        Integer id = ids.get(leaf);
+        if (sequence instanceof ColumnarSequence) {
+            // its elements are created on each call, so they are only
+            // created when the leaf has no column
+            return id == null ? leaf.match(sequence.get(position)) : test(id, position);
+        }
+        if (id == null || position < 0 || sequence.get(position) != object) {
+            return leaf.match(object);
+        }
+        return test(id, position);
+    }
+
+    @Override
+    public boolean test(int leaf, int position) {
+        if (columns != null && columns[leaf] != null) {
+            return columns[leaf].test(position);
+        }
+        long[] done = evaluated[leaf];
+        long[] matched = results[leaf];
+        if (done == null) {
+            int words = (sequence.size() + 63) >>> 6;
+            done = evaluated[leaf] = new long[words];
+            matched = results[leaf] = new long[words];
+        }
+
+        int word = position >>> 6;
+        long bit = 1L << position;
+        if ((done[word] & bit) == 0) {
+            done[word] = done[word] | bit;
+            if (leaves.get(leaf).match(sequence.get(position))) {
+                matched[word] = matched[word] | bit;
+            }
+        }
+
+        return (matched[word] & bit) != 0;
+    }
+
+    @Override
+    public Object key(int leaf, int position) {
+        return DictionaryMatcher.key(leaves.get(leaf), sequence.get(position));
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * Provides the outcomes of the leaf matchers of a pattern for the elements of
+ * the sequence being matched, see {@link Evaluation}
+ */
+interface LeafOutcomes<E> {
+
+    /**
+     * @param leaf matcher to test the object with
+     * @param object to test, <code>null</code> if the elements of a
+     *        {@link ColumnarSequence} are not created
+     * @param position of the object in the sequence. Implementations may only
+     *        rely on it when the object is really at this position, or when
+     *        the sequence is a {@link ColumnarSequence}
+     * @return <code>true</code> if the match is successful
+     */
+    boolean match(Matcher<E> leaf, E object, int position);
+
+}
@@ -0,0 +1,97 @@
+package com.alexeygrigorev.rseq;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A region of a file with fixed-width values, mapped to memory in segments,
+ * since a single mapping cannot be larger than 2 GB. A segment is mapped when
+ * it is first used. Consecutive segments overlap by a number of values, so
+ * any run of values not longer than the overlap that starts in a segment
+ * ends in the same segment and can be read as one buffer
+ */
+class MappedRegion {
+
+    private final FileChannel channel;
+    /** the position of the region in the file */
+    private final long base;
+    /** the number of values in the region */
+    private final long count;
+    private final int width;
+    private final int segmentBits;
+    private final int overlap;
+    private final AtomicReferenceArray<ByteBuffer> segments;
+
+    /**
+     * @param width of the values in bytes
+     * @param segmentBits the binary logarithm of the number of values per
+     *        segment
+     * @param overlap the number of values shared by consecutive segments
+     */
+    MappedRegion(FileChannel channel, long base, long count, int width, int segmentBits, int overlap) {
+        this.channel = channel;
+        this.base = base;
+        this.count = count;
+        this.width = width;
+        this.segmentBits = segmentBits;
+        this.overlap = overlap;
+        long segmentCount = (count + (1L << segmentBits) - 1) >>> segmentBits;
+        this.segments = new AtomicReferenceArray<ByteBuffer>((int) segmentCount);
+    }
+
+    byte getByte(long index) {
+        ByteBuffer segment = segment(index);
+        return segment.get((int) (index & mask()) * width);
+    }
+
+    long getLong(long index) {
+        ByteBuffer segment = segment(index);
+        return segment.getLong((int) (index & mask()) * width);
+    }
+
+    /**
+     * @return the values from <code>from</code> to <code>to</code> as a
+     *         buffer backed by the file, without copying them
+     */
+    IntBuffer ints(long from, long to) {
+        if (from == to) {
+            return IntBuffer.allocate(0);
+        }
+        ByteBuffer segment = segment(from).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int start = (int) (from & mask()) * width;
+        segment.position(start);
+        segment.limit(start + (int) (to - from) * width);
+        return segment.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private long mask() {
+        return (1L << segmentBits) - 1;
+    }
+
+    private ByteBuffer segment(long index) {
+        int number = (int) (index >>> segmentBits);
+        ByteBuffer segment = segments.get(number);
+        if (segment != null) {
+            return segment;
+        }
+
+        long first = (long) number << segmentBits;
+        long values = Math.min((1L << segmentBits) + overlap, count - first);
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, base + first * width, values * width);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+
+        // another thread may have mapped it at the same time
+        segments.compareAndSet(number, null, segment);
+        return segments.get(number);
+    }
+
+}
@@ -1,98 +1,248 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
-/**
- * A successful match produced by matching a {@link Pattern} against some
- * (sub)sequence of objects.
- * 
- */
-public class Match<E> {
-
-    private final int index;
-    private final List<E> match;
-    private final Map<String, E> variables;
-    private final Map<String, List<E>> groups;
-
-    /**
-     * Shouldn't be used by users of the library
-     * 
-     * @param index
-     * @param match
-     * @param variables
-     */
-    public Match(int index, List<E> match, Map<String, E> variables) {
-        this(index, match, variables, Collections.<String, List<E>> emptyMap());
-    }
-
-    /**
-     * Shouldn't be used by users of the library
-     * 
-     * @param index
-     * @param match
-     * @param variables
-     * @param groups
-     */
-    public Match(int index, List<E> match, Map<String, E> variables, Map<String, List<E>> groups) {
-        this.index = index;
-        this.match = match;
-        this.variables = variables;
-        this.groups = groups;
-    }
-
-    /**
-     * @return the starting position of matched sequence
-     */
-    public int matchedFrom() {
-        return index;
-    }
-
-    /**
-     * @return the end position of matching sequence. it points to the next
-     *         element in the sequence after the match
-     */
-    public int matchedTo() {
-        return index + match.size();
-    }
-
-    public List<E> getMatchedSubsequence() {
-        return match;
-    }
-
-    public Map<String, E> getVariables() {
-        return Collections.unmodifiableMap(variables);
-    }
-
-    public E getVariable(String name) {
-        return variables.get(name);
-    }
-
-    public List<E> getCapturedGroup(String name) {
-        return groups.get(name);
-    }
-
-    public Map<String, List<E>> getCapturedGroups() {
-        return Collections.unmodifiableMap(groups);
-    }
-
-    @Override
-    public String toString() {
-        return "Match [index=" + index + ", match=" + match + ", variables=" + variables + "]";
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
-    }
-
-    @Override
-    public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A successful match produced by matching a {@link Pattern} against some
+ * (sub)sequence of objects.<br>
+ * <br>
+ * 
+ * The matches found by a pattern do not copy anything: they keep the matched
+ * sequence and the positions of the match and of its captures in it, and
+ * {@link #getMatchedSubsequence()} and {@link #getCapturedGroup(String)}
+ * return views of the sequence. So the sequence must not be modified while
+ * its matches are in use
+ * 
+ */
+public class Match<E> {
+
+    private final int index;
+    private final List<E> sequence;
+    /** the captures of the pattern, shared by all its matches */
+    private final Captures captures;
+    /**
+     * the bounds of the match in the sequence, followed by the bounds of each
+     * capture, which are <code>-1</code> if it captured nothing
+     */
+    private final int[] slots;
+
+    /** the captures given explicitly, <code>null</code> if taken from the slots */
+    private final Map<String, E> variables;
+    private final Map<String, List<E>> groups;
+
+    /**
+     * Shouldn't be used by users of the library
+     * 
+     * @param index
+     * @param match
+     * @param variables
+     */
+    public Match(int index, List<E> match, Map<String, E> variables) {
+        this(index, match, variables, Collections.<String, List<E>> emptyMap());
+    }
+
+    /**
+     * Shouldn't be used by users of the library
+     * 
+     * @param index
+     * @param match
+     * @param variables
+     * @param groups
+     */
+    public Match(int index, List<E> match, Map<String, E> variables, Map<String, List<E>> groups) {
+        this.index = index;
+        this.sequence = match;
+        this.captures = Captures.NONE;
+        this.slots = new int[] { 0, match.size() };
+        this.variables = variables;
+        this.groups = groups;
+    }
+
+    /**
+     * Creates a match without captures
+     * 
+     * @param sequence the matched sequence
+     * @param start of the match in the sequence
+     * @param end of the match, exclusive
+     */
+    Match(List<E> sequence, int start, int end) {
+        this(start, sequence, new int[] { start, end }, Captures.NONE);
+    }
+
+    /**
+     * @param index the position of the match reported to the users, usually
+     *        the same as its start in the sequence
+     * @param sequence the matched sequence
+     * @param slots the bounds of the match and of its captures in the sequence,
+     *        owned by the match from now on
+     * @param captures of the pattern
+     */
+    Match(int index, List<E> sequence, int[] slots, Captures captures) {
+        this.index = index;
+        this.sequence = sequence;
+        this.slots = slots;
+        this.captures = captures;
+        this.variables = null;
+        this.groups = null;
+    }
+
+    /**
+     * @return the starting position of matched sequence
+     */
+    public int matchedFrom() {
+        return index;
+    }
+
+    /**
+     * @return the end position of matching sequence. it points to the next
+     *         element in the sequence after the match
+     */
+    public int matchedTo() {
+        return index + slots[1] - slots[0];
+    }
+
+    public List<E> getMatchedSubsequence() {
+        return Collections.unmodifiableList(sequence.subList(slots[0], slots[1]));
+    }
+
+    public Map<String, E> getVariables() {
+        if (variables != null) {
+            return Collections.unmodifiableMap(variables);
+        }
+
+        Map<String, E> result = new HashMap<String, E>();
+        for (int i = 0; i < captures.size(); i++) {
+            if (!captures.groups[i] && captures.isCaptured(slots, i)) {
+                result.put(captures.names[i], variable(i));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    public E getVariable(String name) {
+        if (variables != null) {
+            return variables.get(name);
+        }
+
+        int slot = captures.variable(name);
+        if (slot < 0 || !captures.isCaptured(slots, slot)) {
+            return null;
+        }
+        return variable(slot);
+    }
+
+    /**
+     * Looks the variable up by its slot, which is faster than by its name
+     * 
+     * @param slot of the variable, see {@link Pattern#variableSlot(String)}
+     * @return the captured element, or <code>null</code> if the variable did
+     *         not capture anything
+     */
+    public E getVariable(int slot) {
+        checkSlots();
+        captures.validate(slot, false);
+        if (!captures.isCaptured(slots, slot)) {
+            return null;
+        }
+        return variable(slot);
+    }
+
+    public List<E> getCapturedGroup(String name) {
+        if (groups != null) {
+            return groups.get(name);
+        }
+
+        int slot = captures.group(name);
+        if (slot < 0 || !captures.isCaptured(slots, slot)) {
+            return null;
+        }
+        return group(slot);
+    }
+
+    /**
+     * Looks the group up by its slot, which is faster than by its name
+     * 
+     * @param slot of the group, see {@link Pattern#groupSlot(String)}
+     * @return the captured subsequence, or <code>null</code> if the group did
+     *         not capture anything
+     */
+    public List<E> getCapturedGroup(int slot) {
+        checkSlots();
+        captures.validate(slot, true);
+        if (!captures.isCaptured(slots, slot)) {
+            return null;
+        }
+        return group(slot);
+    }
+
+    public Map<String, List<E>> getCapturedGroups() {
+        if (groups != null) {
+            return Collections.unmodifiableMap(groups);
+        }
+
+        Map<String, List<E>> result = new HashMap<String, List<E>>();
+        for (int i = 0; i < captures.size(); i++) {
+            if (captures.groups[i] && captures.isCaptured(slots, i)) {
+                result.put(captures.names[i], group(i));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    int slot(int index) {
+        return slots[index];
+    }
+
+    private E variable(int slot) {
+        return sequence.get(slots[2 * slot + 2]);
+    }
+
+    private List<E> group(int slot) {
+        return Collections.unmodifiableList(sequence.subList(slots[2 * slot + 2], slots[2 * slot + 3]));
+    }
+
+    private void checkSlots() {
+        Validate.validState(variables == null, "The captures of this match can only be looked up by name");
+    }
+
+    @Override
+    public String toString() {
+        return "Match [index=" + index + ", match=" + getMatchedSubsequence() + ", variables=" + getVariables() + "]";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+
+        Match<?> other = (Match<?>) obj;
+        if (index != other.index || matchedTo() != other.matchedTo()) {
+            return false;
+        }
+        if (variables == null && other.variables == null && sequence == other.sequence
+                && captures == other.captures && Arrays.equals(slots, other.slots)) {
+            // the matches of the same pattern in the same sequence
+            return true;
+        }
+        return getMatchedSubsequence().equals(other.getMatchedSubsequence())
+                && getVariables().equals(other.getVariables())
+                && getCapturedGroups().equals(other.getCapturedGroups());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, getMatchedSubsequence(), getVariables(), getCapturedGroups());
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * Receives the matches found in a collection of documents, see
+ * {@link Pattern#findAll(Iterable, java.util.concurrent.Executor, MatchConsumer)}.
+ * It is called from several threads at the same time, so it must be thread
+ * safe
+ */
+public interface MatchConsumer<E> {
+
+    /**
+     * @param document the index of the document in the collection
+     * @param match found in the document
+     */
+    void accept(int document, Match<E> match);
+
+}
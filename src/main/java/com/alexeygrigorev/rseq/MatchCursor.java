@@ -0,0 +1,241 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the matches of a {@link Pattern} in a sequence one by one, on demand,
+ * like {@link java.util.regex.Matcher} does for strings. Nothing is searched
+ * until {@link #find()} is called, and no {@link Match} objects are created
+ * unless {@link #toMatch()} is called, so checking if a sequence contains the
+ * pattern stops at the first match.<br>
+ * <br>
+ * 
+ * A cursor keeps the state of one matching call, so it must not be shared
+ * between threads. Use {@link Pattern#matcher(List)} to create it
+ * 
+ * <pre>
+ * MatchCursor&lt;String&gt; cursor = pattern.matcher(sequence);
+ * while (cursor.find()) {
+ *     System.out.println(cursor.start() + &quot;: &quot; + cursor.group());
+ * }
+ * </pre>
+ * 
+ * @see Pattern#find(List)
+ */
+public abstract class MatchCursor<E> {
+
+    List<E> sequence;
+    final Captures captures;
+
+    /** the bounds of the current match, set by {@link #search(int)} */
+    int start;
+    int end;
+
+    /** where the search for the next match starts */
+    private int from;
+    /** where the matches cannot start anymore */
+    int startLimit = Integer.MAX_VALUE;
+    private boolean matched;
+    private boolean exhausted;
+
+    MatchCursor(List<E> sequence, Captures captures) {
+        this.sequence = sequence;
+        this.captures = captures;
+    }
+
+    /**
+     * Looks for the next match, which starts after the end of the previous one
+     * 
+     * @return <code>true</code> if a match is found
+     */
+    public boolean find() {
+        if (exhausted) {
+            return false;
+        }
+        matched = from < startLimit && search(from);
+        exhausted = !matched;
+        if (matched) {
+            from = end;
+        }
+        return matched;
+    }
+
+    /**
+     * Makes the next call of {@link #find()} look for the leftmost match that
+     * starts at the position or later
+     * 
+     * @param from the first position where the match can start
+     */
+    void startAt(int from) {
+        this.from = from;
+        this.matched = false;
+        this.exhausted = false;
+    }
+
+    /**
+     * Starts over with another sequence, reusing the state allocated for the
+     * previous one. Only the cursors created for lists can be reset
+     * 
+     * @param sequence to be matched
+     */
+    void reset(List<E> sequence) {
+        this.sequence = sequence;
+        this.from = 0;
+        this.startLimit = Integer.MAX_VALUE;
+        this.matched = false;
+        this.exhausted = false;
+    }
+
+    /**
+     * Makes the cursor find only the matches that start before the position.
+     * They can still end after it
+     * 
+     * @param startLimit the position where the matches cannot start anymore
+     */
+    void limitStarts(int startLimit) {
+        this.startLimit = startLimit;
+    }
+
+    /**
+     * Looks for the leftmost match that starts before {@link #startLimit} and
+     * sets {@link #start} and {@link #end}
+     * 
+     * @param from the first position where the match can start
+     * @return <code>true</code> if a match is found
+     */
+    abstract boolean search(int from);
+
+    /**
+     * @return the starting position of the current match
+     */
+    public int start() {
+        checkMatched();
+        return start;
+    }
+
+    /**
+     * @return the end position of the current match. It points to the next
+     *         element in the sequence after the match
+     */
+    public int end() {
+        checkMatched();
+        return end;
+    }
+
+    /**
+     * @return the matched subsequence, a read-only view of the sequence
+     */
+    public List<E> group() {
+        checkMatched();
+        return Collections.unmodifiableList(sequence.subList(start, end));
+    }
+
+    /**
+     * @param name of the group, as given to
+     *        {@link XMatcher#captureAs(String)}
+     * @return the subsequence captured by the group in the current match, or
+     *         <code>null</code> if it did not capture anything
+     */
+    public List<E> group(String name) {
+        checkMatched();
+        int slot = captures.group(name);
+        if (slot < 0) {
+            return null;
+        }
+        return capturedGroup(slot);
+    }
+
+    /**
+     * @param slot of the group, see {@link Pattern#groupSlot(String)}
+     * @return the subsequence captured by the group in the current match, or
+     *         <code>null</code> if it did not capture anything
+     */
+    public List<E> group(int slot) {
+        checkMatched();
+        captures.validate(slot, true);
+        return capturedGroup(slot);
+    }
+
+    /**
+     * @param name of the variable, as given to
+     *        {@link XMatcher#captureAs(String)}
+     * @return the element captured by the variable in the current match, or
+     *         <code>null</code> if it did not capture anything
+     */
+    public E getVariable(String name) {
+        checkMatched();
+        int slot = captures.variable(name);
+        if (slot < 0) {
+            return null;
+        }
+        return capturedVariable(slot);
+    }
+
+    /**
+     * @param slot of the variable, see {@link Pattern#variableSlot(String)}
+     * @return the element captured by the variable in the current match, or
+     *         <code>null</code> if it did not capture anything
+     */
+    public E getVariable(int slot) {
+        checkMatched();
+        captures.validate(slot, false);
+        return capturedVariable(slot);
+    }
+
+    /**
+     * @return the current match with all its variables and groups, the same
+     *         object {@link Pattern#find(List)} would return for it
+     */
+    public Match<E> toMatch() {
+        checkMatched();
+        return createMatch();
+    }
+
+    private List<E> capturedGroup(int slot) {
+        int start = slot(2 * slot + 2);
+        int end = slot(2 * slot + 3);
+        if (start < 0 || end < start) {
+            return null;
+        }
+        return Collections.unmodifiableList(sequence.subList(start, end));
+    }
+
+    private E capturedVariable(int slot) {
+        int start = slot(2 * slot + 2);
+        int end = slot(2 * slot + 3);
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        return sequence.get(start);
+    }
+
+    /**
+     * @param index of the slot, see {@link Captures}
+     * @return the position kept in the slot for the current match, or
+     *         <code>-1</code> if the capture did not capture anything
+     */
+    abstract int slot(int index);
+
+    abstract Match<E> createMatch();
+
+    /**
+     * @return all the remaining matches
+     */
+    List<Match<E>> findAll() {
+        List<Match<E>> results = new ArrayList<Match<E>>();
+        while (find()) {
+            results.add(createMatch());
+        }
+        return results;
+    }
+
+    private void checkMatched() {
+        // no varargs array on the path of every accessor
+        if (!matched) {
+            throw new IllegalStateException("No match available");
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+/**
+ * Receives the matches found by {@link Pattern#find(List, MatchHandler)} one
+ * by one, while the sequence is being matched
+ */
+public interface MatchHandler<E> {
+
+    /**
+     * Handles the current match. The cursor is reused for all the matches
+     * and for the next calls of {@link Pattern#find(List, MatchHandler)}, so
+     * it is valid only during this call and must not be kept or advanced with
+     * {@link MatchCursor#find()}. Copy what is needed, or call
+     * {@link MatchCursor#toMatch()} to get a match that stays valid
+     * 
+     * @param match the cursor positioned at the current match
+     * @return <code>true</code> to go on with the next match,
+     *         <code>false</code> to stop
+     */
+    boolean onMatch(MatchCursor<E> match);
+
+}
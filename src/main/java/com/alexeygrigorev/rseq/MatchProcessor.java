@@ -0,0 +1,318 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A reactive stage that finds the matches of a pattern in each of the
+ * documents it receives, see {@link Pattern#processor(Executor, int)}. For
+ * every document it publishes one list with all its matches, possibly empty,
+ * in the order the documents arrive.<br>
+ * <br>
+ * 
+ * The documents are matched in the executor, several at a time, but the
+ * processor never requests more documents from its upstream than its
+ * subscriber has asked results for, and never more than the parallelism
+ * ahead. So at most that many documents and their results are held in memory,
+ * however fast the upstream is. Like in
+ * {@link Pattern#findAll(Iterable, Executor, MatchConsumer)}, the matching
+ * state is reused from one document to the next.<br>
+ * <br>
+ * 
+ * The processor has a single subscriber. If a document fails to be matched,
+ * the upstream is cancelled and the subscriber gets the error
+ * 
+ * @param <E>
+ */
+public class MatchProcessor<E> implements Flow.Processor<List<E>, List<Match<E>>> {
+
+    private final Pattern<E> pattern;
+    private final Executor executor;
+    private final int parallelism;
+
+    /** guards all the state below */
+    private final Object lock = new Object();
+
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super List<Match<E>>> downstream;
+
+    /** the results the subscriber asked for and has not got yet */
+    private long demand;
+    /** the documents requested from the upstream and not published yet */
+    private long outstanding;
+
+    /** the index of the next document to arrive */
+    private long received;
+    /** the index of the next document to publish */
+    private long published;
+    /** the results that are ready, by the index of the document */
+    private final Map<Long, List<Match<E>>> results = new HashMap<Long, List<Match<E>>>();
+    /** the cursors no document is matched with at the moment */
+    private final Deque<MatchCursor<E>> cursors = new ArrayDeque<MatchCursor<E>>();
+
+    private boolean completed;
+    private Throwable error;
+    /** set after the final signal or the cancellation */
+    private boolean done;
+
+    /** only one thread signals the subscriber at a time */
+    private boolean draining;
+    private boolean missed;
+
+    MatchProcessor(Pattern<E> pattern, Executor executor, int parallelism) {
+        this.pattern = pattern;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<Match<E>>> subscriber) {
+        Validate.notNull(subscriber, "Subscriber must not be null");
+
+        synchronized (lock) {
+            if (downstream == null) {
+                downstream = subscriber;
+                // nothing is signaled before onSubscribe returns
+                draining = true;
+                subscriber = null;
+            }
+        }
+
+        if (subscriber != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The processor already has a subscriber"));
+            return;
+        }
+
+        downstream.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                MatchProcessor.this.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                MatchProcessor.this.cancel();
+            }
+        });
+        drainLoop();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Validate.notNull(subscription, "Subscription must not be null");
+
+        synchronized (lock) {
+            if (upstream == null && !done) {
+                upstream = subscription;
+                subscription = null;
+            }
+        }
+
+        if (subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(List<E> document) {
+        Validate.notNull(document, "Document must not be null");
+
+        final long index;
+        final MatchCursor<E> cursor;
+        synchronized (lock) {
+            if (done || error != null) {
+                return;
+            }
+            index = received++;
+            cursor = cursors.poll();
+        }
+
+        try {
+            executor.execute(() -> match(index, document, cursor));
+        } catch (RejectedExecutionException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Validate.notNull(throwable, "Throwable must not be null");
+        synchronized (lock) {
+            if (error == null) {
+                error = throwable;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (lock) {
+            completed = true;
+        }
+        drain();
+    }
+
+    private void match(long index, List<E> document, MatchCursor<E> cursor) {
+        List<Match<E>> matches = new ArrayList<Match<E>>();
+        try {
+            if (cursor == null) {
+                cursor = pattern.matcher(document);
+            } else {
+                cursor.reset(document);
+            }
+            while (cursor.find()) {
+                matches.add(cursor.toMatch());
+            }
+        } catch (RuntimeException | Error e) {
+            fail(e);
+            return;
+        }
+
+        synchronized (lock) {
+            results.put(index, matches);
+            cursors.push(cursor);
+        }
+        drain();
+    }
+
+    private void request(long n) {
+        if (n <= 0) {
+            fail(new IllegalArgumentException("The number of requested results must be positive, got " + n));
+            return;
+        }
+
+        synchronized (lock) {
+            demand = demand + n;
+            if (demand < 0) {
+                demand = Long.MAX_VALUE;
+            }
+        }
+        drain();
+    }
+
+    private void cancel() {
+        Flow.Subscription subscription;
+        synchronized (lock) {
+            done = true;
+            results.clear();
+            cursors.clear();
+            subscription = upstream;
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * Stops the processing because of a failure on the processor's side: the
+     * upstream is cancelled and the subscriber gets the error
+     */
+    private void fail(Throwable throwable) {
+        Flow.Subscription subscription;
+        synchronized (lock) {
+            if (error == null) {
+                error = throwable;
+            }
+            subscription = upstream;
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        drain();
+    }
+
+    private void drain() {
+        synchronized (lock) {
+            if (draining) {
+                missed = true;
+                return;
+            }
+            draining = true;
+        }
+        drainLoop();
+    }
+
+    /**
+     * Sends the signals that are due, until there are no more. Only the
+     * thread that set {@link #draining} runs it, and the signals are sent
+     * outside of the lock
+     */
+    private void drainLoop() {
+        List<List<Match<E>>> ready = new ArrayList<List<Match<E>>>();
+        while (true) {
+            Throwable failure = null;
+            boolean complete = false;
+            long more = 0;
+
+            synchronized (lock) {
+                missed = false;
+                if (!done && downstream != null) {
+                    if (error != null) {
+                        failure = error;
+                    } else {
+                        while (demand > 0 && results.containsKey(published)) {
+                            ready.add(results.remove(published));
+                            published++;
+                            demand--;
+                            outstanding--;
+                        }
+                        complete = completed && published == received;
+                        if (!completed && upstream != null) {
+                            more = Math.min(parallelism, demand) - outstanding;
+                            if (more > 0) {
+                                outstanding = outstanding + more;
+                            }
+                        }
+                    }
+                    done = failure != null || complete;
+                }
+            }
+
+            for (List<Match<E>> matches : ready) {
+                downstream.onNext(matches);
+            }
+            ready.clear();
+
+            if (failure != null) {
+                downstream.onError(failure);
+            } else if (complete) {
+                downstream.onComplete();
+            } else if (more > 0) {
+                upstream.request(more);
+            }
+
+            synchronized (lock) {
+                if (!missed) {
+                    draining = false;
+                    if (done) {
+                        results.clear();
+                        cursors.clear();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Traverses the matches of a pattern in a part of a sequence, see
+ * {@link Pattern#stream(List)}. The part is split only at clean cut points:
+ * positions that no match of the pattern can cross. Then the matches found
+ * from the cut point on are exactly the ones found when scanning the whole
+ * sequence from the start, so the parts can be processed in parallel with
+ * the usual leftmost non-overlapping semantics.<br>
+ * <br>
+ * 
+ * A match consumes at most the maximal span of the pattern, so it is enough
+ * to check the matches that start less than a span before a cut point. If the
+ * span is unbounded, the sequence is not split at all
+ */
+class MatchSpliterator<E> implements Spliterator<Match<E>> {
+
+    static final int MIN_CHUNK = 4096;
+
+    /** how many cut points are checked before giving up on a split */
+    private static final int MAX_CUT_ATTEMPTS = 16;
+
+    private final Pattern<E> pattern;
+    private final List<E> sequence;
+    /** the shared columns of the sequence, <code>null</code> if not evaluated */
+    private final EvaluatedSequence<E> evaluated;
+    private final int span;
+    private final int minChunk;
+
+    /** the matches starting in [from, to) belong to this part */
+    private int from;
+    private final int to;
+
+    private MatchCursor<E> cursor;
+
+    /**
+     * @param pattern to find
+     * @param sequence to be matched
+     * @param evaluated the columns of the sequence shared by all the parts, or
+     *        <code>null</code>
+     * @param span the maximal span of the pattern, <code>-1</code> if it is
+     *        unbounded
+     * @param minChunk the smallest part that is split further
+     */
+    MatchSpliterator(Pattern<E> pattern, List<E> sequence, EvaluatedSequence<E> evaluated, int span, int minChunk) {
+        this(pattern, sequence, evaluated, span, minChunk, 0, sequence.size());
+    }
+
+    private MatchSpliterator(Pattern<E> pattern, List<E> sequence, EvaluatedSequence<E> evaluated, int span,
+            int minChunk, int from, int to) {
+        this.pattern = pattern;
+        this.sequence = sequence;
+        this.evaluated = evaluated;
+        this.span = span;
+        this.minChunk = minChunk;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Match<E>> action) {
+        if (cursor == null) {
+            cursor = evaluated == null ? pattern.matcher(sequence) : pattern.matcher(evaluated);
+            cursor.startAt(from);
+            cursor.limitStarts(to);
+        }
+        if (!cursor.find()) {
+            from = to;
+            return false;
+        }
+        action.accept(cursor.toMatch());
+        return true;
+    }
+
+    @Override
+    public Spliterator<Match<E>> trySplit() {
+        if (cursor != null || span < 0 || to - from < 2 * minChunk || !(sequence instanceof RandomAccess)) {
+            return null;
+        }
+
+        int cut = findCut(from + (to - from) / 2);
+        if (cut < 0) {
+            return null;
+        }
+
+        MatchSpliterator<E> prefix = new MatchSpliterator<E>(pattern, sequence, evaluated, span, minChunk, from,
+                cut);
+        from = cut;
+        return prefix;
+    }
+
+    /**
+     * @return the first clean cut point at the position or after it, or
+     *         <code>-1</code> if it is not found soon enough
+     */
+    private int findCut(int cut) {
+        for (int attempt = 0; attempt < MAX_CUT_ATTEMPTS && cut < to - minChunk; attempt++) {
+            int crossing = crossingEnd(cut);
+            if (crossing < 0) {
+                return cut;
+            }
+            // no cut point is clean inside of the crossing match
+            cut = crossing;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the matches that start before the cut point, but less than a span
+     * before it. Each of them is found from the position where it starts, so it
+     * is the match a scan of the whole sequence would take there
+     * 
+     * @return the end of a match crossing the cut point, or <code>-1</code> if
+     *         the cut point is clean
+     */
+    private int crossingEnd(int cut) {
+        int windowFrom = Math.max(from, cut - span + 1);
+        // no match starting before the cut can reach the end of the window
+        int windowTo = Math.min(sequence.size(), cut + span);
+        MatchCursor<E> window = pattern.matcher(sequence.subList(windowFrom, windowTo));
+        window.limitStarts(cut - windowFrom);
+
+        int start = 0;
+        while (true) {
+            window.startAt(start);
+            if (!window.find()) {
+                return -1;
+            }
+            if (window.end() + windowFrom > cut) {
+                return window.end() + windowFrom;
+            }
+            start = window.start() + 1;
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        // the number of elements left, the number of matches is not known
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+}
@@ -1,109 +1,212 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
-
-import org.apache.commons.lang3.Validate;
-
-class MatchingContext<E> {
-
-    private final Map<String, E> variables = new HashMap<String, E>();
-    private final Map<String, List<E>> groups = new HashMap<String, List<E>>();
-    private final List<Match<E>> results = new ArrayList<Match<E>>();
-
-    private final List<ParentMatcher<E>> flatPattern = new ArrayList<>();
-    private final List<E> sequence;
-
-    private int index = 0;
-    private int currentMatcherIndex = 0;
-    private ListIterator<E> currentListIterator;
-
-    public MatchingContext(List<E> sequence) {
-        this.sequence = sequence;
-    }
-
-    public void addSuccessfulMatch() {
-        Validate.validState(currentListIterator != null, "currentListIterator must be initialized already");
-
-        int nextIndex = currentListIterator.nextIndex();
-        if (nextIndex == index) {
-            // empty match, Optional or ZeroOrMore matcher, ignoring it
-            return;
-        }
-
-        List<E> matchedSubsequence = new ArrayList<E>(sequence.subList(index, nextIndex));
-        Map<String, E> variablesCopy = new HashMap<>(variables);
-        Map<String, List<E>> groupsCopy = new HashMap<>(groups);
-        Match<E> match = new Match<E>(index, matchedSubsequence, variablesCopy, groupsCopy);
-        results.add(match);
-
-        variables.clear();
-        groups.clear();
-        index = nextIndex - 1;
-    }
-
-    public void setVariable(String name, E value) {
-        variables.put(name, value);
-    }
-
-    public E getVariable(String name) {
-        return variables.get(name);
-    }
-
-    public List<Match<E>> getAllResults() {
-        return results;
-    }
-
-    public List<ParentMatcher<E>> getPattern() {
-        return flatPattern;
-    }
-
-    public Iterator<Void> findIterator() {
-        return new Iterator<Void>() {
-            @Override
-            public boolean hasNext() {
-                return index < sequence.size();
-            }
-
-            @Override
-            public Void next() {
-                index++;
-                return null;
-            }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException("remove() is not supported");
-            }
-        };
-    }
-
-    public Iterator<E> matchIterator() {
-        currentListIterator = sequence.listIterator(index);
-        return currentListIterator;
-    }
-
-    ListIterator<E> getCurrentMatchIterator() {
-        return currentListIterator;
-    }
-
-    void captureGroup(String name) {
-        int currentIndex = currentListIterator.nextIndex();
-        List<E> capturedGroup = new ArrayList<E>(sequence.subList(currentMatcherIndex, currentIndex));
-        groups.put(name, capturedGroup);
-    }
-
-    int register(ParentMatcher<E> matcher) {
-        flatPattern.add(matcher);
-        return flatPattern.size() - 1;
-    }
-
-    void nextMatcher() {
-        currentMatcherIndex = currentListIterator.nextIndex();
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the state of a single matching call: the position in the sequence and
+ * the positions of the captured variables and groups. A new context is
+ * created for each call, so the matchers and patterns themselves stay
+ * immutable and can be shared between threads
+ */
+class MatchingContext<E> {
+
+    private final Captures captures;
+    /** the bounds of the current attempt and of its captures, as in {@link Match} */
+    private final int[] slots;
+
+    private List<E> sequence;
+    private final LeafOutcomes<E> leaves;
+
+    private int index = 0;
+    private int startLimit = Integer.MAX_VALUE;
+    private int currentMatcherIndex = 0;
+    /** the position of the current attempt, reused for all the attempts */
+    private final SequenceCursor<E> cursor;
+
+    public MatchingContext(List<E> sequence) {
+        this(NfaFinder.randomAccess(sequence), null, Captures.NONE);
+    }
+
+    /**
+     * @param sequence to be matched, with fast random access
+     * @param leaves the outcomes of leaf matchers, <code>null</code> if
+     *        leaves are evaluated directly
+     * @param captures of the pattern
+     */
+    MatchingContext(List<E> sequence, LeafOutcomes<E> leaves, Captures captures) {
+        this.sequence = sequence;
+        this.leaves = leaves;
+        this.captures = captures;
+        this.slots = new int[2 * captures.size() + 2];
+        this.cursor = new SequenceCursor<E>(sequence, isPositional(sequence));
+    }
+
+    /**
+     * @return <code>true</code> if the leaves test the elements of the
+     *         sequence by their positions, so the elements are not created
+     */
+    private boolean isPositional(List<E> sequence) {
+        return leaves != null && sequence instanceof ColumnarSequence;
+    }
+
+    /**
+     * Starts over with another sequence, the outcomes of the leaves must be
+     * reset separately
+     * 
+     * @param sequence with fast random access
+     */
+    void reset(List<E> sequence) {
+        this.sequence = sequence;
+        index = 0;
+        startLimit = Integer.MAX_VALUE;
+        currentMatcherIndex = 0;
+        cursor.reset(sequence, isPositional(sequence));
+    }
+
+    /**
+     * Ends the current attempt successfully at the current position of the
+     * match cursor. The bounds and the captures of the match stay in the
+     * slots until the next attempt starts, see {@link #slot(int)}
+     * 
+     * @return <code>false</code> if the match is empty and must be ignored
+     */
+    boolean addSuccessfulMatch() {
+        int nextIndex = cursor.nextIndex();
+        if (nextIndex == index) {
+            // empty match, Optional or ZeroOrMore matcher, ignoring it
+            return false;
+        }
+
+        // a lazy matcher can step back to before the start of the attempt,
+        // then the match is invalid
+        if (nextIndex < index) {
+            throw new IllegalStateException("The match ends at " + nextIndex + " before its start at " + index);
+        }
+        slots[0] = index;
+        slots[1] = nextIndex;
+
+        index = nextIndex - 1;
+        return true;
+    }
+
+    /**
+     * @param index of the slot, see {@link Captures}
+     * @return the position kept in the slot for the last successful match
+     */
+    int slot(int index) {
+        return slots[index];
+    }
+
+    /**
+     * @return the last successful match, with a copy of its slots
+     */
+    Match<E> toMatch() {
+        return new Match<E>(slots[0], sequence, slots.clone(), captures);
+    }
+
+    /**
+     * @return the position of the element the current match cursor has just
+     *         returned
+     */
+    int position() {
+        return cursor.previousIndex();
+    }
+
+    /**
+     * @param object the element the current match cursor has just returned
+     * @return the element, created if the cursor does not create the
+     *         elements
+     */
+    E element(E object) {
+        return cursor.isPositional() ? sequence.get(cursor.previousIndex()) : object;
+    }
+
+    /**
+     * Captures the element at the position as the variable
+     * 
+     * @param slot of the variable, <code>-1</code> if it is looked up by name
+     */
+    void captureVariable(int slot, String name, int position) {
+        if (slot < 0) {
+            // not bound at compile time, e.g. inside of a greedy quantifier
+            slot = captures.variable(name);
+            if (slot < 0) {
+                return;
+            }
+        }
+        slots[2 * slot + 2] = position;
+        slots[2 * slot + 3] = position + 1;
+    }
+
+    /**
+     * @return <code>true</code> if an attempt can start at the current
+     *         position
+     */
+    boolean hasNextStart() {
+        return index < sequence.size() && index < startLimit;
+    }
+
+    void nextStart() {
+        index++;
+    }
+
+    /**
+     * Starts an attempt at the current position
+     * 
+     * @return the match cursor, positioned at the start of the attempt
+     */
+    SequenceCursor<E> startAttempt() {
+        // a failed attempt must not leave its captures to the next one
+        Arrays.fill(slots, -1);
+        cursor.moveTo(index);
+        return cursor;
+    }
+
+    SequenceCursor<E> getCurrentMatchCursor() {
+        return cursor;
+    }
+
+    /**
+     * Captures the elements from the start of the current top level matcher
+     * to the current position as the group
+     * 
+     * @param slot of the group, <code>-1</code> if it is looked up by name
+     */
+    void captureGroup(int slot, String name) {
+        if (slot < 0) {
+            // not bound at compile time, e.g. inside of a greedy quantifier
+            slot = captures.group(name);
+            if (slot < 0) {
+                return;
+            }
+        }
+        slots[2 * slot + 2] = currentMatcherIndex;
+        slots[2 * slot + 3] = cursor.nextIndex();
+    }
+
+    /**
+     * Matches the element the current match cursor has just returned with a
+     * leaf matcher
+     */
+    boolean matchLeaf(Matcher<E> leaf, E object) {
+        if (leaves == null) {
+            return leaf.match(object);
+        }
+        return leaves.match(leaf, object, cursor.previousIndex());
+    }
+
+    /**
+     * Makes the next attempt start at the given position, and the last one
+     * right before the limit
+     */
+    void startAt(int index, int startLimit) {
+        this.index = index;
+        this.startLimit = startLimit;
+    }
+
+    void nextMatcher() {
+        currentMatcherIndex = cursor.nextIndex();
+    }
+
+}
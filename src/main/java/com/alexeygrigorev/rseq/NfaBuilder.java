@@ -0,0 +1,232 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds {@link NfaProgram}s. Matchers emit their instructions one after
+ * another, the targets of forward splits and jumps are patched once they are
+ * known. Identical leaf matchers get the same id, so each of them is
+ * evaluated only once per element
+ * 
+ * @param <L> type of the leaf matchers
+ */
+class NfaBuilder<L> {
+
+    private int[] opcodes = new int[16];
+    private int[] arg1 = new int[16];
+    private int[] arg2 = new int[16];
+    private int size = 0;
+
+    private final List<L> leaves;
+    private final Map<L, Integer> leafIds;
+    private final Map<String, Integer> variables = new LinkedHashMap<String, Integer>();
+    private final Map<String, Integer> groups = new LinkedHashMap<String, Integer>();
+    private final List<String> captureNames = new ArrayList<String>();
+    private final List<Boolean> groupCaptures = new ArrayList<Boolean>();
+    private final List<PhraseTrie> tries = new ArrayList<PhraseTrie>();
+    private final List<Integer> trieLeaves = new ArrayList<Integer>();
+    private final List<int[]> nodePcs = new ArrayList<int[]>();
+
+    private final boolean reversed;
+
+    /**
+     * @param reversed if <code>true</code>, the program matches the reversed
+     *        sequence, i.e. the matchers of groups are emitted from the last
+     *        to the first one
+     */
+    NfaBuilder(boolean reversed) {
+        this(reversed, new ArrayList<L>(), new IdentityHashMap<L, Integer>());
+    }
+
+    /**
+     * Creates a builder that shares the leaf ids with other builders, so
+     * several programs can be run against the same input
+     * 
+     * @param leaves all the leaves known so far, in the order of their ids
+     * @param leafIds the ids of the leaves, the map decides which leaves are
+     *        the same
+     */
+    NfaBuilder(List<L> leaves, Map<L, Integer> leafIds) {
+        this(false, leaves, leafIds);
+    }
+
+    private NfaBuilder(boolean reversed, List<L> leaves, Map<L, Integer> leafIds) {
+        this.reversed = reversed;
+        this.leaves = leaves;
+        this.leafIds = leafIds;
+        save(0);
+    }
+
+    /**
+     * @param reversed see {@link #NfaBuilder(boolean)}
+     * @param leaves leaves that get their ids in advance, so two programs built
+     *        from the same matchers share the same leaf ids
+     */
+    NfaBuilder(boolean reversed, List<L> leaves) {
+        this(reversed);
+        for (L leaf : leaves) {
+            register(leaf);
+        }
+    }
+
+    boolean isReversed() {
+        return reversed;
+    }
+
+    /**
+     * @return the address of the next instruction to be emitted
+     */
+    int pc() {
+        return size;
+    }
+
+    void leaf(L leaf) {
+        emit(NfaProgram.LEAF, register(leaf), 0);
+    }
+
+    /**
+     * Registers a trie, its nodes are emitted with {@link #step(int, int)}
+     * and the addresses of the nodes are set later with
+     * {@link #patchTrie(int, int[])}
+     * 
+     * @param keys the leaf that extracts the keys of the elements
+     * @param trie to be stepped through
+     * @return the id of the trie
+     */
+    int trie(L keys, PhraseTrie trie) {
+        tries.add(trie);
+        trieLeaves.add(register(keys));
+        nodePcs.add(null);
+        return tries.size() - 1;
+    }
+
+    /**
+     * Emits the instruction that moves from the node to its child for the key
+     * of the next element
+     */
+    void step(int trie, int node) {
+        emit(NfaProgram.TRIE, trie, node);
+    }
+
+    /**
+     * @param pcs the address where the instructions of each node of the trie
+     *        start
+     */
+    void patchTrie(int trie, int[] pcs) {
+        nodePcs.set(trie, pcs);
+    }
+
+    private int register(L leaf) {
+        Integer id = leafIds.get(leaf);
+        if (id == null) {
+            id = leaves.size();
+            leaves.add(leaf);
+            leafIds.put(leaf, id);
+        }
+        return id;
+    }
+
+    /**
+     * Emits a split, the targets of which are set later with
+     * {@link #patch(int, int, int)}
+     * 
+     * @return the address of the split
+     */
+    int split() {
+        return emit(NfaProgram.SPLIT, -1, -1);
+    }
+
+    void patch(int split, int preferred, int other) {
+        arg1[split] = preferred;
+        arg2[split] = other;
+    }
+
+    void jump(int target) {
+        emit(NfaProgram.JUMP, target, 0);
+    }
+
+    /**
+     * Emits a jump, the target of which is set later with
+     * {@link #patchJump(int, int)}
+     * 
+     * @return the address of the jump
+     */
+    int jump() {
+        return emit(NfaProgram.JUMP, -1, 0);
+    }
+
+    void patchJump(int jump, int target) {
+        arg1[jump] = target;
+    }
+
+    void save(int slot) {
+        emit(NfaProgram.SAVE, slot, 0);
+    }
+
+    /**
+     * @return the first slot of the variable with the given name
+     */
+    int variable(String name) {
+        return capture(variables, name, false);
+    }
+
+    /**
+     * @return the first slot of the group with the given name
+     */
+    int group(String name) {
+        return capture(groups, name, true);
+    }
+
+    private int capture(Map<String, Integer> captures, String name, boolean group) {
+        Integer index = captures.get(name);
+        if (index == null) {
+            index = captureNames.size();
+            captureNames.add(name);
+            groupCaptures.add(group);
+            captures.put(name, index);
+        }
+        return 2 * index + 2;
+    }
+
+    private int emit(int opcode, int a1, int a2) {
+        if (size == opcodes.length) {
+            opcodes = Arrays.copyOf(opcodes, size * 2);
+            arg1 = Arrays.copyOf(arg1, size * 2);
+            arg2 = Arrays.copyOf(arg2, size * 2);
+        }
+        opcodes[size] = opcode;
+        arg1[size] = a1;
+        arg2[size] = a2;
+        return size++;
+    }
+
+    List<L> leaves() {
+        return leaves;
+    }
+
+    NfaProgram build() {
+        save(1);
+        emit(NfaProgram.MATCH, 0, 0);
+
+        boolean[] groupFlags = new boolean[groupCaptures.size()];
+        for (int i = 0; i < groupFlags.length; i++) {
+            groupFlags[i] = groupCaptures.get(i);
+        }
+
+        int[] keyLeaves = new int[trieLeaves.size()];
+        for (int i = 0; i < keyLeaves.length; i++) {
+            keyLeaves[i] = trieLeaves.get(i);
+        }
+
+        Captures captures = new Captures(captureNames.toArray(new String[0]), groupFlags);
+        return new NfaProgram(Arrays.copyOf(opcodes, size), Arrays.copyOf(arg1, size),
+                Arrays.copyOf(arg2, size), leaves.size(), captures, tries.toArray(new PhraseTrie[0]), keyLeaves,
+                nodePcs.toArray(new int[0][]));
+    }
+
+}
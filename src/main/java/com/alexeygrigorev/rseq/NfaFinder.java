@@ -0,0 +1,199 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The finder of the {@link Engine#NFA} engine: compiles the matchers to an
+ * {@link NfaProgram} and runs it with the {@link PikeVm}
+ */
+class NfaFinder<E> implements Finder<E> {
+
+    final NfaProgram program;
+    final List<Matcher<E>> leaves;
+
+    NfaFinder(List<ParentMatcher<E>> matchers) {
+        NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(false);
+        emit(matchers, builder);
+        this.program = builder.build();
+        this.leaves = builder.leaves();
+    }
+
+    static <E> void emit(List<ParentMatcher<E>> matchers, NfaBuilder<Matcher<E>> builder) {
+        boolean reversed = builder.isReversed();
+        for (int i = 0; i < matchers.size(); i++) {
+            int index = reversed ? matchers.size() - 1 - i : i;
+            matchers.get(index).emit(builder);
+        }
+    }
+
+    @Override
+    public List<Match<E>> find(List<E> sequence) {
+        sequence = randomAccess(sequence);
+        return find(sequence, new LeafInput<E>(leaves, sequence));
+    }
+
+    @Override
+    public List<Match<E>> find(EvaluatedSequence<E> sequence) {
+        return find(sequence.getSequence(), new LeafColumns<E>(leaves, sequence));
+    }
+
+    @Override
+    public MatchCursor<E> matcher(List<E> sequence) {
+        sequence = randomAccess(sequence);
+        return matcher(sequence, new LeafInput<E>(leaves, sequence));
+    }
+
+    @Override
+    public MatchCursor<E> matcher(EvaluatedSequence<E> sequence) {
+        return matcher(sequence.getSequence(), new LeafColumns<E>(leaves, sequence));
+    }
+
+    @Override
+    public int count(List<E> sequence) {
+        sequence = randomAccess(sequence);
+        return count(sequence, new LeafInput<E>(leaves, sequence));
+    }
+
+    @Override
+    public int count(EvaluatedSequence<E> sequence) {
+        return count(sequence.getSequence(), new LeafColumns<E>(leaves, sequence));
+    }
+
+    /**
+     * @param sequence to be matched, with fast random access
+     * @param input the outcomes of the leaves for the elements of the sequence
+     * @return list of found matches
+     */
+    List<Match<E>> find(List<E> sequence, PikeVm.Input input) {
+        return matcher(sequence, input).findAll();
+    }
+
+    /**
+     * @param sequence to be matched, with fast random access
+     * @param input the outcomes of the leaves for the elements of the sequence
+     * @return the cursor over the matches
+     */
+    MatchCursor<E> matcher(List<E> sequence, final PikeVm.Input input) {
+        final PikeVm vm = new PikeVm(program);
+        return new SlotCursor<E>(program, sequence) {
+            @Override
+            void reset(List<E> sequence) {
+                super.reset(resetInput(input, sequence));
+            }
+
+            @Override
+            boolean search(int from) {
+                int size = sequence.size();
+                if (from >= size || !vm.search(input, from, size, startLimit)) {
+                    return false;
+                }
+                found(vm.matchSlots());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param sequence to be matched, with fast random access
+     * @param input the outcomes of the leaves for the elements of the sequence
+     * @return the number of found matches
+     */
+    int count(List<E> sequence, PikeVm.Input input) {
+        PikeVm vm = new PikeVm(program);
+
+        int size = sequence.size();
+        int from = 0;
+        int count = 0;
+        while (from < size && vm.search(input, from, size)) {
+            count++;
+            from = vm.matchSlots()[1];
+        }
+
+        return count;
+    }
+
+    /**
+     * Makes the input of a cursor test the leaves against another sequence
+     * 
+     * @return the sequence with fast random access
+     */
+    static <E> List<E> resetInput(PikeVm.Input input, List<E> sequence) {
+        Validate.validState(input instanceof LeafInput, "Only cursors over lists can be reset");
+        sequence = randomAccess(sequence);
+        @SuppressWarnings("unchecked")
+        LeafInput<E> leafInput = (LeafInput<E>) input;
+        leafInput.reset(sequence);
+        return sequence;
+    }
+
+    static <E> List<E> randomAccess(List<E> sequence) {
+        if (sequence instanceof RandomAccess) {
+            return sequence;
+        }
+        return new ArrayList<E>(sequence);
+    }
+
+    static <E> Match<E> toMatch(List<E> sequence, int start, int end) {
+        return new Match<E>(sequence, start, end);
+    }
+
+    Match<E> toMatch(List<E> sequence, int[] slots) {
+        return toMatch(program, sequence, slots);
+    }
+
+    /**
+     * @param slots of the match, they are copied since the VM reuses them
+     */
+    static <E> Match<E> toMatch(NfaProgram program, List<E> sequence, int[] slots) {
+        return new Match<E>(slots[0], sequence, slots.clone(), program.captures);
+    }
+
+    /**
+     * The cursor of the engines that run an {@link NfaProgram}: the variables
+     * and groups are taken from the slots of the current match
+     */
+    abstract static class SlotCursor<E> extends MatchCursor<E> {
+
+        private final NfaProgram program;
+        /** the slots of the current match, <code>null</code> if only its bounds are known */
+        private int[] slots;
+
+        SlotCursor(NfaProgram program, List<E> sequence) {
+            super(sequence, program.captures);
+            this.program = program;
+        }
+
+        void found(int[] slots) {
+            this.slots = slots;
+            this.start = slots[0];
+            this.end = slots[1];
+        }
+
+        void found(int start, int end) {
+            this.slots = null;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        int slot(int index) {
+            if (slots == null) {
+                return index == 0 ? start : index == 1 ? end : -1;
+            }
+            return slots[index];
+        }
+
+        @Override
+        Match<E> createMatch() {
+            if (slots == null) {
+                return NfaFinder.toMatch(sequence, start, end);
+            }
+            return NfaFinder.toMatch(program, sequence, slots);
+        }
+    }
+
+}
@@ -0,0 +1,322 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A pattern compiled to a Thompson NFA: a flat list of instructions that is
+ * simulated by {@link PikeVm}. Leaf matchers are referenced by their ids, so
+ * the program itself does not depend on the type of the sequence elements.<br>
+ * <br>
+ * 
+ * Slots 0 and 1 keep the start and the end of the whole match, each capture
+ * <code>k</code> uses slots <code>2k + 2</code> and <code>2k + 3</code> for
+ * the start and the end of the captured subsequence
+ * 
+ * @see NfaBuilder
+ */
+class NfaProgram {
+
+    /** consumes one element if the leaf <code>arg1</code> matches it */
+    static final int LEAF = 0;
+    /** continues at <code>arg1</code> and, with lower priority, at <code>arg2</code> */
+    static final int SPLIT = 1;
+    /** continues at <code>arg1</code> */
+    static final int JUMP = 2;
+    /** remembers the current position in the slot <code>arg1</code> */
+    static final int SAVE = 3;
+    /** the pattern is matched */
+    static final int MATCH = 4;
+    /**
+     * consumes one element if the node <code>arg2</code> of the trie
+     * <code>arg1</code> has a child for its key, and continues at the child,
+     * see {@link #target(int, Object)}
+     */
+    static final int TRIE = 5;
+
+    private static final byte NEW = 0;
+    private static final byte VISITING = 1;
+    private static final byte DONE = 2;
+
+    final int[] opcodes;
+    final int[] arg1;
+    final int[] arg2;
+
+    final int leafCount;
+    final Captures captures;
+
+    /** the tries of the trie instructions, by their ids */
+    private final PhraseTrie[] tries;
+    /** for each trie, the leaf that extracts the keys from the elements */
+    private final int[] trieLeaves;
+    /** for each trie, the address where the instructions of each node start */
+    private final int[][] nodePcs;
+    /** the addresses of the children of the node of each trie instruction */
+    private final int[][] trieTargets;
+
+    NfaProgram(int[] opcodes, int[] arg1, int[] arg2, int leafCount, Captures captures, PhraseTrie[] tries,
+            int[] trieLeaves, int[][] nodePcs) {
+        this.opcodes = opcodes;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.leafCount = leafCount;
+        this.captures = captures;
+        this.tries = tries;
+        this.trieLeaves = trieLeaves;
+        this.nodePcs = nodePcs;
+
+        this.trieTargets = new int[opcodes.length][];
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            if (opcodes[pc] == TRIE) {
+                Collection<Integer> children = tries[arg1[pc]].children(arg2[pc]).values();
+                int[] targets = new int[children.size()];
+                int i = 0;
+                for (int child : children) {
+                    targets[i++] = nodePcs[arg1[pc]][child];
+                }
+                trieTargets[pc] = targets;
+            }
+        }
+    }
+
+    int size() {
+        return opcodes.length;
+    }
+
+    int slotCount() {
+        return 2 * captures.size() + 2;
+    }
+
+    boolean hasCaptures() {
+        return captures.size() > 0;
+    }
+
+    /**
+     * @param pc the address of a trie instruction
+     * @return the leaf that extracts the key of the element the instruction
+     *         consumes, see {@link PikeVm.Input#key(int, int)}
+     */
+    int keyLeaf(int pc) {
+        return trieLeaves[arg1[pc]];
+    }
+
+    /**
+     * Steps the trie of a trie instruction with one hash lookup, so the cost
+     * does not depend on the size of the dictionary
+     * 
+     * @param pc the address of a trie instruction
+     * @param key of the consumed element
+     * @return the address of the child node for the key, or <code>-1</code>
+     *         if the node has no such child
+     */
+    int target(int pc, Object key) {
+        int trie = arg1[pc];
+        int child = tries[trie].child(arg2[pc], key);
+        if (child == PhraseTrie.NONE) {
+            return -1;
+        }
+        return nodePcs[trie][child];
+    }
+
+    /**
+     * @return the maximal number of elements a match can consume, or
+     *         <code>-1</code> if the program has loops and the matches can be
+     *         arbitrarily long
+     */
+    int maxSpan() {
+        int size = size();
+        int[] spans = new int[size];
+        byte[] states = new byte[size];
+        // the number of successors of each instruction visited so far
+        int[] visited = new int[size];
+        int[] stack = new int[size];
+
+        int top = 0;
+        stack[top++] = 0;
+        states[0] = VISITING;
+
+        while (top > 0) {
+            int pc = stack[top - 1];
+            int count = successorCount(pc);
+            if (visited[pc] < count) {
+                int successor = successor(pc, visited[pc]++);
+                if (states[successor] == VISITING) {
+                    return -1;
+                }
+                if (states[successor] == NEW) {
+                    stack[top++] = successor;
+                    states[successor] = VISITING;
+                }
+                continue;
+            }
+
+            int span = 0;
+            for (int i = 0; i < count; i++) {
+                span = Math.max(span, spans[successor(pc, i)]);
+            }
+            if (isConsuming(pc)) {
+                span++;
+            }
+
+            spans[pc] = span;
+            states[pc] = DONE;
+            top--;
+        }
+
+        return spans[0];
+    }
+
+    /**
+     * @return for each leaf, <code>true</code> if every match consumes an
+     *         element the leaf matches, i.e. the pattern cannot match a
+     *         sequence without such elements
+     */
+    boolean[] requiredLeaves() {
+        boolean[] required = new boolean[leafCount];
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            required[leaf] = !reachesMatch(leaf);
+        }
+        return required;
+    }
+
+    /**
+     * @return <code>true</code> if the match instruction can be reached
+     *         without passing the leaf
+     */
+    private boolean reachesMatch(int blockedLeaf) {
+        int size = size();
+        boolean[] seen = new boolean[size];
+        int[] stack = new int[size];
+
+        int top = 0;
+        stack[top++] = 0;
+        seen[0] = true;
+        while (top > 0) {
+            int pc = stack[--top];
+            if (opcodes[pc] == MATCH) {
+                return true;
+            }
+            if (opcodes[pc] == LEAF && arg1[pc] == blockedLeaf) {
+                continue;
+            }
+            int count = successorCount(pc);
+            for (int i = 0; i < count; i++) {
+                int successor = successor(pc, i);
+                if (!seen[successor]) {
+                    seen[successor] = true;
+                    stack[top++] = successor;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return for each leaf, the number of elements every match consumes
+     *         before the element matched by the leaf, or <code>-1</code> if
+     *         it is not the same for all the matches
+     */
+    int[] leafOffsets() {
+        int size = size();
+        // the elements consumed before each instruction: -2 if it is not
+        // reached yet, -1 if there are several possibilities
+        int[] consumed = new int[size];
+        Arrays.fill(consumed, -2);
+        int[] stack = new int[2 * size + 1];
+
+        int top = 0;
+        consumed[0] = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int pc = stack[--top];
+            int after = consumed[pc];
+            if (after >= 0 && isConsuming(pc)) {
+                after++;
+            }
+            int count = successorCount(pc);
+            for (int i = 0; i < count; i++) {
+                int successor = successor(pc, i);
+                int before = consumed[successor];
+                int merged = before == -2 || before == after ? after : -1;
+                if (merged != before) {
+                    // each instruction changes at most twice
+                    consumed[successor] = merged;
+                    stack[top++] = successor;
+                }
+            }
+        }
+
+        int[] offsets = new int[leafCount];
+        Arrays.fill(offsets, -2);
+        for (int pc = 0; pc < size; pc++) {
+            if (opcodes[pc] == LEAF && consumed[pc] != -2) {
+                int leaf = arg1[pc];
+                offsets[leaf] = offsets[leaf] == -2 || offsets[leaf] == consumed[pc] ? consumed[pc] : -1;
+            }
+        }
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            offsets[leaf] = Math.max(offsets[leaf], -1);
+        }
+        return offsets;
+    }
+
+    private boolean isConsuming(int pc) {
+        return opcodes[pc] == LEAF || opcodes[pc] == TRIE;
+    }
+
+    private int successorCount(int pc) {
+        switch (opcodes[pc]) {
+        case SPLIT:
+            return 2;
+        case MATCH:
+            return 0;
+        case TRIE:
+            return trieTargets[pc].length;
+        default:
+            return 1;
+        }
+    }
+
+    private int successor(int pc, int i) {
+        switch (opcodes[pc]) {
+        case SPLIT:
+            return i == 0 ? arg1[pc] : arg2[pc];
+        case JUMP:
+            return arg1[pc];
+        case TRIE:
+            return trieTargets[pc][i];
+        default:
+            return pc + 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < opcodes.length; pc++) {
+            sb.append(pc).append(": ");
+            switch (opcodes[pc]) {
+            case LEAF:
+                sb.append("leaf ").append(arg1[pc]);
+                break;
+            case SPLIT:
+                sb.append("split ").append(arg1[pc]).append(", ").append(arg2[pc]);
+                break;
+            case JUMP:
+                sb.append("jump ").append(arg1[pc]);
+                break;
+            case SAVE:
+                sb.append("save ").append(arg1[pc]);
+                break;
+            case TRIE:
+                sb.append("trie ").append(arg1[pc]).append(", node ").append(arg2[pc]);
+                break;
+            default:
+                sb.append("match");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+}
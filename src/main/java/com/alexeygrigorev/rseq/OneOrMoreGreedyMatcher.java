@@ -1,37 +1,55 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.ListIterator;
-
-class OneOrMoreGreedyMatcher<E> extends DelegatingMatcher<E> {
-
-    public OneOrMoreGreedyMatcher(Matcher<E> matcher) {
-        super(matcher);
-    }
-
-    @Override
-    public boolean match(E object) {
-        if (!delegateMatch(object)) {
-            return false;
-        }
-
-        ListIterator<E> currentIterator = context().getCurrentMatchIterator();
-        while (currentIterator.hasNext()) {
-            E next = currentIterator.next();
-            if (!delegateMatch(next)) {
-                currentIterator.previous();
-                break;
-            }
-        }
-        return true;
-    }
-
-    @Override
-    public ParentMatcher<E> captureAs(String name) {
-        return new CapturingGroupMatcher<E>(name, this);
-    }
-
-    @Override
-    public String toString() {
-        return "[" + delegateToString() + "]+";
-    }
-}
+package com.alexeygrigorev.rseq;
+
+class OneOrMoreGreedyMatcher<E> extends DelegatingMatcher<E> {
+
+    public OneOrMoreGreedyMatcher(Matcher<E> matcher) {
+        super(matcher);
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        if (!delegateMatch(object, context)) {
+            return false;
+        }
+
+        SequenceCursor<E> currentCursor = context.getCurrentMatchCursor();
+        while (currentCursor.hasNext()) {
+            E next = currentCursor.next();
+            if (!delegateMatch(next, context)) {
+                currentCursor.back();
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the matcher prefers to consume as many
+     *         elements as possible
+     */
+    boolean isGreedy() {
+        return true;
+    }
+
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        int body = nfa.pc();
+        emitDelegate(nfa);
+        int split = nfa.split();
+        if (isGreedy()) {
+            nfa.patch(split, body, nfa.pc());
+        } else {
+            nfa.patch(split, nfa.pc(), body);
+        }
+    }
+
+    @Override
+    public ParentMatcher<E> captureAs(String name) {
+        return new CapturingGroupMatcher<E>(name, this);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + delegateToString() + "]+";
+    }
+}
@@ -1,32 +1,40 @@
-package com.alexeygrigorev.rseq;
-
-class OptionalMatcher<E> extends DelegatingMatcher<E> {
-
-    public OptionalMatcher(Matcher<E> matcher) {
-        super(matcher);
-    }
-
-    @Override
-    public boolean match(E object) {
-        if (delegateMatch(object)) {
-            return true;
-        }
-        context().getCurrentMatchIterator().previous();
-        return true;
-    }
-
-    @Override
-    public ParentMatcher<E> captureAs(String name) {
-        throw new UnsupportedOperationException("Capturing optional matchers is not yet supported");
-    }
-
-    @Override
-    boolean isOptional() {
-        return true;
-    }
-
-    @Override
-    public String toString() {
-        return "[" + delegateToString() + "]?";
-    }
-}
+package com.alexeygrigorev.rseq;
+
+class OptionalMatcher<E> extends DelegatingMatcher<E> {
+
+    public OptionalMatcher(Matcher<E> matcher) {
+        super(matcher);
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        if (delegateMatch(object, context)) {
+            return true;
+        }
+        context.getCurrentMatchCursor().back();
+        return true;
+    }
+
+    @Override
+    public ParentMatcher<E> captureAs(String name) {
+        throw new UnsupportedOperationException("Capturing optional matchers is not yet supported");
+    }
+
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        int split = nfa.split();
+        int body = nfa.pc();
+        emitDelegate(nfa);
+        nfa.patch(split, body, nfa.pc());
+    }
+
+    @Override
+    boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + delegateToString() + "]?";
+    }
+}
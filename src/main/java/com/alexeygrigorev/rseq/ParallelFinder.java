@@ -0,0 +1,162 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Finds the matches of a pattern in a long sequence with several threads,
+ * see {@link Pattern#findParallel(List, ForkJoinPool)}.<br>
+ * <br>
+ * 
+ * The sequence is cut into chunks, and each chunk is scanned independently
+ * for the matches that start in it, as if the previous match ended right at
+ * the start of the chunk. Then the chunks are stitched from left to right.
+ * The true scan enters a chunk at the end of the last match before it. While
+ * this position is inside of a speculatively found match, the matches are
+ * searched again from it. As soon as it falls between two speculative matches,
+ * the scans agree: the next match is the leftmost one starting after this
+ * position, and it is the same for both scans. Usually the scans agree right
+ * away, so the stitching takes almost no time
+ */
+class ParallelFinder<E> {
+
+    static final int MIN_CHUNK = 4096;
+
+    /** more chunks than threads, so the threads are busy till the end */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Pattern<E> pattern;
+    private final List<E> sequence;
+    private final int[] bounds;
+
+    /**
+     * @param pattern to find, its leaves are evaluated directly
+     * @param sequence to be matched, with fast random access
+     * @param chunks the number of chunks
+     */
+    private ParallelFinder(Pattern<E> pattern, List<E> sequence, int chunks) {
+        this.pattern = pattern;
+        this.sequence = sequence;
+        this.bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            bounds[i] = (int) ((long) sequence.size() * i / chunks);
+        }
+    }
+
+    static <E> List<Match<E>> find(Pattern<E> pattern, List<E> sequence, ForkJoinPool pool, int minChunk) {
+        int chunks = Math.min(sequence.size() / minChunk, CHUNKS_PER_THREAD * pool.getParallelism());
+        if (chunks <= 1) {
+            return pattern.find(sequence);
+        }
+
+        sequence = NfaFinder.randomAccess(sequence);
+        // memoized leaves would keep a column of the whole sequence per chunk
+        Pattern<E> direct = pattern.withEvaluation(Evaluation.DIRECT);
+        return new ParallelFinder<E>(direct, sequence, chunks).find(pool);
+    }
+
+    private List<Match<E>> find(ForkJoinPool pool) {
+        List<Callable<List<Match<E>>>> tasks = new ArrayList<Callable<List<Match<E>>>>();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final int chunk = i;
+            tasks.add(() -> scan(chunk));
+        }
+
+        List<Future<List<Match<E>>>> futures = pool.invokeAll(tasks);
+        List<List<Match<E>>> chunks = new ArrayList<List<Match<E>>>(futures.size());
+        for (Future<List<Match<E>>> future : futures) {
+            chunks.add(get(future));
+        }
+
+        return stitch(chunks);
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while finding matches", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the matches starting in the chunk when the scan starts at its
+     *         first element
+     */
+    private List<Match<E>> scan(int chunk) {
+        MatchCursor<E> cursor = pattern.matcher(sequence);
+        cursor.startAt(bounds[chunk]);
+        cursor.limitStarts(bounds[chunk + 1]);
+        return cursor.findAll();
+    }
+
+    private List<Match<E>> stitch(List<List<Match<E>>> chunks) {
+        List<Match<E>> results = new ArrayList<Match<E>>();
+        MatchCursor<E> cursor = null;
+
+        // where the true scan looks for the next match
+        int from = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            List<Match<E>> matches = chunks.get(i);
+            int chunkFrom = bounds[i];
+            int chunkTo = bounds[i + 1];
+
+            while (from < chunkTo) {
+                int next = firstStartingAt(matches, from);
+                int gapFrom = next == 0 ? chunkFrom : matches.get(next - 1).matchedTo();
+                if (gapFrom <= from) {
+                    // the scans agree from now on
+                    results.addAll(matches.subList(next, matches.size()));
+                    from = chunkTo;
+                    if (next < matches.size()) {
+                        from = Math.max(from, matches.get(matches.size() - 1).matchedTo());
+                    }
+                    break;
+                }
+
+                // inside of a speculative match, so it is searched again
+                if (cursor == null) {
+                    cursor = pattern.matcher(sequence);
+                }
+                cursor.startAt(from);
+                cursor.limitStarts(chunkTo);
+                if (!cursor.find()) {
+                    from = chunkTo;
+                    break;
+                }
+                results.add(cursor.toMatch());
+                from = cursor.end();
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the index of the first match starting at the position or later
+     */
+    private static <E> int firstStartingAt(List<Match<E>> matches, int position) {
+        int low = 0;
+        int high = matches.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (matches.get(middle).matchedFrom() < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
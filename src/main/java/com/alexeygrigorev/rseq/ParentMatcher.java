@@ -1,60 +1,88 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Common parent for all internal implementations
- * 
- * @author Alexey Grigorev
- */
-abstract class ParentMatcher<E> extends XMatcher<E> {
-
-    private MatchingContext<E> context;
-    protected int index = -999;
-
-    void setContext(MatchingContext<E> context) {
-        this.context = context;
-    }
-
-    int register(MatchingContext<E> context) {
-        // setContext(context);
-        this.index = context.register(this);
-        return this.index;
-    }
-
-    void initialize(MatchingContext<E> context) {
-    }
-
-    MatchingContext<E> context() {
-        return context;
-    }
-
-    /**
-     * TODO:
-     * 
-     * Marker interface for marking matchers that can accept no input. It's
-     * needed when we run into the end of sequence and need to check if all the
-     * remaining matchers are optional or not.
-     */
-    boolean isOptional() {
-        return false;
-    }
-
-    static <E> ParentMatcher<E> wrap(final Matcher<E> matcher) {
-        if (matcher instanceof ParentMatcher) {
-            return (ParentMatcher<E>) matcher;
-        } else {
-            return DelegatingMatcher.wrap(matcher);
-        }
-    }
-
-    static <E> List<ParentMatcher<E>> wrapMatchers(List<Matcher<E>> matchers) {
-        List<ParentMatcher<E>> list = new ArrayList<ParentMatcher<E>>(matchers.size());
-        for (Matcher<E> matcher : matchers) {
-            list.add(wrap(matcher));
-        }
-        return list;
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Common parent for all internal implementations
+ * 
+ * @author Alexey Grigorev
+ */
+abstract class ParentMatcher<E> extends XMatcher<E> {
+
+    /**
+     * Matches the object as a part of a pattern. The context keeps all the
+     * state of the current matching call, so matchers that consume several
+     * elements or capture variables do not keep any state themselves
+     * 
+     * @param object to test
+     * @param context of the current matching call
+     * @return <code>true</code> if the match is successful
+     */
+    boolean match(E object, MatchingContext<E> context) {
+        return context.matchLeaf(this, object);
+    }
+
+    /**
+     * Adds the matcher to the flat program of a pattern. It is done only once
+     * when the pattern is created. Matchers that depend on their position in
+     * the program return a copy bound to this position, so the same matcher
+     * instance can safely be shared by several patterns
+     * 
+     * @param program the flat program being built
+     * @param captures of the pattern, the capturing matchers are bound to
+     *        their slots
+     * @return the matcher to be used by the pattern
+     */
+    ParentMatcher<E> compile(List<ParentMatcher<E>> program, Captures captures) {
+        program.add(this);
+        return this;
+    }
+
+    /**
+     * Called once the whole program of a pattern is compiled
+     * 
+     * @param program the flat program of the pattern
+     */
+    void initialize(List<ParentMatcher<E>> program) {
+    }
+
+    /**
+     * Emits the instructions of the matcher to the NFA program of a pattern.
+     * By default the matcher is a leaf that consumes exactly one element
+     * 
+     * @param nfa the builder of the program
+     * @see Engine#NFA
+     */
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        nfa.leaf(this);
+    }
+
+    /**
+     * TODO:
+     * 
+     * Marker interface for marking matchers that can accept no input. It's
+     * needed when we run into the end of sequence and need to check if all the
+     * remaining matchers are optional or not.
+     */
+    boolean isOptional() {
+        return false;
+    }
+
+    static <E> ParentMatcher<E> wrap(final Matcher<E> matcher) {
+        if (matcher instanceof ParentMatcher) {
+            return (ParentMatcher<E>) matcher;
+        } else {
+            return DelegatingMatcher.wrap(matcher);
+        }
+    }
+
+    static <E> List<ParentMatcher<E>> wrapMatchers(List<Matcher<E>> matchers) {
+        List<ParentMatcher<E>> list = new ArrayList<ParentMatcher<E>>(matchers.size());
+        for (Matcher<E> matcher : matchers) {
+            list.add(wrap(matcher));
+        }
+        return list;
+    }
+
+}
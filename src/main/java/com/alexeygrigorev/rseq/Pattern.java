@@ -1,191 +1,504 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-
-import org.apache.commons.lang3.Validate;
-
-/**
- * This class represents a pattern to be found in a sequence. The pattern is
- * composed of {@link Matcher}s, each of which is able to match one or more
- * elements of the sequence. When all matchers in the pattern match some
- * subsequence of the input sequence, we find a {@link Match}. The found
- * subsequences can then be transformed using the
- * {@link #replaceToOne(List, TransformerToElement)} method.<br>
- * <br>
- * 
- * To create a pattern, use {@link #create(Matcher...)} method. To see available
- * Matcher implementations, see {@link Matchers} and {@link BeanMatchers}
- * 
- * 
- * @author Alexey Grigorev
- * @see Matcher
- * @see Match
- * @see TransformerToElement
- *
- * @param <E>
- */
-public class Pattern<E> {
-
-    private final List<ParentMatcher<E>> matchers;
-
-    private Pattern(List<ParentMatcher<E>> matchers) {
-        this.matchers = matchers;
-    }
-
-    /**
-     * Tries to match the pattern with all the subsequences of the input
-     * sequence. If a subsequence is matched, then a {@link Match} object is
-     * created.
-     * 
-     * @param sequence to be matched
-     * @return list of found matches
-     */
-    public List<Match<E>> find(List<E> sequence) {
-        MatchingContext<E> context = new MatchingContext<E>(sequence);
-        initialize(context);
-
-        // TODO: no need for iterator
-        Iterator<Void> iterator = context.findIterator();
-        while (iterator.hasNext()) {
-            Iterator<E> matchIterator = context.matchIterator();
-            boolean success = true;
-
-            for (ParentMatcher<E> matcher : matchers) {
-                if (!matchIterator.hasNext()) {
-                    if (matcher.isOptional()) {
-                        continue;
-                    }
-                    success = false;
-                    break;
-                }
-                context.nextMatcher();
-                E next = matchIterator.next();
-                if (!matcher.match(next)) {
-                    success = false;
-                    break;
-                }
-            }
-
-            if (success) {
-                context.addSuccessfulMatch();
-            }
-            iterator.next();
-        }
-
-        return context.getAllResults();
-    }
-
-    private void initialize(MatchingContext<E> context) {
-        for (ParentMatcher<E> matcher : matchers) {
-            matcher.setContext(context);
-            matcher.register(context);
-        }
-        for (ParentMatcher<E> matcher : matchers) {
-            matcher.initialize(context);
-        }
-    }
-
-    /**
-     * Matches the pattern against the provided sequence, and then replaces all
-     * found matches by applying transformation to all matched subsequences and
-     * replaces their content in the place of the original subsequence. If there
-     * are no matches found, then the provided sequence is returned back. <br>
-     * <br>
-     * Note that the method does not modify the suppled sequence, but it creates
-     * and returns a new list. <br>
-     * <br>
-     * You can use this method then you need to replace each matched
-     * subsequences by exactly one element. If you need to replace them by other
-     * sequences or use any additional information (like captured variables, as
-     * provided by {@link ParentMatcher#captureAs(String)}), then you should use
-     * {@link #replace(List, TransformerToList)} method instead
-     * 
-     * @param sequence to transform
-     * @param transformer transformation to be applied to each matched
-     *        subsequence
-     * @return transformed sequence
-     */
-    public List<E> replaceToOne(List<E> sequence, final TransformerToElement<E> transformer) {
-        return replace(sequence, new TransformerToList<E>() {
-            @Override
-            public List<E> transform(Match<E> match) {
-                E result = transformer.transform(match);
-                return Collections.singletonList(result);
-            }
-        });
-    }
-
-    /**
-     * Matches the pattern against the provided sequence, and then replaces all
-     * found matches by applying transformation to all matched subsequences and
-     * replaces their content in the place of the original subsequence. If there
-     * are no matches found, then the provided sequence is returned back. <br>
-     * <br>
-     * Note that the method does not modify the suppled sequence, but it creates
-     * and returns a new list. <br>
-     * <br>
-     * Use this method then you need some additional information about the
-     * match, like variables (e.g. from {@link ParentMatcher#captureAs(String)})
-     * or when the result of the transformation is also a sequence. However in
-     * most cases you probably will need to transform each subsequence to a
-     * single element, and thus, use {@link #replaceToOne(List, TransformerToElement)}.
-     * 
-     * @param sequence to transform
-     * @param transformer transformation to be applied to each matched
-     *        subsequence
-     * @return transformed sequence
-     */
-    public List<E> replace(List<E> sequence, TransformerToList<E> transformer) {
-        List<Match<E>> matches = find(sequence);
-        return replace(sequence, matches, transformer);
-    }
-
-    private List<E> replace(List<E> sequence, List<Match<E>> matches, TransformerToList<E> transformer) {
-        if (matches.isEmpty()) {
-            return sequence;
-        }
-
-        List<E> result = new ArrayList<E>(sequence.size() - matches.size());
-        Iterator<Match<E>> iterator = matches.iterator();
-
-        int notMatchedFrom = 0;
-        int notMatchedTo = -1;
-        while (iterator.hasNext()) {
-            Match<E> match = iterator.next();
-
-            notMatchedTo = match.matchedFrom();
-            result.addAll(sequence.subList(notMatchedFrom, notMatchedTo));
-            result.addAll(transformer.transform(match));
-            notMatchedFrom = match.matchedTo();
-        }
-
-        result.addAll(sequence.subList(notMatchedFrom, sequence.size()));
-        return result;
-    }
-
-    @Override
-    public String toString() {
-        return matchers.toString();
-    }
-
-    /**
-     * Creates a pattern from supplied matchers
-     */
-    @SafeVarargs
-    public static <E> Pattern<E> create(Matcher<E>... matchers) {
-        return create(Arrays.asList(matchers));
-    }
-
-    /**
-     * Creates a pattern from supplied matchers
-     */
-    public static <E> Pattern<E> create(List<Matcher<E>> matchers) {
-        Validate.notEmpty(matchers, "Pattern must not be empty");
-        return new Pattern<E>(ParentMatcher.wrapMatchers(matchers));
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * This class represents a pattern to be found in a sequence. The pattern is
+ * composed of {@link Matcher}s, each of which is able to match one or more
+ * elements of the sequence. When all matchers in the pattern match some
+ * subsequence of the input sequence, we find a {@link Match}. The found
+ * subsequences can then be transformed using the
+ * {@link #replaceToOne(List, TransformerToElement)} method.<br>
+ * <br>
+ * 
+ * To create a pattern, use {@link #create(Matcher...)} method. To see available
+ * Matcher implementations, see {@link Matchers} and {@link BeanMatchers}<br>
+ * <br>
+ * 
+ * Patterns are immutable: all the state of a matching call is kept outside of
+ * the pattern, so the same pattern can be used by several threads at the same
+ * time
+ * 
+ * 
+ * @author Alexey Grigorev
+ * @see Matcher
+ * @see Match
+ * @see TransformerToElement
+ * 
+ * @param <E>
+ */
+public class Pattern<E> {
+
+    private final List<ParentMatcher<E>> matchers;
+    private final Captures captures;
+    private final Engine engine;
+    private final Evaluation evaluation;
+    private final Finder<E> finder;
+    /**
+     * the maximal number of elements a match can consume, <code>-1</code> if
+     * it is not bounded
+     */
+    private final int maxSpan;
+    /** the cursors of {@link #find(List, MatchHandler)} kept for each thread */
+    private final ThreadLocal<Deque<MatchCursor<E>>> cursors = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private Pattern(List<ParentMatcher<E>> matchers, Captures captures, int maxSpan, Engine engine,
+            Evaluation evaluation) {
+        this.matchers = matchers;
+        this.captures = captures;
+        this.maxSpan = maxSpan;
+        this.engine = engine;
+        this.evaluation = evaluation;
+        this.finder = engine.finder(matchers, evaluation);
+    }
+
+    List<ParentMatcher<E>> matchers() {
+        return matchers;
+    }
+
+    /**
+     * Resolves the flat program of the pattern once, so no matcher needs to
+     * be registered again for each call of {@link #find(List)}, and no
+     * capture needs to be looked up by its name
+     */
+    private static <E> List<ParentMatcher<E>> compile(List<ParentMatcher<E>> matchers, Captures captures) {
+        List<ParentMatcher<E>> program = new ArrayList<ParentMatcher<E>>();
+        List<ParentMatcher<E>> compiled = new ArrayList<ParentMatcher<E>>(matchers.size());
+        for (ParentMatcher<E> matcher : matchers) {
+            compiled.add(matcher.compile(program, captures));
+        }
+        for (ParentMatcher<E> matcher : program) {
+            matcher.initialize(program);
+        }
+        return Collections.unmodifiableList(compiled);
+    }
+
+    /**
+     * Tries to match the pattern with all the subsequences of the input
+     * sequence. If a subsequence is matched, then a {@link Match} object is
+     * created.
+     * 
+     * @param sequence to be matched
+     * @return list of found matches
+     */
+    public List<Match<E>> find(List<E> sequence) {
+        if (evaluation == Evaluation.COLUMNAR) {
+            return find(new EvaluatedSequence<E>(sequence));
+        }
+        return finder.find(sequence);
+    }
+
+    /**
+     * Finds the matches in the sequence taking the outcomes of the leaf
+     * matchers from the columns of the evaluated sequence. The columns that
+     * are not yet evaluated are added to it, so other patterns with the same
+     * leaf matchers can reuse them
+     * 
+     * @param sequence to be matched
+     * @return list of found matches
+     * @see Evaluation#COLUMNAR
+     */
+    public List<Match<E>> find(EvaluatedSequence<E> sequence) {
+        return finder.find(sequence);
+    }
+
+    /**
+     * Finds all non-overlapping matches in the sequence and passes them to
+     * the handler one by one, until it returns <code>false</code>. No
+     * {@link Match} objects are created: the handler gets a cursor positioned
+     * at the current match, which is reused for all the matches and, within
+     * the same thread, for all the calls of this method. So once the cursor
+     * is allocated, matching a sequence with random access allocates nothing,
+     * however many matches there are.<br>
+     * <br>
+     * 
+     * The cursor is valid only during the call of the handler. With
+     * {@link Evaluation#COLUMNAR} the leaves are memoized instead, since the
+     * columns pay off only when they are shared by several patterns
+     * 
+     * @param sequence to be matched
+     * @param handler of the found matches
+     * @return <code>false</code> if the handler stopped the matching,
+     *         <code>true</code> otherwise
+     */
+    public boolean find(List<E> sequence, MatchHandler<E> handler) {
+        Validate.notNull(handler, "Handler must not be null");
+
+        // the handler can call this method again, so each call takes its own
+        Deque<MatchCursor<E>> free = cursors.get();
+        MatchCursor<E> cursor = free.poll();
+        if (cursor == null) {
+            cursor = finder.matcher(sequence);
+        } else {
+            cursor.reset(sequence);
+        }
+
+        try {
+            while (cursor.find()) {
+                if (!handler.onMatch(cursor)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            free.push(cursor);
+        }
+    }
+
+    /**
+     * Creates a cursor that finds the matches of the pattern in the sequence
+     * lazily, one per call of {@link MatchCursor#find()}. Unlike
+     * {@link #find(List)} it stops as soon as the caller stops asking, so it
+     * is cheaper when only the first match is needed
+     * 
+     * @param sequence to be matched
+     * @return the cursor positioned before the first match
+     */
+    public MatchCursor<E> matcher(List<E> sequence) {
+        if (evaluation == Evaluation.COLUMNAR) {
+            return matcher(new EvaluatedSequence<E>(sequence));
+        }
+        return finder.matcher(sequence);
+    }
+
+    /**
+     * Creates a cursor that finds the matches of the pattern in the evaluated
+     * sequence lazily
+     * 
+     * @param sequence to be matched
+     * @return the cursor positioned before the first match
+     * @see #find(EvaluatedSequence)
+     */
+    public MatchCursor<E> matcher(EvaluatedSequence<E> sequence) {
+        return finder.matcher(sequence);
+    }
+
+    /**
+     * Finds the same matches as {@link #find(List)} using the threads of the
+     * pool. The sequence is cut into chunks that are matched independently,
+     * and the matches crossing the borders of the chunks are reconciled
+     * afterwards, so the result does not depend on where the sequence is cut.
+     * It pays off only for long sequences, short ones are matched in the
+     * calling thread
+     * 
+     * @param sequence to be matched
+     * @param pool to run the matching in
+     * @return list of found matches
+     */
+    public List<Match<E>> findParallel(List<E> sequence, ForkJoinPool pool) {
+        Validate.notNull(pool, "Pool must not be null");
+        return ParallelFinder.find(this, sequence, pool, ParallelFinder.MIN_CHUNK);
+    }
+
+    /**
+     * Finds the matches of the pattern in each of the documents using the
+     * threads of the executor, and passes them to the consumer together with
+     * the index of the document. The documents are read from the iterable
+     * only once, as they are needed, and each worker thread reuses its own
+     * matching state for all the documents it gets, which makes it much
+     * cheaper than calling {@link #find(List)} for each of them. The method
+     * returns when all documents are matched.<br>
+     * <br>
+     * 
+     * The matches of one document are passed in the order of their position,
+     * but the documents are processed in no particular order. The consumer is
+     * called from several threads at the same time. If it or a matcher
+     * throws an exception, the remaining documents are skipped and the
+     * exception is rethrown
+     * 
+     * @param documents to be matched
+     * @param executor to run the workers in
+     * @param consumer of the found matches
+     */
+    public void findAll(Iterable<? extends List<E>> documents, Executor executor, MatchConsumer<E> consumer) {
+        Validate.notNull(documents, "Documents must not be null");
+        Validate.notNull(executor, "Executor must not be null");
+        Validate.notNull(consumer, "Consumer must not be null");
+
+        // columns pay off when they are shared by several patterns
+        Pattern<E> pattern = evaluation == Evaluation.COLUMNAR ? withEvaluation(Evaluation.MEMOIZED) : this;
+        new BulkFinder<E>(pattern, documents, consumer).run(executor);
+    }
+
+    /**
+     * Creates a reactive stage that matches the pattern against the documents
+     * it receives and publishes one list of matches per document, in the
+     * order of the documents. At most <code>parallelism</code> documents are
+     * matched at the same time, and new documents are requested from the
+     * upstream only when the subscriber has asked for their results, so the
+     * memory use stays bounded when the documents come faster than they are
+     * matched, see {@link MatchProcessor}
+     * 
+     * @param executor to match the documents in
+     * @param parallelism the number of documents matched at the same time
+     * @return a new processor with no subscribers
+     */
+    public MatchProcessor<E> processor(Executor executor, int parallelism) {
+        Validate.notNull(executor, "Executor must not be null");
+        Validate.isTrue(parallelism > 0, "Parallelism must be positive");
+
+        Pattern<E> pattern = evaluation == Evaluation.COLUMNAR ? withEvaluation(Evaluation.MEMOIZED) : this;
+        return new MatchProcessor<E>(pattern, executor, parallelism);
+    }
+
+    /**
+     * Finds the matches of the pattern in a stream of elements, reading from
+     * the iterator only as many elements as needed to find the next match.
+     * Only the elements of the partial matches are kept in memory, so the
+     * stream can be unbounded. The matches are the ones {@link Engine#NFA}
+     * would find in the whole sequence
+     * 
+     * @param elements of the stream
+     * @return iterator over the found matches
+     * @see #streamMatcher()
+     */
+    public Iterator<Match<E>> find(Iterator<E> elements) {
+        Validate.notNull(elements, "Elements must not be null");
+        return streamMatcher().find(elements);
+    }
+
+    /**
+     * Returns the matches of the pattern in the sequence as a stream. A
+     * parallel stream splits large {@link RandomAccess} sequences into parts
+     * at the positions no match can cross, so the parts can be matched
+     * independently and the stream still has the same matches as
+     * {@link #find(List)}, in the same order. Only patterns with a bounded
+     * length are split: with quantifiers like {@link XMatcher#oneOrMore()} a
+     * match can span any number of elements, and the stream is sequential
+     * 
+     * @param sequence to be matched
+     * @return the stream of found matches
+     */
+    public Stream<Match<E>> stream(List<E> sequence) {
+        return stream(sequence, MatchSpliterator.MIN_CHUNK);
+    }
+
+    Stream<Match<E>> stream(List<E> sequence, int minChunk) {
+        EvaluatedSequence<E> evaluated = null;
+        if (evaluation == Evaluation.COLUMNAR) {
+            evaluated = new EvaluatedSequence<E>(sequence);
+        }
+
+        MatchSpliterator<E> spliterator = new MatchSpliterator<E>(this, sequence, evaluated, maxSpan, minChunk);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Creates a matcher for a stream of elements that are pushed to it one by
+     * one, see {@link StreamMatcher}
+     * 
+     * @return a new stream matcher
+     */
+    public StreamMatcher<E> streamMatcher() {
+        return new StreamMatcher<E>(matchers);
+    }
+
+    /**
+     * Counts the matches of the pattern in the sequence without creating
+     * {@link Match} objects. With {@link Engine#DFA} the matched subsequences
+     * are never even located exactly, only their ends
+     * 
+     * @param sequence to be matched
+     * @return the number of matches {@link #find(List)} would return
+     */
+    public int count(List<E> sequence) {
+        if (evaluation == Evaluation.COLUMNAR) {
+            return count(new EvaluatedSequence<E>(sequence));
+        }
+        return finder.count(sequence);
+    }
+
+    /**
+     * Counts the matches of the pattern in the evaluated sequence
+     * 
+     * @param sequence to be matched
+     * @return the number of matches {@link #find(EvaluatedSequence)} would
+     *         return
+     */
+    public int count(EvaluatedSequence<E> sequence) {
+        return finder.count(sequence);
+    }
+
+    /**
+     * Returns the slot of a variable of the pattern. Looking a variable up by
+     * its slot with {@link Match#getVariable(int)} or
+     * {@link MatchCursor#getVariable(int)} is faster than by its name
+     * 
+     * @param name of the variable, as given to
+     *        {@link XMatcher#captureAs(String)}
+     * @return the slot of the variable, the same for all the matches of the
+     *         pattern
+     */
+    public int variableSlot(String name) {
+        int slot = captures.variable(name);
+        Validate.isTrue(slot >= 0, "The pattern has no variable %s", name);
+        return slot;
+    }
+
+    /**
+     * Returns the slot of a captured group of the pattern, see
+     * {@link #variableSlot(String)}
+     * 
+     * @param name of the group, as given to
+     *        {@link XMatcher#captureAs(String)}
+     * @return the slot of the group, the same for all the matches of the
+     *         pattern
+     */
+    public int groupSlot(String name) {
+        int slot = captures.group(name);
+        Validate.isTrue(slot >= 0, "The pattern has no group %s", name);
+        return slot;
+    }
+
+    /**
+     * Returns the same pattern that uses the given engine for finding matches.
+     * The engines differ in how they deal with quantifiers, see {@link Engine}
+     * for details
+     * 
+     * @param engine to use
+     * @return the pattern that uses the engine
+     */
+    public Pattern<E> withEngine(Engine engine) {
+        Validate.notNull(engine, "Engine must not be null");
+        if (engine == this.engine) {
+            return this;
+        }
+        return new Pattern<E>(matchers, captures, maxSpan, engine, evaluation);
+    }
+
+    /**
+     * Returns the same pattern that evaluates its leaf matchers with the given
+     * strategy, see {@link Evaluation} for details
+     * 
+     * @param evaluation strategy to use
+     * @return the pattern that uses the strategy
+     */
+    public Pattern<E> withEvaluation(Evaluation evaluation) {
+        Validate.notNull(evaluation, "Evaluation must not be null");
+        if (evaluation == this.evaluation) {
+            return this;
+        }
+        return new Pattern<E>(matchers, captures, maxSpan, engine, evaluation);
+    }
+
+    /**
+     * Matches the pattern against the provided sequence, and then replaces all
+     * found matches by applying transformation to all matched subsequences and
+     * replaces their content in the place of the original subsequence. If there
+     * are no matches found, then the provided sequence is returned back. <br>
+     * <br>
+     * Note that the method does not modify the suppled sequence, but it creates
+     * and returns a new list. <br>
+     * <br>
+     * You can use this method then you need to replace each matched
+     * subsequences by exactly one element. If you need to replace them by other
+     * sequences or use any additional information (like captured variables, as
+     * provided by {@link ParentMatcher#captureAs(String)}), then you should use
+     * {@link #replace(List, TransformerToList)} method instead
+     * 
+     * @param sequence to transform
+     * @param transformer transformation to be applied to each matched
+     *        subsequence
+     * @return transformed sequence
+     */
+    public List<E> replaceToOne(List<E> sequence, final TransformerToElement<E> transformer) {
+        return replace(sequence, new TransformerToList<E>() {
+            @Override
+            public List<E> transform(Match<E> match) {
+                E result = transformer.transform(match);
+                return Collections.singletonList(result);
+            }
+        });
+    }
+
+    /**
+     * Matches the pattern against the provided sequence, and then replaces all
+     * found matches by applying transformation to all matched subsequences and
+     * replaces their content in the place of the original subsequence. If there
+     * are no matches found, then the provided sequence is returned back. <br>
+     * <br>
+     * Note that the method does not modify the suppled sequence, but it creates
+     * and returns a new list. <br>
+     * <br>
+     * Use this method then you need some additional information about the
+     * match, like variables (e.g. from {@link ParentMatcher#captureAs(String)})
+     * or when the result of the transformation is also a sequence. However in
+     * most cases you probably will need to transform each subsequence to a
+     * single element, and thus, use {@link #replaceToOne(List, TransformerToElement)}.
+     * 
+     * @param sequence to transform
+     * @param transformer transformation to be applied to each matched
+     *        subsequence
+     * @return transformed sequence
+     */
+    public List<E> replace(List<E> sequence, TransformerToList<E> transformer) {
+        List<Match<E>> matches = find(sequence);
+        return replace(sequence, matches, transformer);
+    }
+
+    private List<E> replace(List<E> sequence, List<Match<E>> matches, TransformerToList<E> transformer) {
+        if (matches.isEmpty()) {
+            return sequence;
+        }
+
+        List<E> result = new ArrayList<E>(sequence.size() - matches.size());
+        Iterator<Match<E>> iterator = matches.iterator();
+
+        int notMatchedFrom = 0;
+        int notMatchedTo = -1;
+        while (iterator.hasNext()) {
+            Match<E> match = iterator.next();
+
+            notMatchedTo = match.matchedFrom();
+            result.addAll(sequence.subList(notMatchedFrom, notMatchedTo));
+            result.addAll(transformer.transform(match));
+            notMatchedFrom = match.matchedTo();
+        }
+
+        result.addAll(sequence.subList(notMatchedFrom, sequence.size()));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return matchers.toString();
+    }
+
+    /**
+     * Creates a pattern from supplied matchers
+     */
+    @SafeVarargs
+    public static <E> Pattern<E> create(Matcher<E>... matchers) {
+        return create(Arrays.asList(matchers));
+    }
+
+    /**
+     * Creates a pattern from supplied matchers
+     */
+    public static <E> Pattern<E> create(List<Matcher<E>> matchers) {
+        Validate.notEmpty(matchers, "Pattern must not be empty");
+        List<ParentMatcher<E>> wrapped = ParentMatcher.wrapMatchers(matchers);
+        // the captures are numbered in the order they are emitted
+        NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(false);
+        NfaFinder.emit(wrapped, builder);
+        NfaProgram program = builder.build();
+
+        List<ParentMatcher<E>> compiled = compile(wrapped, program.captures);
+        return new Pattern<E>(compiled, program.captures, program.maxSpan(), Engine.SEQUENTIAL,
+                Evaluation.DIRECT);
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Finds the matches of many patterns in a single scan of a sequence. The id
+ * of a pattern is its position in the set, and each found match is tagged
+ * with it. <br>
+ * <br>
+ * 
+ * Leaf matchers are shared between the patterns: identical leaves (the same
+ * instance, or equal ones, like two {@link Matchers#eq(Object)} matchers with
+ * the same value) are evaluated at most once per element of the sequence, no
+ * matter how many patterns use them. The patterns are simulated side by side
+ * as NFAs, so for each pattern the set finds the same matches as
+ * {@link Engine#NFA} does, regardless of the engine of the pattern. <br>
+ * <br>
+ * 
+ * Pattern sets are immutable and can be shared between threads
+ * 
+ * @see TaggedMatch
+ */
+public class PatternSet<E> {
+
+    private final List<Pattern<E>> patterns;
+    private final NfaProgram[] programs;
+    private final List<Matcher<E>> leaves;
+    private final Map<Matcher<E>, Integer> leafIds;
+
+    private PatternSet(List<Pattern<E>> patterns) {
+        this.patterns = patterns;
+        this.programs = new NfaProgram[patterns.size()];
+        this.leaves = new ArrayList<Matcher<E>>();
+        this.leafIds = new HashMap<Matcher<E>, Integer>();
+
+        for (int i = 0; i < programs.length; i++) {
+            NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(leaves, leafIds);
+            NfaFinder.emit(patterns.get(i).matchers(), builder);
+            programs[i] = builder.build();
+        }
+    }
+
+    /**
+     * @return the number of patterns in the set
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * @param id of the pattern
+     * @return the pattern with the given id
+     */
+    public Pattern<E> getPattern(int id) {
+        return patterns.get(id);
+    }
+
+    /**
+     * Finds the matches of all patterns in the sequence. The matches of the
+     * same pattern do not overlap, but the matches of different patterns may
+     * 
+     * @param sequence to be matched
+     * @return the found matches, ordered by their positions and then by the
+     *         ids of the patterns
+     */
+    public List<TaggedMatch<E>> find(List<E> sequence) {
+        sequence = NfaFinder.randomAccess(sequence);
+        LeafMemo<E> input = new LeafMemo<E>(leaves, leafIds, sequence);
+        List<TaggedMatch<E>> results = new ArrayList<TaggedMatch<E>>();
+
+        int size = sequence.size();
+        PikeVm[] vms = new PikeVm[programs.length];
+        boolean[] running = new boolean[programs.length];
+        int remaining = 0;
+        if (size > 0) {
+            for (int id = 0; id < programs.length; id++) {
+                vms[id] = new PikeVm(programs[id]);
+                vms[id].start(0);
+                running[id] = true;
+                remaining++;
+            }
+        }
+
+        // all the patterns advance over the sequence together, one element
+        // at a time, so the elements are tested while they are still cached
+        while (remaining > 0) {
+            for (int id = 0; id < programs.length; id++) {
+                if (!running[id] || vms[id].step(input, size)) {
+                    continue;
+                }
+
+                if (vms[id].isMatched()) {
+                    int[] slots = vms[id].matchSlots();
+                    results.add(toMatch(id, sequence, slots));
+                    if (slots[1] < size) {
+                        vms[id].start(slots[1]);
+                        continue;
+                    }
+                }
+
+                running[id] = false;
+                remaining--;
+            }
+        }
+
+        Collections.sort(results, ORDER);
+        return results;
+    }
+
+    private TaggedMatch<E> toMatch(int id, List<E> sequence, int[] slots) {
+        return new TaggedMatch<E>(id, sequence, slots.clone(), programs[id].captures);
+    }
+
+    private static final Comparator<TaggedMatch<?>> ORDER = new Comparator<TaggedMatch<?>>() {
+        @Override
+        public int compare(TaggedMatch<?> o1, TaggedMatch<?> o2) {
+            if (o1.matchedFrom() != o2.matchedFrom()) {
+                return o1.matchedFrom() < o2.matchedFrom() ? -1 : 1;
+            }
+            return o1.getId() < o2.getId() ? -1 : (o1.getId() == o2.getId() ? 0 : 1);
+        }
+    };
+
+    @Override
+    public String toString() {
+        return patterns.toString();
+    }
+
+    /**
+     * Creates a set of the supplied patterns
+     */
+    @SafeVarargs
+    public static <E> PatternSet<E> create(Pattern<E>... patterns) {
+        List<Pattern<E>> list = new ArrayList<Pattern<E>>(patterns.length);
+        for (Pattern<E> pattern : patterns) {
+            list.add(pattern);
+        }
+        return create(list);
+    }
+
+    /**
+     * Creates a set of the supplied patterns, the ids of the patterns are
+     * their positions in the list
+     */
+    public static <E> PatternSet<E> create(List<Pattern<E>> patterns) {
+        Validate.notEmpty(patterns, "Pattern set must not be empty");
+        Validate.noNullElements(patterns, "Patterns must not be null");
+        return new PatternSet<E>(Collections.unmodifiableList(new ArrayList<Pattern<E>>(patterns)));
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+import com.alexeygrigorev.rseq.ReflectionUtils.ValueExtractor;
+
+/**
+ * Finds the phrases of a dictionary in a sequence, e.g. multi-word entries of
+ * a gazetteer in a list of tokens. It's the same as finding the matches of
+ * many patterns made of {@link Matchers#eq(Object)} matchers only, but all the
+ * phrases are compiled into one Aho-Corasick automaton, so the sequence is
+ * scanned in linear time regardless of the size of the dictionary. <br>
+ * <br>
+ * 
+ * The elements are compared with the phrases by their keys: either the
+ * elements themselves, or the values of some java bean property, see
+ * {@link #create(Class, String, List)}. Keys are compared with
+ * <code>equals</code> and <code>hashCode</code>. <br>
+ * <br>
+ * 
+ * Dictionaries are immutable and can be shared between threads
+ * 
+ * @see TaggedMatch
+ */
+public class PhraseDictionary<E> {
+
+    private final PhraseTrie trie;
+    private final List<List<?>> phrases;
+    private final ValueExtractor<E, ?> keys;
+
+    /** the node for the longest proper suffix of each node that is in the trie */
+    private final int[] fail;
+    /** the nearest node on the failure path of each node where a phrase ends */
+    private final int[] output;
+
+    private PhraseDictionary(List<? extends List<?>> phrases, ValueExtractor<E, ?> keys) {
+        this.trie = new PhraseTrie();
+        this.keys = keys;
+
+        List<List<?>> unique = new ArrayList<List<?>>();
+        for (List<?> phrase : phrases) {
+            Validate.notEmpty(phrase, "Phrases must not be empty");
+            if (trie.add(phrase) == unique.size()) {
+                unique.add(Collections.unmodifiableList(new ArrayList<Object>(phrase)));
+            }
+        }
+        this.phrases = Collections.unmodifiableList(unique);
+
+        int nodes = trie.nodeCount();
+        this.fail = new int[nodes];
+        this.output = new int[nodes];
+        link();
+    }
+
+    /**
+     * Computes the failure and output links, visiting the nodes in the order
+     * of their depth
+     */
+    private void link() {
+        int[] queue = new int[trie.nodeCount()];
+        int head = 0;
+        int tail = 0;
+
+        output[PhraseTrie.ROOT] = PhraseTrie.NONE;
+        for (int child : trie.children(PhraseTrie.ROOT).values()) {
+            fail[child] = PhraseTrie.ROOT;
+            output[child] = PhraseTrie.NONE;
+            queue[tail++] = child;
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+            for (Map.Entry<Object, Integer> edge : trie.children(node).entrySet()) {
+                Object key = edge.getKey();
+                int child = edge.getValue();
+
+                int state = fail[node];
+                while (state != PhraseTrie.ROOT && trie.child(state, key) == PhraseTrie.NONE) {
+                    state = fail[state];
+                }
+                int target = trie.child(state, key);
+                fail[child] = target == PhraseTrie.NONE ? PhraseTrie.ROOT : target;
+
+                int suffix = fail[child];
+                output[child] = trie.phraseId(suffix) != PhraseTrie.NONE ? suffix : output[suffix];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct phrases in the dictionary
+     */
+    public int size() {
+        return phrases.size();
+    }
+
+    /**
+     * @param id of the phrase, as given in {@link TaggedMatch#getId()}
+     * @return the keys of the phrase
+     */
+    public List<?> getPhrase(int id) {
+        return phrases.get(id);
+    }
+
+    /**
+     * Finds the phrases of the dictionary in the sequence. If several phrases
+     * overlap, the one that starts first wins, and among the phrases that
+     * start at the same position the longest one wins. The found matches do
+     * not overlap, the id of each match is the id of the matched phrase
+     * 
+     * @param sequence to look for the phrases in
+     * @return list of found matches
+     */
+    public List<TaggedMatch<E>> find(List<E> sequence) {
+        sequence = NfaFinder.randomAccess(sequence);
+        List<TaggedMatch<E>> results = new ArrayList<TaggedMatch<E>>();
+
+        int size = sequence.size();
+        int state = PhraseTrie.ROOT;
+        int start = PhraseTrie.NONE;
+        int end = PhraseTrie.NONE;
+        int id = PhraseTrie.NONE;
+
+        int position = 0;
+        while (position < size || start != PhraseTrie.NONE) {
+            if (position < size) {
+                state = next(state, key(sequence.get(position)));
+                position++;
+
+                int found = trie.phraseId(state) != PhraseTrie.NONE ? state : output[state];
+                if (found != PhraseTrie.NONE) {
+                    int foundStart = position - trie.depth(found);
+                    if (start == PhraseTrie.NONE || foundStart < start || (foundStart == start && position > end)) {
+                        start = foundStart;
+                        end = position;
+                        id = trie.phraseId(found);
+                    }
+                }
+
+                // phrases that are still possible start after the candidate
+                boolean settled = position - trie.depth(state) > start;
+                if (start == PhraseTrie.NONE || (!settled && position < size)) {
+                    continue;
+                }
+            }
+
+            results.add(toMatch(id, sequence, start, end));
+            position = end;
+            state = PhraseTrie.ROOT;
+            start = PhraseTrie.NONE;
+        }
+
+        return results;
+    }
+
+    private int next(int state, Object key) {
+        while (true) {
+            int child = trie.child(state, key);
+            if (child != PhraseTrie.NONE) {
+                return child;
+            }
+            if (state == PhraseTrie.ROOT) {
+                return PhraseTrie.ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private Object key(E element) {
+        if (keys == null) {
+            return element;
+        }
+        return keys.get(element);
+    }
+
+    private static <E> TaggedMatch<E> toMatch(int id, List<E> sequence, int start, int end) {
+        return new TaggedMatch<E>(id, sequence, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "PhraseDictionary " + phrases;
+    }
+
+    /**
+     * Creates a dictionary of phrases that are compared with the elements of
+     * sequences by equality
+     * 
+     * @param phrases of the dictionary, the id of a phrase is the position of
+     *        its first occurrence in the list among distinct phrases
+     */
+    public static <E> PhraseDictionary<E> create(List<? extends List<E>> phrases) {
+        Validate.notNull(phrases, "Phrases must not be null");
+        return new PhraseDictionary<E>(phrases, null);
+    }
+
+    /**
+     * Creates a dictionary of phrases from the supplied phrases
+     */
+    @SafeVarargs
+    public static <E> PhraseDictionary<E> create(List<E>... phrases) {
+        List<List<E>> list = new ArrayList<List<E>>(phrases.length);
+        for (List<E> phrase : phrases) {
+            list.add(phrase);
+        }
+        return create(list);
+    }
+
+    /**
+     * Creates a dictionary of phrases that are compared with the value of a
+     * java bean property of the elements, e.g. the phrases can be lists of
+     * strings and the elements can be tokens with the property "token"
+     * 
+     * @param beanClass java bean's class
+     * @param propertyName property of the java bean
+     * @param phrases of the dictionary, lists of property values
+     */
+    public static <E> PhraseDictionary<E> create(Class<E> beanClass, String propertyName,
+            List<? extends List<?>> phrases) {
+        Validate.notNull(phrases, "Phrases must not be null");
+        ValueExtractor<E, Object> extractor = ReflectionUtils.property(beanClass, propertyName);
+        return new PhraseDictionary<E>(phrases, extractor);
+    }
+
+}
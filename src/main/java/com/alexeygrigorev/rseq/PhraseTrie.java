@@ -0,0 +1,92 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of phrases, i.e. of sequences of keys. Keys are compared with
+ * <code>equals</code> and <code>hashCode</code>. Node 0 is the root, each
+ * other node is the end of some prefix of the phrases
+ */
+class PhraseTrie {
+
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    private final List<Map<Object, Integer>> children = new ArrayList<Map<Object, Integer>>();
+    private final List<Integer> depths = new ArrayList<Integer>();
+    private final List<Integer> phraseIds = new ArrayList<Integer>();
+    private int phraseCount = 0;
+
+    PhraseTrie() {
+        newNode(0);
+    }
+
+    /**
+     * @param phrase to add, must not be empty
+     * @return the id of the phrase: ids are given in the order the phrases are
+     *         added. If the phrase is already known, its old id is returned
+     */
+    int add(List<?> phrase) {
+        int node = ROOT;
+        for (Object key : phrase) {
+            int next = child(node, key);
+            if (next == NONE) {
+                next = newNode(depths.get(node) + 1);
+                children.get(node).put(key, next);
+            }
+            node = next;
+        }
+
+        Integer id = phraseIds.get(node);
+        if (id == NONE) {
+            id = phraseCount++;
+            phraseIds.set(node, id);
+        }
+        return id;
+    }
+
+    private int newNode(int depth) {
+        children.add(new HashMap<Object, Integer>(4));
+        depths.add(depth);
+        phraseIds.add(NONE);
+        return children.size() - 1;
+    }
+
+    /**
+     * @return the child of the node for the key, or {@link #NONE}
+     */
+    int child(int node, Object key) {
+        Integer child = children.get(node).get(key);
+        return child == null ? NONE : child;
+    }
+
+    Map<Object, Integer> children(int node) {
+        return children.get(node);
+    }
+
+    /**
+     * @return the length of the prefix the node stands for
+     */
+    int depth(int node) {
+        return depths.get(node);
+    }
+
+    /**
+     * @return the id of the phrase that ends at the node, or {@link #NONE}
+     */
+    int phraseId(int node) {
+        return phraseIds.get(node);
+    }
+
+    int nodeCount() {
+        return children.size();
+    }
+
+    int phraseCount() {
+        return phraseCount;
+    }
+
+}
@@ -0,0 +1,317 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+
+/**
+ * Simulates an {@link NfaProgram} in one left-to-right pass over the sequence
+ * (the Pike VM). All the threads advance over the same element at the same
+ * time, so the search takes O(n * m) steps for a sequence of length n and a
+ * program of length m, regardless of how the quantifiers are nested.<br>
+ * <br>
+ * 
+ * Threads are kept in the order of their priority, so the found match is the
+ * same one a backtracking matcher would find: the leftmost one and, among the
+ * matches starting there, the one preferred by greedy and lazy quantifiers.
+ * Empty matches are skipped.<br>
+ * <br>
+ * 
+ * A VM keeps the state of one matching call, so it must not be shared
+ * between threads
+ */
+class PikeVm {
+
+    /**
+     * Evaluates leaf matchers against the elements of the sequence
+     */
+    static interface Input {
+        boolean test(int leaf, int position);
+
+        /**
+         * @param leaf that extracts the keys of a trie instruction
+         * @param position of the element
+         * @return the key of the element to look up in the trie
+         */
+        default Object key(int leaf, int position) {
+            throw new UnsupportedOperationException("The input has no keys");
+        }
+    }
+
+    private static final int FOLLOW = 0;
+    private static final int RESTORE = 1;
+
+    private final NfaProgram program;
+    private final int slotCount;
+
+    private ThreadList current;
+    private ThreadList next;
+
+    private final int[] slots;
+    private final int[] matchSlots;
+
+    private int[] stack;
+
+    private int position;
+    private int startLimit;
+    private boolean matched;
+
+    PikeVm(NfaProgram program) {
+        this.program = program;
+        this.slotCount = program.slotCount();
+        this.current = new ThreadList(program.size(), slotCount);
+        this.next = new ThreadList(program.size(), slotCount);
+        this.slots = new int[slotCount];
+        this.matchSlots = new int[slotCount];
+        this.stack = new int[3 * (program.size() + slotCount) + 3];
+    }
+
+    /**
+     * Looks for the leftmost non-empty match which starts at
+     * <code>from</code> or later
+     * 
+     * @param input to test the leaves with
+     * @param from the first position where the match can start
+     * @param to the end of the sequence
+     * @return <code>true</code> if a match is found, then its slots are
+     *         available via {@link #matchSlots()}
+     */
+    boolean search(Input input, int from, int to) {
+        return search(input, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Looks for the leftmost non-empty match which starts at
+     * <code>from</code> or later, but before <code>startLimit</code>. The
+     * match itself can end after the limit
+     * 
+     * @param input to test the leaves with
+     * @param from the first position where the match can start
+     * @param to the end of the sequence
+     * @param startLimit the position where the matches cannot start anymore
+     * @return <code>true</code> if a match is found, then its slots are
+     *         available via {@link #matchSlots()}
+     */
+    boolean search(Input input, int from, int to, int startLimit) {
+        start(from, startLimit);
+        while (step(input, to)) {
+        }
+        return matched;
+    }
+
+    /**
+     * Starts a search step by step, see {@link #step(Input, int)}
+     * 
+     * @param from the first position where the match can start
+     */
+    void start(int from) {
+        start(from, Integer.MAX_VALUE);
+    }
+
+    private void start(int from, int startLimit) {
+        current.clear();
+        position = from;
+        matched = false;
+        this.startLimit = startLimit;
+    }
+
+    /**
+     * Advances all the threads over the element at the current position. It
+     * lets several VMs run over the same input side by side
+     * 
+     * @param input to test the leaves with
+     * @param to the end of the sequence
+     * @return <code>false</code> if the search is over, then
+     *         {@link #isMatched()} tells if a match is found
+     */
+    boolean step(Input input, int to) {
+        int[] opcodes = program.opcodes;
+        int[] arg1 = program.arg1;
+
+        if (!matched && position < startLimit) {
+            Arrays.fill(slots, -1);
+            addThread(current, 0, position);
+        }
+        if (current.size == 0) {
+            return false;
+        }
+
+        next.clear();
+        for (int i = 0; i < current.size; i++) {
+            int pc = current.pcs[i];
+            int opcode = opcodes[pc];
+
+            if (opcode == NfaProgram.LEAF) {
+                if (position < to && input.test(arg1[pc], position)) {
+                    System.arraycopy(current.slots, pc * slotCount, slots, 0, slotCount);
+                    addThread(next, pc + 1, position + 1);
+                }
+            } else if (opcode == NfaProgram.TRIE) {
+                int target = position < to ? program.target(pc, input.key(program.keyLeaf(pc), position)) : -1;
+                if (target >= 0) {
+                    System.arraycopy(current.slots, pc * slotCount, slots, 0, slotCount);
+                    addThread(next, target, position + 1);
+                }
+            } else if (opcode == NfaProgram.MATCH) {
+                int offset = pc * slotCount;
+                if (current.slots[offset + 1] > current.slots[offset]) {
+                    System.arraycopy(current.slots, offset, matchSlots, 0, slotCount);
+                    matched = true;
+                    // threads with lower priority are not needed anymore
+                    break;
+                }
+            }
+        }
+
+        ThreadList tmp = current;
+        current = next;
+        next = tmp;
+
+        position++;
+        return position <= to;
+    }
+
+    boolean isMatched() {
+        return matched;
+    }
+
+    /**
+     * @return <code>true</code> if the search is not over yet: no match is
+     *         found or there are threads that can find a preferred one
+     */
+    boolean isRunning() {
+        return !matched || current.size > 0;
+    }
+
+    /**
+     * @return <code>true</code> if the thread with the highest priority has
+     *         reached a non-empty match, so the next step finds it without
+     *         looking at the element at the current position
+     */
+    boolean isMatchFirst() {
+        for (int i = 0; i < current.size; i++) {
+            int pc = current.pcs[i];
+            int opcode = program.opcodes[pc];
+            if (opcode == NfaProgram.LEAF || opcode == NfaProgram.TRIE) {
+                return false;
+            }
+            if (opcode == NfaProgram.MATCH) {
+                int offset = pc * slotCount;
+                return current.slots[offset + 1] > current.slots[offset];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the smallest position where the found match or a live thread
+     *         starts, the elements before it are not needed by the search
+     *         anymore
+     */
+    int earliestStart() {
+        int earliest = position;
+        if (matched) {
+            earliest = Math.min(earliest, matchSlots[0]);
+        }
+        for (int i = 0; i < current.size; i++) {
+            int pc = current.pcs[i];
+            int opcode = program.opcodes[pc];
+            if (opcode == NfaProgram.LEAF || opcode == NfaProgram.TRIE || opcode == NfaProgram.MATCH) {
+                earliest = Math.min(earliest, current.slots[pc * slotCount]);
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * @return the slots of the last found match
+     */
+    int[] matchSlots() {
+        return matchSlots;
+    }
+
+    /**
+     * Adds the thread to the list following all the instructions that do not
+     * consume input. The {@link #slots} array contains the slots of the thread
+     * and is restored to its original state afterwards
+     */
+    private void addThread(ThreadList list, int startPc, int position) {
+        int[] opcodes = program.opcodes;
+        int[] arg1 = program.arg1;
+        int[] arg2 = program.arg2;
+
+        int top = 0;
+        top = push(top, FOLLOW, startPc, 0);
+
+        while (top > 0) {
+            top = top - 3;
+            int kind = stack[top];
+            int pc = stack[top + 1];
+
+            if (kind == RESTORE) {
+                slots[pc] = stack[top + 2];
+                continue;
+            }
+
+            while (!list.contains(pc)) {
+                list.add(pc);
+                int opcode = opcodes[pc];
+                if (opcode == NfaProgram.JUMP) {
+                    pc = arg1[pc];
+                } else if (opcode == NfaProgram.SPLIT) {
+                    top = push(top, FOLLOW, arg2[pc], 0);
+                    pc = arg1[pc];
+                } else if (opcode == NfaProgram.SAVE) {
+                    int slot = arg1[pc];
+                    top = push(top, RESTORE, slot, slots[slot]);
+                    slots[slot] = position;
+                    pc = pc + 1;
+                } else {
+                    System.arraycopy(slots, 0, list.slots, pc * slotCount, slotCount);
+                    break;
+                }
+            }
+        }
+    }
+
+    private int push(int top, int kind, int pc, int value) {
+        if (top + 3 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = kind;
+        stack[top + 1] = pc;
+        stack[top + 2] = value;
+        return top + 3;
+    }
+
+    /**
+     * Sparse set of program counters in the order of their priority, with the
+     * slots of each thread
+     */
+    private static class ThreadList {
+        final int[] pcs;
+        final int[] index;
+        final int[] slots;
+        int size;
+
+        ThreadList(int programSize, int slotCount) {
+            this.pcs = new int[programSize];
+            this.index = new int[programSize];
+            this.slots = new int[programSize * slotCount];
+        }
+
+        boolean contains(int pc) {
+            int i = index[pc];
+            return i < size && pcs[i] == pc;
+        }
+
+        void add(int pc) {
+            index[pc] = size;
+            pcs[size] = pc;
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.alexeygrigorev.rseq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the posting list of one value of an attribute in a
+ * {@link CorpusIndex}: the sentences that contain the value and its positions
+ * in each of them. For each sentence the list keeps the difference from the
+ * previous sentence id, the number of positions and the differences between
+ * the positions, all as variable-length ints
+ */
+final class Postings {
+
+    static final long END = Long.MAX_VALUE;
+
+    private final MappedRegion bytes;
+    private final long end;
+    private long position;
+
+    private long sentence = -1;
+    /** the number of positions of the current sentence not read yet */
+    private int positionsLeft;
+
+    /**
+     * @param bytes of all the posting lists of the attribute
+     * @param from the first byte of the list
+     * @param to the end of the list
+     */
+    Postings(MappedRegion bytes, long from, long to) {
+        this.bytes = bytes;
+        this.position = from;
+        this.end = to;
+    }
+
+    /**
+     * @return the current sentence, <code>-1</code> before the first one and
+     *         {@link #END} after the last one
+     */
+    long sentence() {
+        return sentence;
+    }
+
+    /**
+     * Moves to the first sentence with the id equal to or greater than the
+     * target
+     * 
+     * @return the sentence, or {@link #END}
+     */
+    long advance(long target) {
+        while (sentence < target) {
+            skipPositions();
+            if (position >= end) {
+                sentence = END;
+                break;
+            }
+            sentence = sentence + readVarLong();
+            positionsLeft = (int) readVarLong();
+        }
+        return sentence;
+    }
+
+    /**
+     * Reads the positions of the value in the current sentence, there are
+     * {@link #positionCount()} of them
+     * 
+     * @param into the array to add the positions to
+     * @param size the number of positions already in the array
+     * @return the array, grown if needed
+     */
+    int[] positions(int[] into, int size) {
+        if (into.length < size + positionsLeft) {
+            into = Arrays.copyOf(into, Math.max(2 * into.length, size + positionsLeft));
+        }
+        int previous = 0;
+        while (positionsLeft > 0) {
+            previous = previous + (int) readVarLong();
+            into[size++] = previous;
+            positionsLeft--;
+        }
+        return into;
+    }
+
+    /**
+     * @return the number of positions of the current sentence not read yet
+     */
+    int positionCount() {
+        return positionsLeft;
+    }
+
+    private void skipPositions() {
+        while (positionsLeft > 0) {
+            while (bytes.getByte(position++) < 0) {
+            }
+            positionsLeft--;
+        }
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes.getByte(position++);
+            value = value | ((long) (b & 0x7F) << shift);
+            shift = shift + 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Writes a posting list to memory. When the lists of an index take too
+     * much memory, their bytes are spilled to a temporary file, so a list
+     * can be larger than an array
+     */
+    static final class Writer {
+        private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+        private byte[] bytes = new byte[16];
+        private int size;
+        private long lastSentence = -1;
+
+        /** the bytes in the temporary file: pairs of position and length */
+        private long[] chunks;
+        private int chunkCount;
+        private long spilled;
+
+        /**
+         * @param sentence the id of the sentence, greater than the previous
+         *        one
+         * @param positions of the value in the sentence, sorted
+         * @param from the first position in the array
+         * @param to the end of the positions in the array
+         * @return the number of bytes added to memory
+         */
+        int add(long sentence, int[] positions, int from, int to) {
+            int before = size;
+            putVarLong(sentence - lastSentence);
+            putVarLong(to - from);
+            int previous = 0;
+            for (int i = from; i < to; i++) {
+                putVarLong(positions[i] - previous);
+                previous = positions[i];
+            }
+            lastSentence = sentence;
+            return size - before;
+        }
+
+        /**
+         * Seven bits per byte, the lowest first, the highest bit tells if
+         * more bytes follow
+         */
+        private void putVarLong(long value) {
+            if (size + 10 > bytes.length) {
+                grow();
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value = value >>> 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void grow() {
+            if (bytes.length >= MAX_ARRAY_LENGTH) {
+                throw new IllegalStateException("The posting list does not fit in memory, spill it first");
+            }
+            int length = (int) Math.min(2L * bytes.length, MAX_ARRAY_LENGTH);
+            bytes = Arrays.copyOf(bytes, length);
+        }
+
+        /**
+         * Moves the bytes in memory to the end of the temporary file
+         */
+        void spill(FileChannel file) throws IOException {
+            if (size == 0) {
+                return;
+            }
+            if (chunks == null) {
+                chunks = new long[4];
+            } else if (2 * chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+            }
+
+            long position = file.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+            while (buffer.hasRemaining()) {
+                file.write(buffer, position + buffer.position());
+            }
+            chunks[2 * chunkCount] = position;
+            chunks[2 * chunkCount + 1] = size;
+            chunkCount++;
+
+            spilled = spilled + size;
+            size = 0;
+            bytes = new byte[16];
+        }
+
+        /**
+         * @return the length of the whole list in bytes
+         */
+        long size() {
+            return spilled + size;
+        }
+
+        /**
+         * @return <code>true</code> if the whole list is in memory
+         */
+        boolean inMemory() {
+            return chunkCount == 0;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int bytesInMemory() {
+            return size;
+        }
+
+        /**
+         * Writes the whole list: the spilled chunks, then the bytes in memory
+         */
+        void transferTo(WritableByteChannel out, FileChannel file) throws IOException {
+            for (int i = 0; i < chunkCount; i++) {
+                long position = chunks[2 * i];
+                long end = position + chunks[2 * i + 1];
+                while (position < end) {
+                    position = position + file.transferTo(position, end - position, out);
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, size);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+
+}
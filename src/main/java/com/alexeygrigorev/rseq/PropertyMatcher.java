@@ -0,0 +1,181 @@
+package com.alexeygrigorev.rseq;
+
+import java.nio.IntBuffer;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.alexeygrigorev.rseq.ColumnarSequence.BufferColumn;
+import com.alexeygrigorev.rseq.ColumnarSequence.Column;
+import com.alexeygrigorev.rseq.ColumnarSequence.ColumnTest;
+import com.alexeygrigorev.rseq.ColumnarSequence.IntColumn;
+import com.alexeygrigorev.rseq.ColumnarSequence.ObjectColumn;
+import com.alexeygrigorev.rseq.ReflectionUtils.ValueExtractor;
+
+/**
+ * Common parent for the matchers of {@link BeanMatchers} and
+ * {@link ColumnMatchers}: tests the value of a java bean property, or of the
+ * column with the same name in a {@link ColumnarSequence}. Matchers created
+ * by the same factory method for the same property and operand are equal, so
+ * a {@link PatternSet} evaluates them only once
+ */
+abstract class PropertyMatcher<O, V> extends ParentMatcher<O> {
+
+    private final Class<O> beanClass;
+    private final String propertyName;
+    private final String operator;
+    private final Object operand;
+    /** <code>null</code> if the matcher only tests columns */
+    private final ValueExtractor<O, V> extractor;
+    /** the typed accessor of the property, if it is not found by its name */
+    private final Function<O, ? extends V> accessor;
+
+    /** the outcomes for the entries of the last seen dictionary */
+    private volatile DictionaryOutcomes dictionaryOutcomes;
+
+    /**
+     * @param beanClass the class of the elements, <code>null</code> if the
+     *        matcher only tests the columns of {@link ColumnarSequence}s
+     */
+    PropertyMatcher(Class<O> beanClass, String propertyName, String operator, Object operand) {
+        this.beanClass = beanClass;
+        this.propertyName = propertyName;
+        this.operator = operator;
+        this.operand = operand;
+        this.extractor = beanClass == null ? null : ReflectionUtils.<O, V> property(beanClass, propertyName);
+        this.accessor = null;
+    }
+
+    /**
+     * Creates a matcher that gets the property with an accessor, so it does
+     * not test the columns of {@link ColumnarSequence}s
+     */
+    PropertyMatcher(Function<O, ? extends V> accessor, String operator, Object operand) {
+        this.beanClass = null;
+        this.propertyName = null;
+        this.operator = operator;
+        this.operand = operand;
+        this.extractor = accessor::apply;
+        this.accessor = accessor;
+    }
+
+    /**
+     * @param value of the property
+     * @return <code>true</code> if the value matches
+     */
+    abstract boolean test(V value);
+
+    @Override
+    public boolean match(O object) {
+        if (extractor == null) {
+            throw new UnsupportedOperationException(this + " can only be matched against a ColumnarSequence");
+        }
+        return test(extractor.get(object));
+    }
+
+    /**
+     * @return the test of the column of the property in the sequence, or
+     *         <code>null</code> if the sequence has no such column
+     */
+    ColumnTest bind(ColumnarSequence<O> sequence) {
+        Column column = sequence.column(propertyName);
+        if (column instanceof ObjectColumn) {
+            final Object[] values = ((ObjectColumn) column).values;
+            return position -> test(cast(values[position]));
+        }
+        if (column instanceof BufferColumn) {
+            return bind((BufferColumn) column);
+        }
+        if (!(column instanceof IntColumn)) {
+            return null;
+        }
+
+        final int[] values = ((IntColumn) column).values;
+        Object[] dictionary = ((IntColumn) column).dictionary;
+        if (dictionary != null) {
+            final boolean[] outcomes = outcomes(dictionary);
+            return position -> outcomes[values[position]];
+        }
+        if (isEquality() && operand instanceof Integer) {
+            // no boxing for the most common test of an int column
+            final int other = (Integer) operand;
+            return position -> values[position] == other;
+        }
+        return position -> test(cast(values[position]));
+    }
+
+    private ColumnTest bind(BufferColumn column) {
+        final IntBuffer values = column.values;
+        if (column.dictionary != null) {
+            final boolean[] outcomes = outcomes(column.dictionary);
+            return position -> outcomes[values.get(position)];
+        }
+        if (isEquality() && operand instanceof Integer) {
+            final int other = (Integer) operand;
+            return position -> values.get(position) == other;
+        }
+        return position -> test(cast(values.get(position)));
+    }
+
+    /**
+     * @return the outcomes of the matcher for each entry of the dictionary
+     */
+    boolean[] outcomes(Object[] dictionary) {
+        DictionaryOutcomes last = dictionaryOutcomes;
+        if (last != null && last.dictionary == dictionary) {
+            return last.outcomes;
+        }
+
+        boolean[] outcomes = new boolean[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            outcomes[i] = test(cast(dictionary[i]));
+        }
+        dictionaryOutcomes = new DictionaryOutcomes(dictionary, outcomes);
+        return outcomes;
+    }
+
+    String propertyName() {
+        return propertyName;
+    }
+
+    boolean isEquality() {
+        return "==".equals(operator);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object value) {
+        return (V) value;
+    }
+
+    private static class DictionaryOutcomes {
+        private final Object[] dictionary;
+        private final boolean[] outcomes;
+
+        DictionaryOutcomes(Object[] dictionary, boolean[] outcomes) {
+            this.dictionary = dictionary;
+            this.outcomes = outcomes;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        PropertyMatcher<?, ?> other = (PropertyMatcher<?, ?>) obj;
+        return Objects.equals(beanClass, other.beanClass) && Objects.equals(propertyName, other.propertyName)
+                && Objects.equals(accessor, other.accessor) && Objects.equals(operand, other.operand);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(beanClass, propertyName, accessor, operand);
+    }
+
+    @Override
+    public String toString() {
+        String prefix = beanClass == null ? "" : beanClass.getSimpleName() + ".";
+        String property = propertyName == null ? "property" : propertyName;
+        return prefix + property + " " + operator + " " + operand;
+    }
+
+}
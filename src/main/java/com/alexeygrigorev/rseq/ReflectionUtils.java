@@ -1,101 +1,229 @@
-package com.alexeygrigorev.rseq;
-
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.Map;
-
-class ReflectionUtils {
-
-    private ReflectionUtils() {
-    }
-
-    static interface ValueExtractor<O, V> {
-        V get(O object);
-    }
-
-    static <O, V> ValueExtractor<O, V> property(Class<O> cls, String propertyName) {
-        Map<String, Method> getters = new HashMap<String, Method>();
-        Map<String, Field> fields = new HashMap<String, Field>();
-        findAllProperties(cls, getters, fields);
-
-        if (getters.containsKey(propertyName)) {
-            final Method method = getters.get(propertyName);
-            return new ValueExtractor<O, V>() {
-                @Override
-                public V get(O object) {
-                    try {
-                        @SuppressWarnings("unchecked")
-                        V result = (V) method.invoke(object);
-                        return result;
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            };
-        } else if (fields.containsKey(propertyName)) {
-            final Field field = fields.get(propertyName);
-            return new ValueExtractor<O, V>() {
-                @Override
-                public V get(O object) {
-                    try {
-                        @SuppressWarnings("unchecked")
-                        V result = (V) field.get(object);
-                        return result;
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            };
-        }
-
-        throw new IllegalArgumentException("The class " + cls.getName() + " does not contain property '"
-                + propertyName + "'");
-    }
-
-    private static void findAllProperties(Class<?> cls, Map<String, Method> getters,
-            Map<String, Field> allFields) {
-        if (cls.equals(Object.class)) {
-            return;
-        }
-
-        addGetters(getters, cls.getDeclaredMethods());
-        addGetters(getters, cls.getMethods());
-        addFields(allFields, cls.getDeclaredFields());
-        addFields(allFields, cls.getFields());
-
-        findAllProperties(cls.getSuperclass(), getters, allFields);
-    }
-
-    private static void addGetters(Map<String, Method> getters, Method[] declaredMethods) {
-        for (Method method : declaredMethods) {
-            boolean isStatic = Modifier.isStatic(method.getModifiers());
-            boolean isPublic = Modifier.isPublic(method.getModifiers());
-
-            if (isStatic || !isPublic) {
-                continue;
-            }
-
-            String name = method.getName();
-            if (name.startsWith("get")) {
-                getters.put(name.substring(3), method);
-                String canonicalName = Character.toLowerCase(name.charAt(3)) + name.substring(4);
-                getters.put(canonicalName, method);
-            } else if (name.startsWith("is")) {
-                getters.put(name.substring(2), method);
-                String canonicalName = Character.toLowerCase(name.charAt(2)) + name.substring(3);
-                getters.put(canonicalName, method);
-            }
-        }
-    }
-
-    private static void addFields(Map<String, Field> allFields, Field[] fields) {
-        for (Field field : fields) {
-            field.setAccessible(true);
-            String name = field.getName();
-            allFields.put(name, field);
-        }
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates the extractors of java bean properties. A getter is called from a
+ * class generated with {@link LambdaMetafactory}, like a method reference, so
+ * the JIT can inline it. Fields, and getters the generated class cannot see,
+ * are read through {@link MethodHandle}s. The properties of a class are found
+ * once, and so is the extractor of each property
+ */
+class ReflectionUtils {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType EXTRACTOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Properties> PROPERTIES = new ClassValue<Properties>() {
+        @Override
+        protected Properties computeValue(Class<?> cls) {
+            return new Properties(cls);
+        }
+    };
+
+    private ReflectionUtils() {
+    }
+
+    static interface ValueExtractor<O, V> {
+        V get(O object);
+    }
+
+    static <O, V> ValueExtractor<O, V> property(Class<O> cls, String propertyName) {
+        return PROPERTIES.get(cls).extractor(propertyName);
+    }
+
+    /**
+     * The getters and the fields of a class and the extractors created so far
+     */
+    private static class Properties {
+        private final Class<?> cls;
+        private final Map<String, Method> getters = new HashMap<String, Method>();
+        private final Map<String, Field> fields = new HashMap<String, Field>();
+        private final ConcurrentMap<String, ValueExtractor<?, ?>> extractors = new ConcurrentHashMap<String, ValueExtractor<?, ?>>();
+
+        Properties(Class<?> cls) {
+            this.cls = cls;
+            findAllProperties(cls, getters, fields);
+        }
+
+        @SuppressWarnings("unchecked")
+        <O, V> ValueExtractor<O, V> extractor(String propertyName) {
+            return (ValueExtractor<O, V>) extractors.computeIfAbsent(propertyName, this::create);
+        }
+
+        private ValueExtractor<?, ?> create(String propertyName) {
+            if (getters.containsKey(propertyName)) {
+                return getter(getters.get(propertyName));
+            } else if (fields.containsKey(propertyName)) {
+                return field(fields.get(propertyName));
+            }
+
+            throw new IllegalArgumentException("The class " + cls.getName() + " does not contain property '"
+                    + propertyName + "'");
+        }
+    }
+
+    private static <O, V> ValueExtractor<O, V> getter(final Method method) {
+        method.trySetAccessible();
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            return invoking(method);
+        }
+
+        if (isLinkable(method.getDeclaringClass())) {
+            try {
+                return lambda(handle);
+            } catch (Throwable e) {
+                // the handle works anyway, only not as fast
+            }
+        }
+        return invoking(handle);
+    }
+
+    private static <O, V> ValueExtractor<O, V> field(final Field field) {
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            return reading(field);
+        }
+
+        if (Modifier.isStatic(field.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return invoking(handle);
+    }
+
+    /**
+     * @return <code>true</code> if a class generated next to this one can call
+     *         the methods of the class directly
+     */
+    private static boolean isLinkable(Class<?> cls) {
+        boolean samePackage = cls.getPackage() == ReflectionUtils.class.getPackage();
+        if (!Modifier.isPublic(cls.getModifiers()) && !samePackage) {
+            return false;
+        }
+        try {
+            return Class.forName(cls.getName(), false, ReflectionUtils.class.getClassLoader()) == cls;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generates an implementation of the extractor that calls the getter, the
+     * same one <code>Bean::getProperty</code> compiles to
+     */
+    @SuppressWarnings("unchecked")
+    private static <O, V> ValueExtractor<O, V> lambda(MethodHandle getter) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(ValueExtractor.class),
+                EXTRACTOR_TYPE, getter, getter.type().wrap());
+        return (ValueExtractor<O, V>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <O, V> ValueExtractor<O, V> invoking(MethodHandle handle) {
+        final MethodHandle generic = handle.asType(EXTRACTOR_TYPE);
+        return new ValueExtractor<O, V>() {
+            @Override
+            public V get(O object) {
+                try {
+                    Object result = generic.invokeExact((Object) object);
+                    return (V) result;
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    private static <O, V> ValueExtractor<O, V> invoking(final Method method) {
+        return new ValueExtractor<O, V>() {
+            @Override
+            public V get(O object) {
+                try {
+                    @SuppressWarnings("unchecked")
+                    V result = (V) method.invoke(object);
+                    return result;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    private static <O, V> ValueExtractor<O, V> reading(final Field field) {
+        return new ValueExtractor<O, V>() {
+            @Override
+            public V get(O object) {
+                try {
+                    @SuppressWarnings("unchecked")
+                    V result = (V) field.get(object);
+                    return result;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    private static void findAllProperties(Class<?> cls, Map<String, Method> getters,
+            Map<String, Field> allFields) {
+        if (cls.equals(Object.class)) {
+            return;
+        }
+
+        addGetters(getters, cls.getDeclaredMethods());
+        addGetters(getters, cls.getMethods());
+        addFields(allFields, cls.getDeclaredFields());
+        addFields(allFields, cls.getFields());
+
+        findAllProperties(cls.getSuperclass(), getters, allFields);
+    }
+
+    private static void addGetters(Map<String, Method> getters, Method[] declaredMethods) {
+        for (Method method : declaredMethods) {
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            boolean isPublic = Modifier.isPublic(method.getModifiers());
+
+            if (isStatic || !isPublic || method.getParameterCount() > 0) {
+                continue;
+            }
+
+            String name = method.getName();
+            if (name.startsWith("get") && name.length() > 3) {
+                getters.put(name.substring(3), method);
+                String canonicalName = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                getters.put(canonicalName, method);
+            } else if (name.startsWith("is") && name.length() > 2) {
+                getters.put(name.substring(2), method);
+                String canonicalName = Character.toLowerCase(name.charAt(2)) + name.substring(3);
+                getters.put(canonicalName, method);
+            }
+        }
+    }
+
+    private static void addFields(Map<String, Field> allFields, Field[] fields) {
+        for (Field field : fields) {
+            field.trySetAccessible();
+            String name = field.getName();
+            allFields.put(name, field);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+/**
+ * Walks over a sequence by the positions of its elements. It does what a
+ * {@link java.util.ListIterator} does for the matchers, but one cursor is
+ * reused for all the attempts of a matching call, and the elements are taken
+ * with {@link List#get(int)}, so the sequence must have fast random access,
+ * see {@link NfaFinder#randomAccess(List)}. A cursor over a
+ * {@link ColumnarSequence} whose leaves test its columns does not create the
+ * elements: it returns <code>null</code> instead, and the leaves test the
+ * element by its position
+ */
+final class SequenceCursor<E> {
+
+    private List<E> sequence;
+    private int size;
+    private int position;
+    /** <code>true</code> if the elements are not created */
+    private boolean positional;
+
+    SequenceCursor(List<E> sequence, boolean positional) {
+        reset(sequence, positional);
+    }
+
+    void reset(List<E> sequence, boolean positional) {
+        this.sequence = sequence;
+        this.size = sequence.size();
+        this.position = 0;
+        this.positional = positional;
+    }
+
+    boolean isPositional() {
+        return positional;
+    }
+
+    /**
+     * @param position of the element {@link #next()} returns
+     */
+    void moveTo(int position) {
+        this.position = position;
+    }
+
+    boolean hasNext() {
+        return position < size;
+    }
+
+    E next() {
+        int current = position++;
+        return positional ? null : sequence.get(current);
+    }
+
+    /**
+     * Gives back the element {@link #next()} has returned, so it is returned
+     * again
+     */
+    void back() {
+        position--;
+    }
+
+    int nextIndex() {
+        return position;
+    }
+
+    int previousIndex() {
+        return position - 1;
+    }
+
+}
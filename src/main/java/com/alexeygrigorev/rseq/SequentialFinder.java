@@ -0,0 +1,163 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The finder of the {@link Engine#SEQUENTIAL} engine: runs the matchers one
+ * after another starting from each position of the sequence
+ */
+class SequentialFinder<E> implements Finder<E> {
+
+    private final List<ParentMatcher<E>> matchers;
+    private final Evaluation evaluation;
+    private final List<Matcher<E>> leaves;
+    private final Map<Matcher<E>, Integer> leafIds;
+    private final Captures captures;
+
+    /**
+     * @param matchers the compiled matchers of the pattern
+     * @param evaluation of the leaf matchers
+     */
+    SequentialFinder(List<ParentMatcher<E>> matchers, Evaluation evaluation) {
+        this.matchers = matchers;
+        this.evaluation = evaluation;
+
+        NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(false);
+        NfaFinder.emit(matchers, builder);
+        this.leaves = builder.leaves();
+        this.captures = builder.build().captures;
+        this.leafIds = new IdentityHashMap<Matcher<E>, Integer>();
+        for (int i = 0; i < leaves.size(); i++) {
+            leafIds.put(leaves.get(i), i);
+        }
+    }
+
+    @Override
+    public List<Match<E>> find(List<E> sequence) {
+        return matcher(sequence).findAll();
+    }
+
+    @Override
+    public List<Match<E>> find(EvaluatedSequence<E> sequence) {
+        return matcher(sequence).findAll();
+    }
+
+    @Override
+    public MatchCursor<E> matcher(List<E> sequence) {
+        sequence = NfaFinder.randomAccess(sequence);
+        if (evaluation == Evaluation.DIRECT) {
+            return matcher(sequence, null);
+        }
+        return matcher(sequence, new LeafMemo<E>(leaves, leafIds, sequence));
+    }
+
+    @Override
+    public MatchCursor<E> matcher(EvaluatedSequence<E> sequence) {
+        LeafColumns<E> columns = new LeafColumns<E>(leaves, leafIds, sequence);
+        return matcher(sequence.getSequence(), columns);
+    }
+
+    /**
+     * @param sequence to be matched, with fast random access
+     * @param outcomes of the leaves, <code>null</code> if they are evaluated
+     *        directly
+     */
+    private MatchCursor<E> matcher(List<E> sequence, final LeafOutcomes<E> outcomes) {
+        final MatchingContext<E> context = new MatchingContext<E>(sequence, outcomes, captures);
+        return new MatchCursor<E>(sequence, captures) {
+            @Override
+            void reset(List<E> sequence) {
+                sequence = NfaFinder.randomAccess(sequence);
+                if (outcomes != null) {
+                    Validate.validState(outcomes instanceof LeafMemo, "Only cursors over lists can be reset");
+                    ((LeafMemo<E>) outcomes).reset(sequence);
+                }
+                context.reset(sequence);
+                super.reset(sequence);
+            }
+
+            @Override
+            boolean search(int from) {
+                context.startAt(from, startLimit);
+                if (!next(context)) {
+                    return false;
+                }
+                start = context.slot(0);
+                end = context.slot(1);
+                return true;
+            }
+
+            @Override
+            int slot(int index) {
+                return context.slot(index);
+            }
+
+            @Override
+            Match<E> createMatch() {
+                return context.toMatch();
+            }
+        };
+    }
+
+    /**
+     * Runs the matchers from each position of the context until they match.
+     * The match is left in the slots of the context
+     * 
+     * @return <code>false</code> if the end of the sequence is reached
+     */
+    private boolean next(MatchingContext<E> context) {
+        while (context.hasNextStart()) {
+            SequenceCursor<E> matchCursor = context.startAttempt();
+            boolean success = true;
+
+            for (int i = 0; i < matchers.size(); i++) {
+                ParentMatcher<E> matcher = matchers.get(i);
+                if (!matchCursor.hasNext()) {
+                    if (matcher.isOptional()) {
+                        continue;
+                    }
+                    success = false;
+                    break;
+                }
+                context.nextMatcher();
+                E next = matchCursor.next();
+                if (!matcher.match(next, context)) {
+                    success = false;
+                    break;
+                }
+            }
+
+            boolean found = success && context.addSuccessfulMatch();
+            context.nextStart();
+
+            if (found) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public int count(List<E> sequence) {
+        return count(matcher(sequence));
+    }
+
+    @Override
+    public int count(EvaluatedSequence<E> sequence) {
+        return count(matcher(sequence));
+    }
+
+    private static <E> int count(MatchCursor<E> cursor) {
+        int count = 0;
+        while (cursor.find()) {
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,248 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The finder for patterns of fixed length, i.e. patterns without quantifiers
+ * and optional matchers, of up to 64 elements. It uses the Shift-And
+ * algorithm: bit <code>j</code> of the state tells if the last
+ * <code>j + 1</code> elements match the first <code>j + 1</code> leaves of the
+ * pattern, so the whole search is one pass over the sequence with a single
+ * <code>long</code> of state. Only the leaves of the set bits are evaluated
+ * for each element. <br>
+ * <br>
+ * 
+ * It finds exactly the same matches as {@link SequentialFinder}: since all
+ * matchers consume one element, the positions of the captured variables and
+ * groups within a match are known in advance
+ * 
+ * @see Engine#SEQUENTIAL
+ */
+class ShiftAndFinder<E> implements Finder<E> {
+
+    static final int MAX_LENGTH = 64;
+
+    final List<Matcher<E>> leaves;
+    /** the id of the leaf for each position of the pattern */
+    final int[] leafAt;
+    final int length;
+
+    private final Captures captures;
+    /** the bounds of each capture relative to the start of a match */
+    private final int[] captureFrom;
+    private final int[] captureTo;
+
+    ShiftAndFinder(NfaProgram program, List<Matcher<E>> leaves, int[] leafAt, int[] topLevelStarts) {
+        this.leaves = leaves;
+        this.leafAt = leafAt;
+        this.length = leafAt.length;
+
+        int[] from = new int[program.captures.size()];
+        int[] to = new int[program.captures.size()];
+        int topLevel = 0;
+        int topLevelOffset = 0;
+        int offset = 0;
+        for (int pc = 0; pc < program.size(); pc++) {
+            if (topLevel < topLevelStarts.length && topLevelStarts[topLevel] == pc) {
+                topLevel++;
+                topLevelOffset = offset;
+            }
+            int opcode = program.opcodes[pc];
+            if (opcode == NfaProgram.LEAF) {
+                offset++;
+            } else if (opcode == NfaProgram.SAVE && program.arg1[pc] >= 2) {
+                int slot = program.arg1[pc] - 2;
+                int capture = slot / 2;
+                if (slot % 2 == 1) {
+                    to[capture] = offset;
+                } else if (program.captures.groups[capture]) {
+                    // as in the sequential engine, groups are captured from
+                    // the start of the top level matcher they belong to
+                    from[capture] = topLevelOffset;
+                } else {
+                    from[capture] = offset;
+                }
+            }
+        }
+
+        this.captures = program.captures;
+        this.captureFrom = from;
+        this.captureTo = to;
+    }
+
+    /**
+     * @param matchers the compiled matchers of a pattern
+     * @return the finder for the pattern, or <code>null</code> if the pattern
+     *         does not have a fixed length or is longer than
+     *         {@value #MAX_LENGTH}
+     */
+    static <E> ShiftAndFinder<E> create(List<ParentMatcher<E>> matchers) {
+        NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(false);
+        int[] topLevelStarts = new int[matchers.size()];
+        for (int i = 0; i < matchers.size(); i++) {
+            topLevelStarts[i] = builder.pc();
+            matchers.get(i).emit(builder);
+        }
+        NfaProgram program = builder.build();
+
+        int[] leafAt = new int[MAX_LENGTH];
+        int length = 0;
+        for (int pc = 0; pc < program.size(); pc++) {
+            int opcode = program.opcodes[pc];
+            if (opcode == NfaProgram.SPLIT || opcode == NfaProgram.JUMP || opcode == NfaProgram.TRIE) {
+                return null;
+            }
+            if (opcode == NfaProgram.LEAF) {
+                if (length == MAX_LENGTH) {
+                    return null;
+                }
+                leafAt[length++] = program.arg1[pc];
+            }
+        }
+
+        if (length == 0) {
+            return null;
+        }
+
+        List<Matcher<E>> leaves = builder.leaves();
+        leafAt = Arrays.copyOf(leafAt, length);
+        if (HorspoolFinder.isApplicable(leaves)) {
+            return new HorspoolFinder<E>(program, leaves, leafAt, topLevelStarts);
+        }
+        return new ShiftAndFinder<E>(program, leaves, leafAt, topLevelStarts);
+    }
+
+    @Override
+    public List<Match<E>> find(List<E> sequence) {
+        sequence = NfaFinder.randomAccess(sequence);
+        return find(sequence, new LeafInput<E>(leaves, sequence));
+    }
+
+    @Override
+    public List<Match<E>> find(EvaluatedSequence<E> sequence) {
+        return find(sequence.getSequence(), new LeafColumns<E>(leaves, sequence));
+    }
+
+    @Override
+    public MatchCursor<E> matcher(List<E> sequence) {
+        sequence = NfaFinder.randomAccess(sequence);
+        return matcher(sequence, new LeafInput<E>(leaves, sequence));
+    }
+
+    @Override
+    public MatchCursor<E> matcher(EvaluatedSequence<E> sequence) {
+        return matcher(sequence.getSequence(), new LeafColumns<E>(leaves, sequence));
+    }
+
+    @Override
+    public int count(List<E> sequence) {
+        sequence = NfaFinder.randomAccess(sequence);
+        return count(sequence, new LeafInput<E>(leaves, sequence));
+    }
+
+    @Override
+    public int count(EvaluatedSequence<E> sequence) {
+        return count(sequence.getSequence(), new LeafColumns<E>(leaves, sequence));
+    }
+
+    List<Match<E>> find(List<E> sequence, PikeVm.Input input) {
+        return matcher(sequence, input).findAll();
+    }
+
+    MatchCursor<E> matcher(List<E> sequence, final PikeVm.Input input) {
+        return new MatchCursor<E>(sequence, captures) {
+            @Override
+            void reset(List<E> sequence) {
+                super.reset(NfaFinder.resetInput(input, sequence));
+            }
+
+            @Override
+            boolean search(int from) {
+                int to = sequence.size();
+                if (startLimit < to) {
+                    // the last match can start right before the limit
+                    to = Math.min(to, startLimit - 1 + length);
+                }
+                int position = next(sequence, input, from, to);
+                if (position < 0) {
+                    return false;
+                }
+                start = position - length;
+                end = position;
+                return true;
+            }
+
+            @Override
+            int slot(int index) {
+                if (index < 2) {
+                    return index == 0 ? start : end;
+                }
+                int capture = (index - 2) / 2;
+                return start + (index % 2 == 0 ? captureFrom[capture] : captureTo[capture]);
+            }
+
+            @Override
+            Match<E> createMatch() {
+                return ShiftAndFinder.this.toMatch(sequence, start);
+            }
+        };
+    }
+
+    int count(List<E> sequence, PikeVm.Input input) {
+        int count = 0;
+        int position = 0;
+        int size = sequence.size();
+        while ((position = next(sequence, input, position, size)) >= 0) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Runs the Shift-And search from the given position
+     * 
+     * @param sequence to be matched
+     * @param input the outcomes of the leaves for the elements of the sequence
+     * @return the end of the first match, or <code>-1</code> if there is no
+     *         match
+     */
+    int next(List<E> sequence, PikeVm.Input input, int from, int to) {
+        long last = 1L << (length - 1);
+        long state = 0;
+
+        for (int position = from; position < to; position++) {
+            long candidates = (state << 1) | 1L;
+            if (length < MAX_LENGTH) {
+                candidates = candidates & ((last << 1) - 1);
+            }
+
+            state = 0;
+            while (candidates != 0) {
+                int bit = Long.numberOfTrailingZeros(candidates);
+                candidates = candidates & (candidates - 1);
+                if (input.test(leafAt[bit], position)) {
+                    state = state | (1L << bit);
+                }
+            }
+
+            if ((state & last) != 0) {
+                return position + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    private Match<E> toMatch(List<E> sequence, int start) {
+        int[] slots = new int[2 * captures.size() + 2];
+        slots[0] = start;
+        slots[1] = start + length;
+        for (int i = 0; i < captures.size(); i++) {
+            slots[2 * i + 2] = start + captureFrom[i];
+            slots[2 * i + 3] = start + captureTo[i];
+        }
+        return new Match<E>(start, sequence, slots, captures);
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.RandomAccess;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Matches a {@link Pattern} against a stream of elements that are pushed one
+ * by one with {@link #accept(Object)}, so the whole sequence never needs to
+ * be in memory. Only the elements that can still become a part of a match are
+ * buffered: the ones starting from the earliest start of a partial match.
+ * A {@link Match} is available from {@link #poll()} as soon as no later
+ * element can change it, and the positions of the matches are counted from
+ * the start of the stream.<br>
+ * <br>
+ * 
+ * The pattern is simulated as an NFA, so the matcher finds the same matches
+ * as {@link Engine#NFA} does for the whole sequence, regardless of the engine
+ * of the pattern.<br>
+ * <br>
+ * 
+ * A stream matcher keeps the state of one matching call, so it must not be
+ * shared between threads. Use {@link Pattern#streamMatcher()} to create it
+ * 
+ * @see Pattern#find(Iterator)
+ */
+public class StreamMatcher<E> {
+
+    private final NfaProgram program;
+    private final PikeVm vm;
+    private final Window<E> window = new Window<E>();
+    private final PikeVm.Input input;
+    private final Queue<Match<E>> matches = new ArrayDeque<Match<E>>();
+
+    /** the position of the next element the VM is going to consume */
+    private int position;
+    private boolean finished;
+
+    StreamMatcher(List<ParentMatcher<E>> matchers) {
+        NfaBuilder<Matcher<E>> builder = new NfaBuilder<Matcher<E>>(false);
+        NfaFinder.emit(matchers, builder);
+        this.program = builder.build();
+        this.vm = new PikeVm(program);
+        this.input = new LeafInput<E>(builder.leaves(), window);
+        vm.start(0);
+    }
+
+    /**
+     * Pushes the next element of the stream
+     * 
+     * @param element of the stream
+     * @return <code>true</code> if there are matches available from
+     *         {@link #poll()}
+     */
+    public boolean accept(E element) {
+        Validate.validState(!finished, "The stream is already finished");
+        window.buffer.add(element);
+        advance();
+        return !matches.isEmpty();
+    }
+
+    /**
+     * Tells that the stream is over, so the matches that were waiting for
+     * more elements become final
+     * 
+     * @return <code>true</code> if there are matches available from
+     *         {@link #poll()}
+     */
+    public boolean finish() {
+        if (!finished) {
+            finished = true;
+            advance();
+        }
+        return !matches.isEmpty();
+    }
+
+    /**
+     * @return the next found match, or <code>null</code> if no new match is
+     *         final yet
+     */
+    public Match<E> poll() {
+        return matches.poll();
+    }
+
+    /**
+     * @return <code>true</code> if {@link #finish()} was called
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the number of elements kept in the buffer
+     */
+    public int bufferSize() {
+        return window.buffer.size();
+    }
+
+    private void advance() {
+        int size = window.size();
+        while (true) {
+            if (!vm.isRunning()) {
+                int[] slots = vm.matchSlots();
+                matches.add(toMatch(slots));
+                // the search goes on right after the match, the elements
+                // after it that were already seen are consumed again
+                position = slots[1];
+                vm.start(position);
+            } else if (position < size) {
+                vm.step(input, position + 1);
+                position++;
+            } else if (position == size && (finished || vm.isMatchFirst())) {
+                // the threads waiting for more elements fail, which does not
+                // change the match if it is preferred to all of them anyway
+                vm.step(input, size);
+                if (!vm.isMatched()) {
+                    break;
+                }
+            } else {
+                break;
+            }
+        }
+        window.trim(Math.min(vm.earliestStart(), position));
+    }
+
+    /**
+     * Reads the elements of the iterator as they are needed to find the next
+     * match
+     */
+    Iterator<Match<E>> find(final Iterator<E> elements) {
+        return new Iterator<Match<E>>() {
+            @Override
+            public boolean hasNext() {
+                while (matches.isEmpty()) {
+                    if (elements.hasNext()) {
+                        accept(elements.next());
+                    } else if (!finished) {
+                        finish();
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Match<E> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return matches.remove();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove() is not supported");
+            }
+        };
+    }
+
+    /**
+     * The window drops the elements that are not needed anymore, so unlike
+     * the other matches, the ones found in a stream keep a copy of the
+     * matched elements
+     */
+    private Match<E> toMatch(int[] slots) {
+        int start = slots[0];
+        List<E> matched = new ArrayList<E>(window.subList(start, slots[1]));
+
+        int[] shifted = slots.clone();
+        for (int i = 0; i < shifted.length; i++) {
+            if (shifted[i] >= 0) {
+                shifted[i] = shifted[i] - start;
+            }
+        }
+        return new Match<E>(start, matched, shifted, program.captures);
+    }
+
+    /**
+     * The elements of the stream seen so far, indexed by their position in
+     * the stream. Only the buffered tail of the stream is accessible
+     */
+    private static class Window<E> extends AbstractList<E> implements RandomAccess {
+
+        private final ArrayList<E> buffer = new ArrayList<E>();
+        /** the position of the first buffered element */
+        private int offset;
+
+        @Override
+        public E get(int index) {
+            return buffer.get(index - offset);
+        }
+
+        @Override
+        public int size() {
+            return offset + buffer.size();
+        }
+
+        /**
+         * Drops the elements before the position. To keep it cheap, the buffer
+         * is shifted only when at least a half of it can be dropped
+         */
+        void trim(int position) {
+            int drop = position - offset;
+            if (drop > 0 && drop >= buffer.size() / 2) {
+                buffer.subList(0, drop).clear();
+                offset = position;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link Match} that also tells which of several patterns produced it
+ * 
+ * @see PatternSet
+ */
+public class TaggedMatch<E> extends Match<E> {
+
+    private final int id;
+
+    /**
+     * Shouldn't be used by users of the library
+     * 
+     * @param id
+     * @param index
+     * @param match
+     * @param variables
+     * @param groups
+     */
+    public TaggedMatch(int id, int index, List<E> match, Map<String, E> variables, Map<String, List<E>> groups) {
+        super(index, match, variables, groups);
+        this.id = id;
+    }
+
+    /**
+     * Creates a match without captures
+     */
+    TaggedMatch(int id, List<E> sequence, int start, int end) {
+        super(sequence, start, end);
+        this.id = id;
+    }
+
+    /**
+     * @param id of the pattern
+     * @param sequence the matched sequence
+     * @param slots see {@link Match#Match(int, List, int[], Captures)}
+     * @param captures of the pattern
+     */
+    TaggedMatch(int id, List<E> sequence, int[] slots, Captures captures) {
+        super(slots[0], sequence, slots, captures);
+        this.id = id;
+    }
+
+    /**
+     * @return the id of the pattern that produced the match
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return super.equals(obj) && id == ((TaggedMatch<?>) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + id;
+    }
+
+    @Override
+    public String toString() {
+        return "TaggedMatch [id=" + id + ", index=" + matchedFrom() + ", match=" + getMatchedSubsequence()
+                + ", variables=" + getVariables() + "]";
+    }
+
+}
@@ -1,7 +1,7 @@
-package com.alexeygrigorev.rseq;
-
-public interface TransformerToElement<E> {
-
-    E transform(Match<E> match);
-
-}
+package com.alexeygrigorev.rseq;
+
+public interface TransformerToElement<E> {
+
+    E transform(Match<E> match);
+
+}
@@ -1,9 +1,9 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.List;
-
-public interface TransformerToList<E> {
-
-    List<E> transform(Match<E> match);
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+public interface TransformerToList<E> {
+
+    List<E> transform(Match<E> match);
+
+}
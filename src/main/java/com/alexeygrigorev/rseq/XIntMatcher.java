@@ -0,0 +1,89 @@
+package com.alexeygrigorev.rseq;
+
+/**
+ * A class that implements {@link IntMatcher} and adds some extra methods for
+ * convenience, like {@link XMatcher} does for {@link Matcher}
+ */
+public abstract class XIntMatcher implements IntMatcher {
+
+    public abstract boolean match(int value);
+
+    public XIntMatcher captureAs(String name) {
+        return IntMatchers.capture(this, name);
+    }
+
+    public XIntMatcher or(IntMatcher other) {
+        return IntMatchers.or(this, other);
+    }
+
+    public XIntMatcher and(IntMatcher other) {
+        return IntMatchers.and(this, other);
+    }
+
+    public XIntMatcher optional() {
+        return IntMatchers.optional(this);
+    }
+
+    public XIntMatcher oneOrMoreGreedy() {
+        return IntMatchers.oneOrMoreGreedy(this);
+    }
+
+    public XIntMatcher zeroOrMoreGreedy() {
+        return IntMatchers.zeroOrMoreGreedy(this);
+    }
+
+    public XIntMatcher oneOrMore() {
+        return IntMatchers.oneOrMore(this);
+    }
+
+    public XIntMatcher zeroOrMore() {
+        return IntMatchers.zeroOrMore(this);
+    }
+
+    public XIntMatcher invert() {
+        return IntMatchers.not(this);
+    }
+
+    /**
+     * Emits the instructions of the matcher to the program of an
+     * {@link IntPattern}. By default the matcher is a leaf that consumes
+     * exactly one value
+     * 
+     * @param nfa the builder of the program
+     */
+    void emit(NfaBuilder<IntMatcher> nfa) {
+        nfa.leaf(this);
+    }
+
+    /**
+     * @return the matcher to use when it is the last one in a pattern: a lazy
+     *         quantifier has nothing to stop at there, so it becomes greedy
+     */
+    XIntMatcher atEnd() {
+        return this;
+    }
+
+    /**
+     * @return the matcher with all the lazy quantifiers made greedy. As in
+     *         {@link Pattern}, only the quantifiers of the pattern itself and
+     *         of its groups stop at the next matcher, a quantifier inside
+     *         another one is greedy
+     */
+    XIntMatcher greedy() {
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if the matcher consumes exactly one value, so
+     *         it can be captured as a variable
+     */
+    boolean isLeaf() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "toString() not overriden!";
+    }
+
+}
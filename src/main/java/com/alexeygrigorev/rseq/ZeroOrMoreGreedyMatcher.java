@@ -1,45 +1,64 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.ListIterator;
-
-class ZeroOrMoreGreedyMatcher<E> extends DelegatingMatcher<E> {
-
-    public ZeroOrMoreGreedyMatcher(Matcher<E> matcher) {
-        super(matcher);
-    }
-
-    @Override
-    public boolean match(E object) {
-        ListIterator<E> currentIterator = context().getCurrentMatchIterator();
-        if (!delegateMatch(object)) {
-            currentIterator.previous();
-            return true;
-        }
-
-        while (currentIterator.hasNext()) {
-            E next = currentIterator.next();
-            if (!delegateMatch(next)) {
-                currentIterator.previous();
-                break;
-            }
-        }
-
-        return true;
-    }
-
-    @Override
-    public ParentMatcher<E> captureAs(String name) {
-        return new CapturingGroupMatcher<E>(name, this);
-    }
-
-    @Override
-    boolean isOptional() {
-        return true;
-    }
-
-    @Override
-    public String toString() {
-        return "[" + delegateToString() + "]*";
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+class ZeroOrMoreGreedyMatcher<E> extends DelegatingMatcher<E> {
+
+    public ZeroOrMoreGreedyMatcher(Matcher<E> matcher) {
+        super(matcher);
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        SequenceCursor<E> currentCursor = context.getCurrentMatchCursor();
+        if (!delegateMatch(object, context)) {
+            currentCursor.back();
+            return true;
+        }
+
+        while (currentCursor.hasNext()) {
+            E next = currentCursor.next();
+            if (!delegateMatch(next, context)) {
+                currentCursor.back();
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if the matcher prefers to consume as many
+     *         elements as possible
+     */
+    boolean isGreedy() {
+        return true;
+    }
+
+    @Override
+    void emit(NfaBuilder<Matcher<E>> nfa) {
+        int split = nfa.split();
+        int body = nfa.pc();
+        emitDelegate(nfa);
+        nfa.jump(split);
+        if (isGreedy()) {
+            nfa.patch(split, body, nfa.pc());
+        } else {
+            nfa.patch(split, nfa.pc(), body);
+        }
+    }
+
+    @Override
+    public ParentMatcher<E> captureAs(String name) {
+        return new CapturingGroupMatcher<E>(name, this);
+    }
+
+    @Override
+    boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + delegateToString() + "]*";
+    }
+
+}
@@ -1,67 +1,85 @@
-package com.alexeygrigorev.rseq;
-
-import java.util.List;
-import java.util.ListIterator;
-
-class ZeroOrMoreLazyMatcher<E> extends ZeroOrMoreGreedyMatcher<E> {
-
-    private DelegatingMatcher<E> nextMatcher;
-
-    public ZeroOrMoreLazyMatcher(Matcher<E> matcher) {
-        super(matcher);
-    }
-
-    @Override
-    void initialize(MatchingContext<E> context) {
-        this.nextMatcher = null;
-
-        List<ParentMatcher<E>> pattern = context.getPattern();
-        if (index + 1 < pattern.size()) {
-            Matcher<E> nextMatcher = pattern.get(index + 1);
-            this.nextMatcher = DelegatingMatcher.wrap(nextMatcher);
-        }
-    }
-
-    @Override
-    public boolean match(E object) {
-        if (nextMatcher == null) {
-            return super.match(object);
-        }
-
-        ListIterator<E> currentIterator = context().getCurrentMatchIterator();
-
-        if (!delegateMatch(object) || nextMatcher.match(object)) {
-            currentIterator.previous();
-            return true;
-        }
-
-        while (currentIterator.hasNext()) {
-            E next = currentIterator.next();
-
-            boolean currentMatch = delegateMatch(next);
-            boolean nextMatch = nextMatcher.unwrappingMatch(next);
-
-            if (!currentMatch) {
-                currentIterator.previous();
-                break;
-            }
-
-            if (currentMatch && nextMatch) {
-                currentIterator.previous();
-                break;
-            }
-        }
-
-        return true;
-    }
-
-    @Override
-    public String toString() {
-        if (nextMatcher == null) {
-            return super.toString();
-        }
-
-        return "[" + delegateToString() + "]*?";
-    }
-
-}
+package com.alexeygrigorev.rseq;
+
+import java.util.List;
+
+class ZeroOrMoreLazyMatcher<E> extends ZeroOrMoreGreedyMatcher<E> {
+
+    private final int index;
+    private DelegatingMatcher<E> nextMatcher;
+
+    public ZeroOrMoreLazyMatcher(Matcher<E> matcher) {
+        this(matcher, -1);
+    }
+
+    private ZeroOrMoreLazyMatcher(Matcher<E> matcher, int index) {
+        super(matcher);
+        this.index = index;
+    }
+
+    @Override
+    ParentMatcher<E> compile(List<ParentMatcher<E>> program, Captures captures) {
+        ParentMatcher<E> bound = new ZeroOrMoreLazyMatcher<E>(delegate(), program.size());
+        program.add(bound);
+        return bound;
+    }
+
+    @Override
+    void initialize(List<ParentMatcher<E>> program) {
+        if (index + 1 < program.size()) {
+            Matcher<E> nextMatcher = program.get(index + 1);
+            this.nextMatcher = DelegatingMatcher.wrap(nextMatcher);
+        }
+    }
+
+    @Override
+    boolean match(E object, MatchingContext<E> context) {
+        if (nextMatcher == null) {
+            return super.match(object, context);
+        }
+
+        SequenceCursor<E> currentCursor = context.getCurrentMatchCursor();
+
+        if (!delegateMatch(object, context) || nextMatcher.match(object, context)) {
+            currentCursor.back();
+            return true;
+        }
+
+        while (currentCursor.hasNext()) {
+            E next = currentCursor.next();
+
+            boolean currentMatch = delegateMatch(next, context);
+            boolean nextMatch = nextMatcher.unwrappingMatch(next, context);
+
+            if (!currentMatch) {
+                currentCursor.back();
+                break;
+            }
+
+            if (currentMatch && nextMatch) {
+                currentCursor.back();
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The last matcher of a pattern has nothing to stop at, so it behaves
+     * like a greedy one
+     */
+    @Override
+    boolean isGreedy() {
+        return nextMatcher == null;
+    }
+
+    @Override
+    public String toString() {
+        if (nextMatcher == null) {
+            return super.toString();
+        }
+
+        return "[" + delegateToString() + "]*?";
+    }
+
+}
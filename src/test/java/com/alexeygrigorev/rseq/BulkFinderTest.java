@@ -0,0 +1,68 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.Matchers.in;
+import static com.alexeygrigorev.rseq.TestSequences.randomDocuments;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class BulkFinderTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    @Test
+    public void findAll_sameMatchesAsFind() {
+        List<List<String>> documents = randomDocuments(1000);
+        XMatcher<String> any = anything();
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("a"), eq("b")),
+                Pattern.create(eq("a"), group(any.captureAs("x"), in("a", "b")).captureAs("g")),
+                Pattern.create(eq("a"), eq("b").oneOrMoreGreedy(), eq("c").optional()));
+
+        for (Pattern<String> pattern : patterns) {
+            for (Engine engine : Engine.values()) {
+                for (Evaluation evaluation : Evaluation.values()) {
+                    Pattern<String> p = pattern.withEngine(engine).withEvaluation(evaluation);
+
+                    final Map<Integer, List<Match<String>>> found = new ConcurrentHashMap<>();
+                    p.findAll(documents, EXECUTOR, (document, match) -> {
+                        found.computeIfAbsent(document, d -> new ArrayList<Match<String>>()).add(match);
+                    });
+
+                    for (int i = 0; i < documents.size(); i++) {
+                        List<Match<String>> expected = p.find(documents.get(i));
+                        List<Match<String>> actual = found.getOrDefault(i, new ArrayList<Match<String>>());
+                        assertEquals(p + " " + engine + " " + evaluation + " " + i, expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findAll_consumerFails() {
+        List<List<String>> documents = randomDocuments(1000);
+        Pattern<String> pattern = Pattern.create(eq("a"));
+        pattern.findAll(documents, EXECUTOR, (document, match) -> {
+            throw new IllegalArgumentException();
+        });
+    }
+
+}
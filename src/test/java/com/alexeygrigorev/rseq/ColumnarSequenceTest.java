@@ -0,0 +1,102 @@
+package com.alexeygrigorev.rseq;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ColumnarSequenceTest {
+
+    private static final String[] TAGS = { "DT", "JJ", "NN", "VB" };
+
+    @Test
+    public void find_sameMatchesAsList() {
+        Random random = new Random(1);
+        int size = 2000;
+        String[] tokens = new String[size];
+        int[] pos = new int[size];
+        List<Word> words = new ArrayList<Word>(size);
+        for (int i = 0; i < size; i++) {
+            tokens[i] = "w" + random.nextInt(10);
+            pos[i] = random.nextInt(TAGS.length);
+            words.add(new Word(tokens[i], TAGS[pos[i]]));
+        }
+
+        ColumnarSequence<Word> columnar = new ColumnarSequence<Word>(size, i -> new Word(tokens[i], TAGS[pos[i]]))
+                .addColumn("token", tokens)
+                .addColumn("pos", pos, TAGS);
+
+        XMatcher<Word> adjective = BeanMatchers.eq(Word.class, "pos", "JJ");
+        Pattern<Word> pattern = Pattern.create(BeanMatchers.eq(Word.class, "pos", "DT"), adjective.zeroOrMore(),
+                BeanMatchers.eq(Word.class, "pos", "NN").captureAs("noun"),
+                BeanMatchers.eq(Word.class, "token", "w1").optional());
+
+        for (Engine engine : Engine.values()) {
+            for (Evaluation evaluation : Evaluation.values()) {
+                Pattern<Word> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                assertEquals(engine + " " + evaluation, p.find(words), p.find(columnar));
+            }
+        }
+    }
+
+    @Test
+    public void find_withoutElements() {
+        int[] pos = { 0, 1, 2, 3, 0, 2, 0, 0, 1, 1, 2 };
+        Integer[] lengths = { 3, 5, 4, 2, 3, 6, 3, 3, 7, 8, 3 };
+        ColumnarSequence<Object> columnar = new ColumnarSequence<Object>(pos.length, null)
+                .addColumn("pos", pos, TAGS)
+                .addColumn("length", lengths);
+
+        XMatcher<Object> adjective = ColumnMatchers.in("pos", "JJ", "VB");
+        Pattern<Object> pattern = Pattern.create(ColumnMatchers.eq("pos", "DT"), adjective.zeroOrMore(),
+                ColumnMatchers.eq("pos", "NN"));
+
+        for (Engine engine : Engine.values()) {
+            for (Evaluation evaluation : Evaluation.values()) {
+                if (engine == Engine.SEQUENTIAL && evaluation == Evaluation.DIRECT) {
+                    // the only combination that needs the elements
+                    continue;
+                }
+                Pattern<Object> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                List<Integer> starts = new ArrayList<Integer>();
+                p.find(columnar, match -> starts.add(match.start()));
+                assertEquals(Arrays.asList(0, 4, 7), starts);
+                assertEquals(3, p.count(columnar));
+            }
+        }
+
+        Pattern<Object> lengths3 = Pattern.create(ColumnMatchers.eq("length", 3)).withEngine(Engine.DFA);
+        assertEquals(5, lengths3.count(columnar));
+    }
+
+    @Test
+    public void find_sequentialCreatesNoRows() {
+        String[] tokens = { "the", "big", "cat", "sat", "a", "dog" };
+        int[] pos = { 0, 1, 2, 3, 0, 2 };
+        AtomicInteger rows = new AtomicInteger();
+        ColumnarSequence<Word> columnar = new ColumnarSequence<Word>(tokens.length, i -> {
+            rows.incrementAndGet();
+            return new Word(tokens[i], TAGS[pos[i]]);
+        }).addColumn("token", tokens).addColumn("pos", pos, TAGS);
+
+        Pattern<Word> pattern = Pattern.create(BeanMatchers.eq(Word.class, "pos", "DT"),
+                BeanMatchers.eq(Word.class, "pos", "JJ").zeroOrMore(),
+                BeanMatchers.eq(Word.class, "pos", "NN").captureAs("noun"));
+        for (Evaluation evaluation : Arrays.asList(Evaluation.MEMOIZED, Evaluation.COLUMNAR)) {
+            List<Match<Word>> matches = pattern.withEvaluation(evaluation).find(columnar);
+            assertEquals(2, matches.size());
+            assertEquals(0, rows.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addColumn_wrongLength() {
+        new ColumnarSequence<Word>(3, null).addColumn("pos", new int[2], TAGS);
+    }
+
+}
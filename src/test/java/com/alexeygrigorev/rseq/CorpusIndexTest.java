@@ -0,0 +1,135 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.TestSequences.writeRandom;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CorpusIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void find_sameMatchesAsEverySentence() throws Exception {
+        Path corpusFile = folder.newFile("corpus.bin").toPath();
+        Path indexFile = folder.newFile("index.bin").toPath();
+        List<List<Word>> sentences = writeRandom(corpusFile, 500, 40);
+
+        XMatcher<Word> dt = BeanMatchers.eq(Word.class, "pos", "DT");
+        XMatcher<Word> jj = BeanMatchers.eq(Word.class, "pos", "JJ");
+        XMatcher<Word> nn = BeanMatchers.eq(Word.class, "pos", "NN");
+        XMatcher<Word> rare = BeanMatchers.regex(Word.class, "token", "w1[0-4]");
+        List<Pattern<Word>> patterns = Arrays.asList(
+                Pattern.create(dt, jj.zeroOrMore(), nn.captureAs("noun")),
+                Pattern.create(jj.oneOrMoreGreedy(), rare, nn),
+                Pattern.create(dt.optional(), rare, Matchers.<Word> anything(), nn),
+                Pattern.create(Matchers.group(rare, jj).optional(), nn, rare),
+                Pattern.create(Matchers.or(dt, jj), nn));
+
+        try (Corpus corpus = Corpus.open(corpusFile, 5)) {
+            CorpusIndex.build(corpus, indexFile);
+            try (CorpusIndex index = CorpusIndex.open(indexFile, corpus, 5)) {
+                for (Pattern<Word> pattern : patterns) {
+                    for (Engine engine : Engine.values()) {
+                        Pattern<Word> p = pattern.withEngine(engine);
+                        List<String> expected = new ArrayList<String>();
+                        for (int i = 0; i < sentences.size(); i++) {
+                            for (Match<Word> match : p.find(sentences.get(i))) {
+                                expected.add(i + " " + match);
+                            }
+                        }
+
+                        List<String> actual = new ArrayList<String>();
+                        index.find(p, values -> new Word(values[0], values[1]),
+                                (match, sentence) -> actual.add(sentence + " " + match));
+                        assertEquals(pattern + " " + engine, expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void candidates_startsOfRequiredLeaves() throws Exception {
+        Path corpusFile = folder.newFile("corpus.bin").toPath();
+        Path indexFile = folder.newFile("index.bin").toPath();
+        try (CorpusWriter writer = new CorpusWriter(corpusFile, "token", "pos")) {
+            writer.addSentence(new String[] { "the", "cat", "sat" }, new String[] { "DT", "NN", "VB" });
+            writer.addSentence(new String[] { "a", "dog" }, new String[] { "DT", "NN" });
+            writer.addSentence(new String[] { "cats", "sat" }, new String[] { "NN", "VB" });
+            writer.addSentence(new String[] { "the", "cat", "the", "cat" }, new String[] { "DT", "NN", "DT", "NN" });
+        }
+
+        try (Corpus corpus = Corpus.open(corpusFile)) {
+            CorpusIndex.build(corpus, indexFile);
+            try (CorpusIndex index = CorpusIndex.open(indexFile, corpus)) {
+                Pattern<Word> theCat = Pattern.create(BeanMatchers.eq(Word.class, "token", "the"),
+                        BeanMatchers.eq(Word.class, "pos", "NN"));
+                Candidates candidates = index.candidates(theCat);
+                assertTrue(candidates.next());
+                assertEquals(0, candidates.sentence());
+                assertArrayEquals(new int[] { 0 }, candidates.starts());
+                assertTrue(candidates.next());
+                assertEquals(3, candidates.sentence());
+                assertArrayEquals(new int[] { 0, 2 }, candidates.starts());
+                assertFalse(candidates.next());
+
+                // the start of the noun depends on the optional determiner
+                Pattern<Word> nounVerb = Pattern.create(BeanMatchers.eq(Word.class, "pos", "DT").optional(),
+                        BeanMatchers.eq(Word.class, "pos", "NN"), BeanMatchers.eq(Word.class, "pos", "VB"));
+                candidates = index.candidates(nounVerb);
+                assertTrue(candidates.next());
+                assertEquals(0, candidates.sentence());
+                assertNull(candidates.starts());
+                assertTrue(candidates.next());
+                assertEquals(2, candidates.sentence());
+                assertFalse(candidates.next());
+            }
+        }
+    }
+
+    @Test
+    public void build_spilledSameAsInMemory() throws Exception {
+        Path corpusFile = folder.newFile("corpus.bin").toPath();
+        Path inMemory = folder.newFile("index.bin").toPath();
+        Path spilled = folder.newFile("spilled.bin").toPath();
+        writeRandom(corpusFile, 300, 40);
+
+        try (Corpus corpus = Corpus.open(corpusFile)) {
+            CorpusIndex.build(corpus, inMemory);
+            CorpusIndex.build(corpus, spilled, 100);
+        }
+        assertArrayEquals(Files.readAllBytes(inMemory), Files.readAllBytes(spilled));
+        assertFalse(Files.exists(spilled.resolveSibling("spilled.bin.postings.tmp")));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void open_anotherCorpus() throws Exception {
+        Path first = folder.newFile("first.bin").toPath();
+        Path second = folder.newFile("second.bin").toPath();
+        Path indexFile = folder.newFile("index.bin").toPath();
+        writeRandom(first, 10, 40);
+        writeRandom(second, 20, 40);
+
+        try (Corpus corpus = Corpus.open(first)) {
+            CorpusIndex.build(corpus, indexFile);
+        }
+        try (Corpus corpus = Corpus.open(second)) {
+            CorpusIndex.open(indexFile, corpus).close();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.TestSequences.writeRandom;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CorpusTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sentences_sameAsWritten() throws Exception {
+        Path file = folder.newFile("corpus.bin").toPath();
+        List<List<Word>> sentences = writeRandom(file, 300, 10);
+
+        // small segments, so the sentences are spread over many of them
+        try (Corpus corpus = Corpus.open(file, 4)) {
+            assertEquals(Arrays.asList("token", "pos"), corpus.attributes());
+            assertEquals(sentences.size(), corpus.sentenceCount());
+
+            long tokens = 0;
+            int index = 0;
+            for (ColumnarSequence<String[]> sentence : corpus.sentences()) {
+                List<Word> expected = sentences.get(index++);
+                assertEquals(expected.size(), sentence.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    Word word = expected.get(i);
+                    assertArrayEquals(new String[] { word.getToken(), word.getPos() }, sentence.get(i));
+                    assertEquals(word.getPos(), sentence.getValue("pos", i));
+                }
+                tokens = tokens + sentence.size();
+            }
+            assertEquals(tokens, corpus.tokenCount());
+        }
+    }
+
+    @Test
+    public void find_sameMatchesAsList() throws Exception {
+        Path file = folder.newFile("corpus.bin").toPath();
+        List<List<Word>> sentences = writeRandom(file, 300, 10);
+
+        XMatcher<Word> adjective = BeanMatchers.eq(Word.class, "pos", "JJ");
+        Pattern<Word> pattern = Pattern.create(BeanMatchers.eq(Word.class, "pos", "DT"), adjective.zeroOrMore(),
+                BeanMatchers.eq(Word.class, "pos", "NN").captureAs("noun"),
+                BeanMatchers.in(Word.class, "token", new HashSet<String>(Arrays.asList("w1", "w2"))).optional());
+
+        try (Corpus corpus = Corpus.open(file, 5)) {
+            for (Engine engine : Engine.values()) {
+                Pattern<Word> p = pattern.withEngine(engine);
+                for (int i = 0; i < sentences.size(); i++) {
+                    ColumnarSequence<Word> sentence = corpus.sentence(i, values -> new Word(values[0], values[1]));
+                    assertEquals(engine + " " + i, p.find(sentences.get(i)), p.find(sentence));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addSentence_differentLengths() throws Exception {
+        try (CorpusWriter writer = new CorpusWriter(folder.newFile("corpus.bin").toPath(), "token", "pos")) {
+            writer.addSentence(new String[] { "a", "b" }, new String[] { "DT" });
+        }
+    }
+
+    @Test
+    public void addSentence_rejectedSentenceNotWritten() throws Exception {
+        Path file = folder.newFile("corpus.bin").toPath();
+        try (CorpusWriter writer = new CorpusWriter(file, "token", "pos")) {
+            writer.addSentence(new String[] { "a", "b" }, new String[] { "DT", "NN" });
+            try {
+                writer.addSentence(new String[] { "c" }, new String[] { null });
+                fail("null values must be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            writer.addSentence(new String[] { "d" }, new String[] { "VB" });
+        }
+
+        try (Corpus corpus = Corpus.open(file)) {
+            assertEquals(2, corpus.sentenceCount());
+            List<String[]> tokens = new ArrayList<String[]>();
+            for (ColumnarSequence<String[]> sentence : corpus.sentences()) {
+                tokens.addAll(sentence);
+            }
+            assertEquals(3, tokens.size());
+            assertArrayEquals(new String[] { "a", "DT" }, tokens.get(0));
+            assertArrayEquals(new String[] { "d", "VB" }, tokens.get(2));
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DfaEngineTest {
+
+    @Test
+    public void sameAsNfa() {
+        List<String> sequence = seq("a x x x b ' a ' b ' c a b c a c x y x x y");
+        XMatcher<String> any = anything();
+
+        @SuppressWarnings("unchecked")
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("x").oneOrMoreGreedy(), eq("x")),
+                Pattern.create(eq("'"), any.zeroOrMore(), eq("'")),
+                Pattern.create(eq("'"), any.zeroOrMoreGreedy(), eq("'")),
+                Pattern.create(group(eq("a"), eq("b")).optional(), eq("c")),
+                Pattern.create(eq("a").zeroOrMoreGreedy()),
+                Pattern.create(eq("x").oneOrMore(), eq("y").optional()),
+                Pattern.create(eq("x").or(eq("y")).oneOrMoreGreedy()));
+
+        for (Pattern<String> pattern : patterns) {
+            List<Match<String>> expected = pattern.withEngine(Engine.NFA).find(sequence);
+            assertEquals(expected, pattern.withEngine(Engine.DFA).find(sequence));
+            assertEquals(expected.size(), pattern.withEngine(Engine.DFA).count(sequence));
+        }
+    }
+
+    @Test
+    public void captures() {
+        List<String> sequence = seq("one , , two three one two");
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("one").captureAs("one"), any.zeroOrMore().captureAs("gap"),
+                eq("two").captureAs("two")).withEngine(Engine.DFA);
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(2, matches.size());
+
+        Match<String> match = matches.get(0);
+        assertEquals("one", match.getVariable("one"));
+        assertEquals("two", match.getVariable("two"));
+        assertEquals(seq(", ,"), match.getCapturedGroup("gap"));
+        assertEquals(5, matches.get(1).matchedFrom());
+    }
+
+    @Test
+    public void manyStates_fallsBackToNfa() {
+        XMatcher<String> any = anything();
+        List<Matcher<String>> matchers = new ArrayList<Matcher<String>>();
+        matchers.add(any.zeroOrMoreGreedy());
+        matchers.add(eq("a"));
+        for (int i = 0; i < 14; i++) {
+            matchers.add(any);
+        }
+        matchers.add(eq("b"));
+        Pattern<String> pattern = Pattern.create(matchers);
+
+        Random random = new Random(1);
+        List<String> sequence = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            sequence.add(random.nextBoolean() ? "a" : "b");
+        }
+
+        List<Match<String>> expected = pattern.withEngine(Engine.NFA).find(sequence);
+        assertEquals(expected, pattern.withEngine(Engine.DFA).find(sequence));
+        assertEquals(expected.size(), pattern.withEngine(Engine.DFA).count(sequence));
+    }
+
+}
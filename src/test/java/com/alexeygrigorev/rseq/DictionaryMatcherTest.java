@@ -0,0 +1,103 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.dictionary;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DictionaryMatcherTest {
+
+    @SuppressWarnings("unchecked")
+    private final XMatcher<String> cities = dictionary(seq("new york"), seq("new york city"), seq("york"),
+            seq("los angeles"));
+
+    @Test
+    public void longestPhrase() {
+        Pattern<String> pattern = Pattern.create(eq("in"), cities.captureAs("city"));
+        List<String> sequence = seq("in new york city and in york and in new jersey");
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(2, matches.size());
+        assertEquals(seq("new york city"), matches.get(0).getCapturedGroup("city"));
+        assertEquals(seq("york"), matches.get(1).getCapturedGroup("city"));
+    }
+
+    @Test
+    public void optional() {
+        Pattern<String> pattern = Pattern.create(eq("from"), cities.optional(), eq("to"));
+        List<String> sequence = seq("from los angeles to from to from boston to");
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(2, matches.size());
+        assertEquals(seq("from los angeles to"), matches.get(0).getMatchedSubsequence());
+        assertEquals(seq("from to"), matches.get(1).getMatchedSubsequence());
+    }
+
+    @Test
+    public void automataEngines() {
+        Pattern<String> pattern = Pattern.create(eq("in"), cities.captureAs("city"), eq("and"));
+        List<String> sequence = seq("in new york city and in york and in new york and in new jersey and");
+
+        List<Match<String>> expected = pattern.find(sequence);
+        assertEquals(3, expected.size());
+        assertEquals(expected, pattern.withEngine(Engine.NFA).find(sequence));
+        assertEquals(expected, pattern.withEngine(Engine.DFA).find(sequence));
+    }
+
+    @Test
+    public void nfa_givesBackForTheRestOfThePattern() {
+        Pattern<String> pattern = Pattern.create(cities, eq("city"));
+        List<String> sequence = seq("new york city");
+
+        assertEquals(seq("york city"), pattern.find(sequence).get(0).getMatchedSubsequence());
+        assertEquals(seq("new york city"), pattern.withEngine(Engine.NFA).find(sequence).get(0)
+                .getMatchedSubsequence());
+    }
+
+    @Test
+    public void beanProperty() {
+        @SuppressWarnings("unchecked")
+        XMatcher<Word> units = BeanMatchers.dictionary(Word.class, "token",
+                Arrays.asList(seq("meters per second"), seq("meters")));
+        Pattern<Word> pattern = Pattern.create(BeanMatchers.eq(Word.class, "pos", "CD"), units);
+        List<Word> sequence = Arrays.asList(new Word("10", "CD"), new Word("meters", "NNS"), new Word("per", "IN"),
+                new Word("second", "NN"));
+
+        List<Match<Word>> matches = pattern.find(sequence);
+        assertEquals(1, matches.size());
+        assertEquals(4, matches.get(0).getMatchedSubsequence().size());
+        assertEquals(matches, pattern.withEngine(Engine.NFA).find(sequence));
+    }
+
+    @Test(timeout = 10000)
+    public void automataEngines_largeDictionary() {
+        Random random = new Random(1);
+        List<List<String>> phrases = new ArrayList<List<String>>();
+        for (int i = 0; i < 20000; i++) {
+            String[] phrase = new String[1 + random.nextInt(3)];
+            for (int j = 0; j < phrase.length; j++) {
+                phrase[j] = "w" + random.nextInt(2000);
+            }
+            phrases.add(Arrays.asList(phrase));
+        }
+        List<String> sequence = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            sequence.add("w" + random.nextInt(2000));
+        }
+
+        Pattern<String> pattern = Pattern.create(eq("w1").optional(), dictionary(phrases).captureAs("phrase"));
+        List<Match<String>> expected = pattern.find(sequence);
+        assertTrue(expected.size() > 1000);
+        assertEquals(expected, pattern.withEngine(Engine.NFA).find(sequence));
+        assertEquals(expected, pattern.withEngine(Engine.DFA).find(sequence));
+    }
+
+}
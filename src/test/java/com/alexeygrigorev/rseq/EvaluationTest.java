@@ -0,0 +1,107 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class EvaluationTest {
+
+    @Test
+    public void memoized_eachLeafOncePerPosition() {
+        CountingMatcher word = new CountingMatcher("x");
+        Pattern<String> pattern = Pattern.create(word.oneOrMoreGreedy(), word, eq("y"));
+
+        String[] elements = new String[100];
+        Arrays.fill(elements, "x");
+        List<String> sequence = Arrays.asList(elements);
+
+        assertTrue(pattern.find(sequence).isEmpty());
+        assertTrue(word.calls > sequence.size());
+
+        word.calls = 0;
+        assertTrue(pattern.withEvaluation(Evaluation.MEMOIZED).find(sequence).isEmpty());
+        assertTrue(word.calls <= sequence.size());
+    }
+
+    @Test
+    public void memoized_sameMatches() {
+        List<String> sequence = seq("Where E is the energy and λ is the wavelength , c is the speed of light");
+        XMatcher<String> any = anything();
+
+        @SuppressWarnings("unchecked")
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("is"), eq("the"), any.captureAs("def")),
+                Pattern.create(eq("E").or(eq("λ")), eq("is"), eq("the").optional(), any.captureAs("def")),
+                Pattern.create(eq("is"), any.oneOrMore().captureAs("def"), eq("and").or(eq(","))),
+                Pattern.create(eq("the"), any.zeroOrMore(), eq("is")),
+                Pattern.create(group(eq("the"), any).captureAs("np")));
+
+        for (Pattern<String> pattern : patterns) {
+            List<Match<String>> expected = pattern.find(sequence);
+            assertEquals(expected, pattern.withEvaluation(Evaluation.MEMOIZED).find(sequence));
+            assertEquals(expected, pattern.withEvaluation(Evaluation.MEMOIZED).find(new LinkedList<String>(sequence)));
+        }
+    }
+
+    @Test
+    public void columnar_sameMatches() {
+        List<String> sequence = seq("Where E is the energy and λ is the wavelength , c is the speed of light");
+        XMatcher<String> any = anything();
+
+        @SuppressWarnings("unchecked")
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("is"), eq("the"), any.captureAs("def")),
+                Pattern.create(eq("is"), any.oneOrMore().captureAs("def"), eq("and").or(eq(","))),
+                Pattern.create(eq("the"), any.zeroOrMore(), eq("is")),
+                Pattern.create(group(eq("the"), any).captureAs("np")));
+
+        for (Pattern<String> pattern : patterns) {
+            for (Engine engine : Engine.values()) {
+                Pattern<String> withEngine = pattern.withEngine(engine);
+                List<Match<String>> expected = withEngine.find(sequence);
+                Pattern<String> columnar = withEngine.withEvaluation(Evaluation.COLUMNAR);
+                assertEquals(expected, columnar.find(sequence));
+                assertEquals(expected.size(), columnar.count(sequence));
+            }
+        }
+    }
+
+    @Test
+    public void columnar_sharedBetweenPatterns() {
+        CountingMatcher word = new CountingMatcher("x");
+        Pattern<String> first = Pattern.create(word, eq("y"));
+        Pattern<String> second = Pattern.create(eq("y"), word.oneOrMoreGreedy()).withEngine(Engine.NFA);
+
+        List<String> sequence = seq("x y x x y y x x x");
+        EvaluatedSequence<String> evaluated = new EvaluatedSequence<String>(sequence);
+
+        assertEquals(2, first.find(evaluated).size());
+        assertEquals(2, second.find(evaluated).size());
+        assertEquals(sequence.size(), word.calls);
+    }
+
+    private static class CountingMatcher extends XMatcher<String> {
+        private final String value;
+        private int calls = 0;
+
+        CountingMatcher(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean match(String object) {
+            calls++;
+            return value.equals(object);
+        }
+    }
+
+}
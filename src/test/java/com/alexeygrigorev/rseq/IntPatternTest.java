@@ -0,0 +1,113 @@
+package com.alexeygrigorev.rseq;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntPatternTest {
+
+    @Test
+    public void find_sameMatchesAsPattern() {
+        int[] sequence = randomSequence(5000);
+        List<Integer> boxed = new ArrayList<Integer>();
+        for (int value : sequence) {
+            boxed.add(value);
+        }
+
+        XMatcher<Integer> any = Matchers.anything();
+        List<Pattern<Integer>> patterns = Arrays.asList(
+                Pattern.create(Matchers.eq(1), any.oneOrMore(), Matchers.eq(2)),
+                Pattern.create(Matchers.eq(1), Matchers.in(2, 3).zeroOrMoreGreedy(),
+                        Matchers.group(Matchers.eq(4).captureAs("x"), any).captureAs("g")),
+                Pattern.create(Matchers.eq(0).optional(), Matchers.eq(1), any.oneOrMore()),
+                Pattern.create(Matchers.eq(1), Matchers.in(2, 3, 4).oneOrMore().optional()),
+                Pattern.create(Matchers.eq(1), Matchers.group(Matchers.in(2, 3).oneOrMore(), Matchers.eq(4))
+                        .oneOrMoreGreedy(), Matchers.eq(0)),
+                Pattern.create(Matchers.eq(1), Matchers.group(Matchers.eq(2), any.zeroOrMore()).captureAs("g")),
+                Pattern.create(Matchers.group(Matchers.eq(1), any.oneOrMore().captureAs("g")), Matchers.eq(2)));
+
+        XIntMatcher anyInt = IntMatchers.anything();
+        List<IntPattern> intPatterns = Arrays.asList(
+                IntPattern.create(IntMatchers.eq(1), anyInt.oneOrMore(), IntMatchers.eq(2)),
+                IntPattern.create(IntMatchers.eq(1), IntMatchers.range(2, 3).zeroOrMoreGreedy(),
+                        IntMatchers.group(IntMatchers.eq(4).captureAs("x"), anyInt).captureAs("g")),
+                IntPattern.create(IntMatchers.eq(0).optional(), IntMatchers.eq(1), anyInt.oneOrMore()),
+                IntPattern.create(IntMatchers.eq(1), IntMatchers.range(2, 4).oneOrMore().optional()),
+                IntPattern.create(IntMatchers.eq(1), IntMatchers.group(IntMatchers.range(2, 3).oneOrMore(),
+                        IntMatchers.eq(4)).oneOrMoreGreedy(), IntMatchers.eq(0)),
+                IntPattern.create(IntMatchers.eq(1),
+                        IntMatchers.group(IntMatchers.eq(2), anyInt.zeroOrMore()).captureAs("g")),
+                IntPattern.create(IntMatchers.group(IntMatchers.eq(1), anyInt.oneOrMore().captureAs("g")),
+                        IntMatchers.eq(2)));
+
+        for (int i = 0; i < patterns.size(); i++) {
+            List<Match<Integer>> expected = patterns.get(i).withEngine(Engine.NFA).find(boxed);
+            List<IntMatch> actual = intPatterns.get(i).find(sequence);
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.size(), intPatterns.get(i).count(sequence));
+
+            for (int j = 0; j < expected.size(); j++) {
+                Match<Integer> match = expected.get(j);
+                IntMatch intMatch = actual.get(j);
+                assertEquals(match.matchedFrom(), intMatch.matchedFrom());
+                assertEquals(match.matchedTo(), intMatch.matchedTo());
+
+                Integer variable = match.getVariable("x");
+                assertEquals(variable == null ? -1 : variable.intValue(), intMatch.getVariable("x", -1));
+                List<Integer> group = match.getCapturedGroup("g");
+                if (group == null) {
+                    assertNull(intMatch.getCapturedGroup("g"));
+                } else {
+                    assertEquals(group.size(), intMatch.getCapturedGroup("g").length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void find_slice() {
+        int[] sequence = { 1, 2, 1, 2, 1, 2 };
+        IntPattern pattern = IntPattern.create(IntMatchers.eq(1), IntMatchers.eq(2));
+
+        List<IntMatch> matches = pattern.find(sequence, 1, 5);
+        assertEquals(1, matches.size());
+        assertEquals(2, matches.get(0).matchedFrom());
+        assertArrayEquals(new int[] { 1, 2 }, matches.get(0).getMatchedSubsequence());
+        assertEquals(1, pattern.count(sequence, 1, 5));
+    }
+
+    @Test
+    public void find_lazyAndCaptures() {
+        int[] sequence = { 7, 1, 5, 2, 5, 2, 9 };
+        IntPattern pattern = IntPattern.create(IntMatchers.eq(1),
+                IntMatchers.anything().oneOrMore().captureAs("middle"), IntMatchers.eq(2).captureAs("end"));
+
+        List<IntMatch> matches = pattern.find(sequence);
+        assertEquals(1, matches.size());
+        assertArrayEquals(new int[] { 5 }, matches.get(0).getCapturedGroup("middle"));
+        assertEquals(2, matches.get(0).getVariable("end", -1));
+        assertEquals(-1, matches.get(0).getVariable("middle", -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void find_invalidSlice() {
+        IntPattern.create(IntMatchers.eq(1)).find(new int[3], 2, 4);
+    }
+
+    private static int[] randomSequence(int size) {
+        Random random = new Random(1);
+        int[] sequence = new int[size];
+        for (int i = 0; i < size; i++) {
+            sequence[i] = random.nextInt(5);
+        }
+        return sequence;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.Matchers.in;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MatchCursorTest {
+
+    @Test
+    public void find_sameMatchesAsPattern() {
+        List<String> sequence = seq("the big cat is the dog the end . the sun rises");
+        XMatcher<String> any = anything();
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("the"), group(any.captureAs("noun"), any).captureAs("np")),
+                Pattern.create(eq("the"), any.zeroOrMore(), in("cat", "dog", "sun").captureAs("noun")),
+                Pattern.create(eq("the"), eq("end").optional()));
+
+        for (Pattern<String> pattern : patterns) {
+            for (Engine engine : Engine.values()) {
+                for (Evaluation evaluation : Evaluation.values()) {
+                    Pattern<String> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                    List<Match<String>> expected = p.find(sequence);
+
+                    List<Match<String>> actual = new ArrayList<Match<String>>();
+                    MatchCursor<String> cursor = p.matcher(sequence);
+                    while (cursor.find()) {
+                        Match<String> match = cursor.toMatch();
+                        assertEquals(match.matchedFrom(), cursor.start());
+                        assertEquals(match.matchedTo(), cursor.end());
+                        assertEquals(match.getMatchedSubsequence(), cursor.group());
+                        assertEquals(match.getVariable("noun"), cursor.getVariable("noun"));
+                        assertEquals(match.getCapturedGroup("np"), cursor.group("np"));
+                        actual.add(match);
+                    }
+
+                    assertEquals(engine + " " + evaluation, expected, actual);
+                    assertFalse(cursor.find());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void find_stopsAtFirstMatch() {
+        List<String> sequence = seq("a b c b c b c");
+        final List<String> tested = new ArrayList<String>();
+        Matcher<String> c = new Matcher<String>() {
+            @Override
+            public boolean match(String object) {
+                tested.add(object);
+                return "c".equals(object);
+            }
+        };
+
+        for (Engine engine : Engine.values()) {
+            tested.clear();
+            MatchCursor<String> cursor = Pattern.create(eq("b"), c).withEngine(engine).matcher(sequence);
+            assertTrue(cursor.find());
+            assertEquals(1, cursor.start());
+            assertEquals(seq("b c"), cursor.group());
+            assertTrue(engine.toString(), tested.size() <= 3);
+        }
+    }
+
+    @Test
+    public void groups_notCaptured() {
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), any.captureAs("x"));
+        for (Engine engine : Engine.values()) {
+            MatchCursor<String> cursor = pattern.withEngine(engine).matcher(seq("a b"));
+            assertTrue(cursor.find());
+            assertEquals("b", cursor.getVariable("x"));
+            assertNull(cursor.getVariable("y"));
+            assertNull(cursor.group("x"));
+        }
+    }
+
+    @Test
+    public void find_linkedList() {
+        List<String> sequence = new LinkedList<String>(seq("the big cat is the dog the end"));
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("the"), any.zeroOrMore(), in("cat", "dog").captureAs("noun"));
+
+        for (Engine engine : Engine.values()) {
+            for (Evaluation evaluation : Evaluation.values()) {
+                Pattern<String> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                MatchCursor<String> cursor = p.matcher(sequence);
+                assertTrue(cursor.find());
+                assertEquals(seq("the big cat"), cursor.group());
+                assertTrue(cursor.find());
+                assertEquals("dog", cursor.getVariable("noun"));
+                assertFalse(cursor.find());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_beforeFind() {
+        Pattern.create(eq("a")).matcher(seq("a")).start();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void group_afterLastMatch() {
+        MatchCursor<String> cursor = Pattern.create(eq("a")).matcher(seq("a"));
+        assertTrue(cursor.find());
+        assertFalse(cursor.find());
+        cursor.group();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.Matchers.in;
+import static com.alexeygrigorev.rseq.TestSequences.randomSequence;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MatchHandlerTest {
+
+    @Test
+    public void find_sameMatchesAsFind() {
+        List<String> sequence = randomSequence(1000);
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), group(any.captureAs("x"), in("a", "b")).captureAs("g"));
+
+        for (Engine engine : Engine.values()) {
+            for (Evaluation evaluation : Evaluation.values()) {
+                Pattern<String> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                List<Match<String>> found = new ArrayList<Match<String>>();
+                assertTrue(p.find(sequence, match -> found.add(match.toMatch())));
+                assertEquals(engine + " " + evaluation, p.find(sequence), found);
+            }
+        }
+    }
+
+    @Test
+    public void find_handlerStops() {
+        List<String> sequence = randomSequence(1000);
+        Pattern<String> pattern = Pattern.create(eq("a"));
+
+        for (Engine engine : Engine.values()) {
+            int[] count = new int[1];
+            assertFalse(pattern.withEngine(engine).find(sequence, match -> ++count[0] < 3));
+            assertEquals(3, count[0]);
+
+            // the cursor is reused from the start of the next sequence
+            List<Match<String>> found = new ArrayList<Match<String>>();
+            pattern.withEngine(engine).find(sequence, match -> found.add(match.toMatch()));
+            assertEquals(pattern.find(sequence), found);
+        }
+    }
+
+    @Test
+    public void find_nestedCalls() {
+        List<String> sequence = randomSequence(100);
+        Pattern<String> pattern = Pattern.create(eq("a"), eq("b"));
+
+        List<Integer> starts = new ArrayList<Integer>();
+        pattern.find(sequence, outer -> {
+            int start = outer.start();
+            pattern.find(sequence, inner -> true);
+            starts.add(outer.start());
+            return start == outer.start();
+        });
+        assertEquals(pattern.find(sequence).size(), starts.size());
+    }
+
+    @Test
+    public void find_noAllocationInSteadyState() {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemoryEnabled());
+
+        List<String> sequence = randomSequence(10000);
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), group(any.captureAs("x"), in("a", "b")).captureAs("g"),
+                eq("c").zeroOrMore(), eq("a").optional());
+
+        for (Engine engine : Engine.values()) {
+            for (Evaluation evaluation : Evaluation.values()) {
+                Pattern<String> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                int x = p.variableSlot("x");
+                long[] sum = new long[1];
+                MatchHandler<String> handler = match -> {
+                    sum[0] = sum[0] + match.start() + match.end() + match.getVariable(x).length();
+                    return true;
+                };
+
+                // warms up the cursor of the thread and the compiled code
+                for (int i = 0; i < 200; i++) {
+                    p.find(sequence, handler);
+                }
+
+                long thread = Thread.currentThread().getId();
+                long before = threads.getThreadAllocatedBytes(thread);
+                for (int i = 0; i < 20; i++) {
+                    p.find(sequence, handler);
+                }
+                long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+                // a small slack for the measurement itself
+                assertTrue(engine + " " + evaluation + " allocated " + allocated, allocated < 1024);
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return (com.sun.management.ThreadMXBean) threads;
+        }
+        return null;
+    }
+
+}
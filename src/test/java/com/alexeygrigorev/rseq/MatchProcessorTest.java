@@ -0,0 +1,180 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.TestSequences.randomDocuments;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class MatchProcessorTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    @Test
+    public void processor_publishesMatchesInOrder() throws Exception {
+        List<List<String>> documents = randomDocuments(500);
+        Pattern<String> pattern = Pattern.create(eq("a"), eq("b").oneOrMoreGreedy(), eq("c").optional());
+
+        for (Engine engine : Engine.values()) {
+            Pattern<String> p = pattern.withEngine(engine);
+            MatchProcessor<String> processor = p.processor(EXECUTOR, 4);
+            Collector collector = new Collector(3);
+            processor.subscribe(collector);
+
+            try (SubmissionPublisher<List<String>> publisher = new SubmissionPublisher<List<String>>()) {
+                publisher.subscribe(processor);
+                for (List<String> document : documents) {
+                    publisher.submit(document);
+                }
+            }
+
+            List<List<Match<String>>> results = collector.result.get(10, TimeUnit.SECONDS);
+            assertEquals(documents.size(), results.size());
+            for (int i = 0; i < documents.size(); i++) {
+                assertEquals(engine + " " + i, p.find(documents.get(i)), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void processor_requestsOnlyWhatIsDemanded() {
+        List<List<String>> documents = randomDocuments(100);
+        MatchProcessor<String> processor = Pattern.create(eq("a")).processor(Runnable::run, 4);
+
+        Collector collector = new Collector(0);
+        processor.subscribe(collector);
+        ListPublisher upstream = new ListPublisher(documents);
+        upstream.subscribe(processor);
+        assertEquals(0, upstream.requested);
+
+        collector.subscription.request(2);
+        assertEquals(2, upstream.requested);
+        assertEquals(2, collector.results.size());
+
+        collector.subscription.request(50);
+        assertEquals(52, collector.results.size());
+        // never more than the parallelism ahead of the published results
+        assertTrue(upstream.requested <= 52 + 4);
+
+        collector.subscription.request(Long.MAX_VALUE);
+        assertTrue(collector.result.isDone());
+        assertEquals(100, collector.results.size());
+    }
+
+    @Test
+    public void processor_onlyOneSubscriber() {
+        MatchProcessor<String> processor = Pattern.create(eq("a")).processor(Runnable::run, 1);
+        processor.subscribe(new Collector(1));
+
+        Collector second = new Collector(1);
+        processor.subscribe(second);
+        assertTrue(second.result.isCompletedExceptionally());
+    }
+
+    @Test
+    public void processor_invalidRequest() {
+        MatchProcessor<String> processor = Pattern.create(eq("a")).processor(Runnable::run, 1);
+        Collector collector = new Collector(0);
+        processor.subscribe(collector);
+        ListPublisher upstream = new ListPublisher(randomDocuments(10));
+        upstream.subscribe(processor);
+
+        collector.subscription.request(0);
+        assertTrue(collector.result.isCompletedExceptionally());
+        assertTrue(upstream.cancelled);
+    }
+
+    private static class Collector implements Flow.Subscriber<List<Match<String>>> {
+        private final long batch;
+        private final List<List<Match<String>>> results = new ArrayList<List<Match<String>>>();
+        private final CompletableFuture<List<List<Match<String>>>> result = new CompletableFuture<List<List<Match<String>>>>();
+        private Flow.Subscription subscription;
+        private long left;
+
+        /**
+         * @param batch the results requested at a time, <code>0</code> if they
+         *        are requested manually
+         */
+        Collector(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                left = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(List<Match<String>> matches) {
+            results.add(matches);
+            if (batch > 0 && --left == 0) {
+                left = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(results);
+        }
+    }
+
+    private static class ListPublisher implements Flow.Publisher<List<String>> {
+        private final List<List<String>> documents;
+        private long requested;
+        private boolean cancelled;
+        private int next;
+
+        ListPublisher(List<List<String>> documents) {
+            this.documents = documents;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super List<String>> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested = requested + n;
+                    while (next < requested && next < documents.size() && !cancelled) {
+                        subscriber.onNext(documents.get(next++));
+                    }
+                    if (next == documents.size() && !cancelled) {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+}
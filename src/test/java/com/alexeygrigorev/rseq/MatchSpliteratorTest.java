@@ -0,0 +1,71 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.Matchers.in;
+import static com.alexeygrigorev.rseq.TestSequences.randomSequence;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class MatchSpliteratorTest {
+
+    @Test
+    public void stream_sameMatchesAsFind() {
+        List<String> sequence = randomSequence(5000);
+        XMatcher<String> any = anything();
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("a"), eq("b")),
+                Pattern.create(eq("a"), group(any.captureAs("x"), in("a", "b")).captureAs("g")),
+                Pattern.create(in("a", "b"), eq("c").optional(), in("a", "b"), eq("a").optional()),
+                Pattern.create(Matchers.dictionary(seq("a b"), seq("a b c a"), seq("c"))));
+
+        for (Pattern<String> pattern : patterns) {
+            for (Engine engine : Engine.values()) {
+                Pattern<String> p = pattern.withEngine(engine);
+                List<Match<String>> expected = p.find(sequence);
+                List<Match<String>> actual = p.stream(sequence, 16).parallel().collect(Collectors.toList());
+                assertEquals(p + " " + engine, expected, actual);
+                assertEquals(expected.size(), p.stream(sequence).count());
+            }
+        }
+    }
+
+    @Test
+    public void trySplit_onlyBoundedPatterns() {
+        List<String> sequence = randomSequence(1000);
+
+        Pattern<String> bounded = Pattern.create(eq("a"), eq("b").optional());
+        Spliterator<Match<String>> spliterator = bounded.stream(sequence, 16).spliterator();
+        Spliterator<Match<String>> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(1000, prefix.estimateSize() + spliterator.estimateSize());
+
+        Pattern<String> unbounded = Pattern.create(eq("a"), eq("b").oneOrMore());
+        assertNull(unbounded.stream(sequence, 16).spliterator().trySplit());
+    }
+
+    @Test
+    public void trySplit_cutsOnlyWhereNoMatchCrosses() {
+        List<String> sequence = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            sequence.addAll(seq("a b c"));
+        }
+
+        Pattern<String> pattern = Pattern.create(eq("a"), anything(), eq("c").optional());
+        Spliterator<Match<String>> spliterator = pattern.stream(sequence, 16).spliterator();
+        Spliterator<Match<String>> prefix = spliterator.trySplit();
+        assertEquals(0, prefix.estimateSize() % 3);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MatchTest {
+
+    @Test
+    public void match_viewsOfSequence() {
+        List<String> sequence = new ArrayList<String>(seq("c a b c"));
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), group(any.captureAs("x")).captureAs("g"));
+
+        for (Engine engine : Engine.values()) {
+            Match<String> match = pattern.withEngine(engine).find(sequence).get(0);
+            assertEquals(seq("a b"), match.getMatchedSubsequence());
+            assertEquals(seq("b"), match.getCapturedGroup("g"));
+            assertEquals("b", match.getVariable("x"));
+            assertNull(match.getVariable("g"));
+            assertNull(match.getCapturedGroup("x"));
+
+            sequence.set(2, "d");
+            assertEquals(seq("a d"), match.getMatchedSubsequence());
+            assertEquals("d", match.getVariable("x"));
+            sequence.set(2, "b");
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getMatchedSubsequence_unmodifiable() {
+        List<String> sequence = new ArrayList<String>(seq("a b"));
+        Match<String> match = Pattern.create(eq("a")).find(sequence).get(0);
+        match.getMatchedSubsequence().clear();
+    }
+
+    @Test
+    public void equals_explicitCaptures() {
+        List<String> sequence = seq("c a b c");
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), group(any.captureAs("x")).captureAs("g"));
+
+        Map<String, String> variables = Collections.singletonMap("x", "b");
+        Map<String, List<String>> groups = new HashMap<String, List<String>>();
+        groups.put("g", seq("b"));
+        Match<String> expected = new Match<String>(1, seq("a b"), variables, groups);
+
+        for (Engine engine : Engine.values()) {
+            Match<String> match = pattern.withEngine(engine).find(sequence).get(0);
+            assertEquals(expected, match);
+            assertEquals(match, expected);
+            assertEquals(expected.hashCode(), match.hashCode());
+        }
+    }
+
+    @Test
+    public void slots_sameAsNames() {
+        List<String> sequence = seq("a b c a c a b b c");
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), group(any.captureAs("x")).captureAs("g"),
+                eq("c").captureAs("c").optional());
+        int x = pattern.variableSlot("x");
+        int g = pattern.groupSlot("g");
+        int c = pattern.variableSlot("c");
+
+        for (Engine engine : Engine.values()) {
+            Pattern<String> p = pattern.withEngine(engine);
+            List<Match<String>> matches = p.find(sequence);
+            assertEquals(3, matches.size());
+
+            MatchCursor<String> cursor = p.matcher(sequence);
+            for (Match<String> match : matches) {
+                assertEquals(match.getVariable("x"), match.getVariable(x));
+                assertEquals(match.getCapturedGroup("g"), match.getCapturedGroup(g));
+                assertEquals(match.getVariable("c"), match.getVariable(c));
+
+                assertTrue(cursor.find());
+                assertEquals(match.getVariable("x"), cursor.getVariable(x));
+                assertEquals(match.getCapturedGroup("g"), cursor.group(g));
+                assertEquals(match.getVariable("c"), cursor.getVariable(c));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void variableSlot_unknownName() {
+        XMatcher<String> any = anything();
+        Pattern.create(group(any.captureAs("x")).captureAs("g")).variableSlot("g");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getVariable_slotOfGroup() {
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(group(any.captureAs("x")).captureAs("g"));
+        pattern.find(seq("a")).get(0).getVariable(pattern.groupSlot("g"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getVariable_slotOfConstructedMatch() {
+        Map<String, String> variables = Collections.singletonMap("x", "b");
+        Map<String, List<String>> groups = Collections.emptyMap();
+        new Match<String>(0, seq("b"), variables, groups).getVariable(0);
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NfaEngineTest {
+
+    @Test
+    public void oneOrMore_givesBackElements() {
+        List<String> sequence = seq("a x x x b");
+        Pattern<String> pattern = Pattern.create(eq("x").oneOrMoreGreedy(), eq("x"));
+
+        assertTrue(pattern.find(sequence).isEmpty());
+
+        List<Match<String>> matches = pattern.withEngine(Engine.NFA).find(sequence);
+        assertEquals(1, matches.size());
+        assertEquals(seq("x x x"), matches.get(0).getMatchedSubsequence());
+        assertEquals(1, matches.get(0).matchedFrom());
+    }
+
+    @Test
+    public void zeroOrMore_lazyAndGreedy() {
+        List<String> sequence = seq("' a ' b ' c");
+        XMatcher<String> quote = eq("'");
+        XMatcher<String> any = anything();
+
+        Pattern<String> lazy = Pattern.create(quote, any.zeroOrMore(), quote).withEngine(Engine.NFA);
+        List<Match<String>> lazyMatches = lazy.find(sequence);
+        assertEquals(1, lazyMatches.size());
+        assertEquals(seq("' a '"), lazyMatches.get(0).getMatchedSubsequence());
+
+        Pattern<String> greedy = Pattern.create(quote, any.zeroOrMoreGreedy(), quote).withEngine(Engine.NFA);
+        List<Match<String>> greedyMatches = greedy.find(sequence);
+        assertEquals(1, greedyMatches.size());
+        assertEquals(seq("' a ' b '"), greedyMatches.get(0).getMatchedSubsequence());
+    }
+
+    @Test
+    public void captures() {
+        List<String> sequence = seq("one , , two three");
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("one").captureAs("one"), any.zeroOrMore().captureAs("gap"),
+                eq("two").captureAs("two")).withEngine(Engine.NFA);
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(1, matches.size());
+
+        Match<String> match = matches.get(0);
+        assertEquals("one", match.getVariable("one"));
+        assertEquals("two", match.getVariable("two"));
+        assertEquals(seq(", ,"), match.getCapturedGroup("gap"));
+        assertEquals(seq("one , , two"), match.getMatchedSubsequence());
+    }
+
+    @Test
+    public void captures_emptyGroup() {
+        List<String> sequence = seq("`` '' .");
+        Pattern<String> pattern = Pattern.create(eq("``"), eq("x").zeroOrMore().captureAs("link"), eq("''"))
+                .withEngine(Engine.NFA);
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(1, matches.size());
+        assertEquals(Collections.emptyList(), matches.get(0).getCapturedGroup("link"));
+    }
+
+    @Test
+    public void optionalGroup() {
+        List<String> sequence = seq("a b c a c a b a b c");
+        Pattern<String> pattern = Pattern.create(group(eq("a"), eq("b")).optional(), eq("c"))
+                .withEngine(Engine.NFA);
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(3, matches.size());
+        assertEquals(seq("a b c"), matches.get(0).getMatchedSubsequence());
+        assertEquals(seq("c"), matches.get(1).getMatchedSubsequence());
+        assertEquals(seq("a b c"), matches.get(2).getMatchedSubsequence());
+        assertEquals(7, matches.get(2).matchedFrom());
+    }
+
+    @Test
+    public void emptyMatchesSkipped() {
+        List<String> sequence = seq("a b a");
+        Pattern<String> pattern = Pattern.create(eq("a").zeroOrMoreGreedy()).withEngine(Engine.NFA);
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(2, matches.size());
+        assertEquals(0, matches.get(0).matchedFrom());
+        assertEquals(2, matches.get(1).matchedFrom());
+    }
+
+    @Test
+    public void nestedQuantifiers_linear() {
+        CountingMatcher x = new CountingMatcher("x");
+        Pattern<String> pattern = Pattern.create(group(x.oneOrMoreGreedy(), x.zeroOrMoreGreedy())
+                .oneOrMoreGreedy(), eq("y")).withEngine(Engine.NFA);
+
+        String[] elements = new String[2000];
+        Arrays.fill(elements, "x");
+        List<String> sequence = Arrays.asList(elements);
+
+        assertTrue(pattern.find(sequence).isEmpty());
+        assertTrue(x.calls <= elements.length);
+    }
+
+    @Test
+    public void sameAsSequential() {
+        List<String> sequence = seq("Where E is the energy and λ is the wavelength , c is the speed of light");
+        XMatcher<String> any = anything();
+
+        @SuppressWarnings("unchecked")
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("is"), eq("the"), any.captureAs("def")),
+                Pattern.create(eq("E").or(eq("λ")), eq("is"), eq("the").optional(), any.captureAs("def")),
+                Pattern.create(eq("is"), any.oneOrMore().captureAs("def"), eq("and").or(eq(","))),
+                Pattern.create(group(eq("the"), any).captureAs("np")));
+
+        for (Pattern<String> pattern : patterns) {
+            assertEquals(pattern.find(sequence), pattern.withEngine(Engine.NFA).find(sequence));
+        }
+    }
+
+    private static class CountingMatcher extends XMatcher<String> {
+        private final String value;
+        private int calls = 0;
+
+        CountingMatcher(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean match(String object) {
+            calls++;
+            return value.equals(object);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.Matchers.in;
+import static com.alexeygrigorev.rseq.TestSequences.randomSequence;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelFinderTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void find_sameMatchesAsFind() {
+        List<String> sequence = randomSequence(20000);
+        XMatcher<String> any = anything();
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("a"), eq("b")),
+                Pattern.create(eq("a"), group(any.captureAs("x"), in("a", "b")).captureAs("g")),
+                Pattern.create(eq("a"), eq("b").oneOrMoreGreedy(), eq("c").optional()),
+                Pattern.create(eq("a"), any.zeroOrMore(), eq("c"), eq("c")),
+                Pattern.create(in("b", "c").oneOrMoreGreedy()),
+                Pattern.create(eq("d")));
+
+        for (Pattern<String> pattern : patterns) {
+            for (Engine engine : Engine.values()) {
+                for (Evaluation evaluation : Evaluation.values()) {
+                    Pattern<String> p = pattern.withEngine(engine).withEvaluation(evaluation);
+                    List<Match<String>> expected = p.find(sequence);
+                    assertEquals(p + " " + engine, expected, ParallelFinder.find(p, sequence, POOL, 64));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void find_matchesCrossingManyChunks() {
+        List<String> sequence = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            sequence.add("a");
+            for (int j = 0; j < 997; j++) {
+                sequence.add("b");
+            }
+            sequence.add("c");
+            sequence.add("c");
+        }
+
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("a"), any.zeroOrMoreGreedy(), eq("c"));
+        for (Engine engine : Arrays.asList(Engine.NFA, Engine.DFA)) {
+            Pattern<String> p = pattern.withEngine(engine);
+            List<Match<String>> matches = ParallelFinder.find(p, sequence, POOL, 16);
+            assertEquals(1, matches.size());
+            assertEquals(sequence.size(), matches.get(0).matchedTo());
+            assertEquals(p.find(sequence), matches);
+        }
+    }
+
+    @Test
+    public void findParallel_shortSequence() {
+        List<String> sequence = randomSequence(100);
+        Pattern<String> pattern = Pattern.create(eq("a"), eq("b"));
+        assertEquals(pattern.find(sequence), pattern.findParallel(sequence, POOL));
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PatternSetTest {
+
+    @Test
+    public void find_sameAsEachPattern() {
+        List<String> sequence = seq("Where E is the energy and λ is the wavelength , c is the speed of light");
+        XMatcher<String> any = anything();
+
+        @SuppressWarnings("unchecked")
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("is"), eq("the"), any.captureAs("def")),
+                Pattern.create(eq("E").or(eq("λ")), eq("is"), eq("the").optional(), any.captureAs("def")),
+                Pattern.create(eq("is"), any.oneOrMore().captureAs("def"), eq("and").or(eq(","))),
+                Pattern.create(group(eq("the"), any).captureAs("np")),
+                Pattern.create(eq("nothing")));
+        PatternSet<String> set = PatternSet.create(patterns);
+
+        List<TaggedMatch<String>> matches = set.find(sequence);
+
+        for (int id = 0; id < set.size(); id++) {
+            List<Match<String>> expected = set.getPattern(id).withEngine(Engine.NFA).find(sequence);
+            List<Match<String>> actual = new ArrayList<Match<String>>();
+            for (TaggedMatch<String> match : matches) {
+                if (match.getId() == id) {
+                    actual.add(new Match<String>(match.matchedFrom(), match.getMatchedSubsequence(),
+                            match.getVariables(), match.getCapturedGroups()));
+                }
+            }
+            assertEquals(expected, actual);
+        }
+
+        for (int i = 1; i < matches.size(); i++) {
+            assertEquals(true, matches.get(i - 1).matchedFrom() <= matches.get(i).matchedFrom());
+        }
+    }
+
+    @Test
+    public void find_equalLeavesEvaluatedOnce() {
+        List<Token> sequence = new ArrayList<Token>();
+        for (String value : seq("a b x y x b x")) {
+            sequence.add(new Token(value));
+        }
+
+        PatternSet<Token> set = PatternSet.create(
+                Pattern.create(eq(new Token("x")), eq(new Token("y"))),
+                Pattern.create(eq(new Token("b")), eq(new Token("x"))),
+                Pattern.create(eq(new Token("x"))));
+
+        Token.comparisons = 0;
+        List<TaggedMatch<Token>> matches = set.find(sequence);
+
+        assertEquals(6, matches.size());
+        assertEquals(1, matches.get(0).getId());
+        assertEquals(1, matches.get(0).matchedFrom());
+        assertEquals(0, matches.get(1).getId());
+        assertEquals(2, matches.get(1).matchedFrom());
+        assertEquals(true, Token.comparisons <= 3 * sequence.size());
+    }
+
+    private static class Token {
+        private static int comparisons = 0;
+        private final String value;
+
+        Token(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            comparisons++;
+            return obj instanceof Token && value.equals(((Token) obj).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+    }
+
+}
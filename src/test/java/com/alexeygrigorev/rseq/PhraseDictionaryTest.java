@@ -0,0 +1,74 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PhraseDictionaryTest {
+
+    @Test
+    public void find() {
+        PhraseDictionary<String> dictionary = PhraseDictionary.create(seq("new york"), seq("new york city"),
+                seq("york"), seq("los angeles"));
+        List<String> sequence = seq("from new york city to los angeles via york and new jersey");
+
+        List<TaggedMatch<String>> matches = dictionary.find(sequence);
+
+        assertEquals(3, matches.size());
+        assertEquals(seq("new york city"), matches.get(0).getMatchedSubsequence());
+        assertEquals(1, matches.get(0).getId());
+        assertEquals(1, matches.get(0).matchedFrom());
+        assertEquals(seq("los angeles"), matches.get(1).getMatchedSubsequence());
+        assertEquals(3, matches.get(1).getId());
+        assertEquals(seq("york"), matches.get(2).getMatchedSubsequence());
+        assertEquals(seq("york"), dictionary.getPhrase(matches.get(2).getId()));
+    }
+
+    @Test
+    public void find_leftmostWins() {
+        PhraseDictionary<String> dictionary = PhraseDictionary.create(seq("b c d e"), seq("a b"), seq("c"));
+
+        List<TaggedMatch<String>> matches = dictionary.find(seq("a b c d e"));
+
+        assertEquals(2, matches.size());
+        assertEquals(seq("a b"), matches.get(0).getMatchedSubsequence());
+        assertEquals(seq("c"), matches.get(1).getMatchedSubsequence());
+    }
+
+    @Test
+    public void find_longestWins() {
+        PhraseDictionary<String> dictionary = PhraseDictionary.create(seq("a"), seq("a b c d"), seq("b c"));
+
+        assertEquals(Arrays.asList(0, 2), ids(dictionary.find(seq("a b c x"))));
+        assertEquals(Arrays.asList(1, 0), ids(dictionary.find(seq("a b c d a"))));
+    }
+
+    @Test
+    public void find_beanProperty() {
+        @SuppressWarnings("unchecked")
+        PhraseDictionary<Word> dictionary = PhraseDictionary.create(Word.class, "token",
+                Arrays.asList(seq("speed of light"), seq("light")));
+        List<Word> sequence = Arrays.asList(new Word("the", "DT"), new Word("speed", "NN"), new Word("of", "IN"),
+                new Word("light", "NN"));
+
+        List<TaggedMatch<Word>> matches = dictionary.find(sequence);
+
+        assertEquals(1, matches.size());
+        assertEquals(1, matches.get(0).matchedFrom());
+        assertEquals(3, matches.get(0).getMatchedSubsequence().size());
+    }
+
+    private static List<Integer> ids(List<TaggedMatch<String>> matches) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (TaggedMatch<String> match : matches) {
+            ids.add(match.getId());
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ShiftAndFinderTest {
+
+    @Test
+    public void onlyFixedLengthPatterns() {
+        XMatcher<String> any = anything();
+        assertNotNull(finder(Pattern.create(eq("a"), group(eq("b"), any).captureAs("g"), any.captureAs("v"))));
+        assertNull(finder(Pattern.create(eq("a"), any.optional())));
+        assertNull(finder(Pattern.create(eq("a"), any.oneOrMore())));
+        assertNull(finder(Pattern.create(eq("a"), group(any, any.zeroOrMoreGreedy()))));
+
+        assertNotNull(finder(Pattern.create(Collections.<Matcher<String>> nCopies(64, any))));
+        assertNull(finder(Pattern.create(Collections.<Matcher<String>> nCopies(65, any))));
+    }
+
+    @Test
+    public void find() {
+        List<String> sequence = seq("the cat is the dog the end . the sun rises");
+        XMatcher<String> any = anything();
+        Pattern<String> pattern = Pattern.create(eq("the"), group(any.captureAs("noun"), any).captureAs("np"));
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(3, matches.size());
+        assertEquals(seq("the cat is"), matches.get(0).getMatchedSubsequence());
+        assertEquals("dog", matches.get(1).getVariable("noun"));
+        assertEquals(seq("dog the"), matches.get(1).getCapturedGroup("np"));
+        assertEquals(8, matches.get(2).matchedFrom());
+        assertEquals(3, pattern.count(sequence));
+    }
+
+    @Test
+    public void find_nonOverlapping() {
+        List<String> sequence = seq("a a a a a");
+        Pattern<String> pattern = Pattern.create(eq("a"), eq("a"));
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(2, matches.size());
+        assertEquals(0, matches.get(0).matchedFrom());
+        assertEquals(2, matches.get(1).matchedFrom());
+    }
+
+    @Test
+    public void find_longPattern() {
+        List<String> sequence = new ArrayList<String>(Collections.nCopies(200, "a"));
+        sequence.set(100, "b");
+
+        List<Matcher<String>> matchers = new ArrayList<Matcher<String>>();
+        matchers.addAll(Collections.nCopies(63, eq("a")));
+        matchers.add(eq("b"));
+        Pattern<String> pattern = Pattern.create(matchers);
+
+        List<Match<String>> matches = pattern.find(sequence);
+        assertEquals(1, matches.size());
+        assertEquals(37, matches.get(0).matchedFrom());
+    }
+
+    @Test
+    public void literals_horspool() {
+        assertTrue(finder(Pattern.create(eq("new"), eq("york").captureAs("city"))) instanceof HorspoolFinder);
+        assertFalse(finder(Pattern.create(eq("new"), Matchers.<String> anything())) instanceof HorspoolFinder);
+
+        List<Token> sequence = new ArrayList<Token>();
+        for (int i = 0; i < 1000; i++) {
+            sequence.add(new Token("w" + (i % 10)));
+        }
+        sequence.set(500, new Token("new"));
+        sequence.set(501, new Token("york"));
+        sequence.set(502, new Token("city"));
+
+        Pattern<Token> pattern = Pattern.create(eq(new Token("new")), eq(new Token("york")), eq(new Token("city")));
+        Token.comparisons = 0;
+        List<Match<Token>> matches = pattern.find(sequence);
+
+        assertEquals(1, matches.size());
+        assertEquals(500, matches.get(0).matchedFrom());
+        assertTrue(Token.comparisons < sequence.size() / 2);
+    }
+
+    private static class Token {
+        private static int comparisons = 0;
+        private final String value;
+
+        Token(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            comparisons++;
+            return obj instanceof Token && value.equals(((Token) obj).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+    }
+
+    private static ShiftAndFinder<String> finder(Pattern<String> pattern) {
+        return ShiftAndFinder.create(pattern.matchers());
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.alexeygrigorev.rseq;
+
+import static com.alexeygrigorev.rseq.Matchers.anything;
+import static com.alexeygrigorev.rseq.Matchers.eq;
+import static com.alexeygrigorev.rseq.Matchers.group;
+import static com.alexeygrigorev.rseq.Matchers.in;
+import static com.alexeygrigorev.rseq.TestSequences.seq;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class StreamMatcherTest {
+
+    @Test
+    public void find_sameMatchesAsNfa() {
+        List<String> sequence = seq("the big cat is the dog the end . the sun rises the");
+        XMatcher<String> any = anything();
+        List<Pattern<String>> patterns = Arrays.asList(
+                Pattern.create(eq("the"), group(any.captureAs("noun"), any).captureAs("np")),
+                Pattern.create(eq("the"), any.zeroOrMore(), in("cat", "dog", "sun").captureAs("noun")),
+                Pattern.create(eq("the"), any.oneOrMoreGreedy(), eq("the")),
+                Pattern.create(eq("the"), eq("end").optional()),
+                Pattern.create(eq("the"), group(eq("big"), eq("cat")).optional()));
+
+        for (Pattern<String> pattern : patterns) {
+            List<Match<String>> expected = pattern.withEngine(Engine.NFA).find(sequence);
+            assertEquals(pattern.toString(), expected, toList(pattern.find(sequence.iterator())));
+        }
+    }
+
+    @Test
+    public void accept_matchIsFinalAsSoonAsPossible() {
+        Pattern<String> pattern = Pattern.create(eq("a"), eq("b").oneOrMoreGreedy());
+        StreamMatcher<String> matcher = pattern.streamMatcher();
+
+        assertFalse(matcher.accept("a"));
+        assertFalse(matcher.accept("b"));
+        assertFalse(matcher.accept("b"));
+        // the next element can still extend the match
+        assertNull(matcher.poll());
+
+        assertTrue(matcher.accept("c"));
+        Match<String> match = matcher.poll();
+        assertEquals(0, match.matchedFrom());
+        assertEquals(seq("a b b"), match.getMatchedSubsequence());
+        assertNull(matcher.poll());
+
+        assertFalse(matcher.accept("a"));
+        assertFalse(matcher.accept("b"));
+        assertTrue(matcher.finish());
+        assertEquals(4, matcher.poll().matchedFrom());
+    }
+
+    @Test
+    public void accept_bufferIsBounded() {
+        Pattern<String> pattern = Pattern.create(eq("start"), Matchers.<String> anything().zeroOrMore(),
+                eq("end"));
+        StreamMatcher<String> matcher = pattern.streamMatcher();
+
+        int maxBuffer = 0;
+        int found = 0;
+        for (int i = 0; i < 100000; i++) {
+            String element = i % 10 == 0 ? "start" : i % 10 == 5 ? "end" : "x";
+            matcher.accept(element);
+            maxBuffer = Math.max(maxBuffer, matcher.bufferSize());
+            for (Match<String> match = matcher.poll(); match != null; match = matcher.poll()) {
+                assertEquals(found * 10, match.matchedFrom());
+                found++;
+            }
+        }
+        matcher.finish();
+
+        assertEquals(10000, found);
+        assertTrue(String.valueOf(maxBuffer), maxBuffer <= 20);
+    }
+
+    @Test
+    public void find_readsOnlyWhatIsNeeded() {
+        final List<String> read = new ArrayList<String>();
+        final Iterator<String> source = seq("x a b x a b x").iterator();
+        Iterator<String> elements = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public String next() {
+                String next = source.next();
+                read.add(next);
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        Iterator<Match<String>> matches = Pattern.create(eq("a"), eq("b")).find(elements);
+        assertTrue(matches.hasNext());
+        assertEquals(1, matches.next().matchedFrom());
+        assertEquals(3, read.size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void find_noMoreMatches() {
+        Iterator<Match<String>> matches = Pattern.create(eq("a")).find(seq("b c").iterator());
+        assertFalse(matches.hasNext());
+        matches.next();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void accept_afterFinish() {
+        StreamMatcher<String> matcher = Pattern.create(eq("a")).streamMatcher();
+        matcher.finish();
+        matcher.accept("a");
+    }
+
+    private static <E> List<E> toList(Iterator<E> iterator) {
+        List<E> list = new ArrayList<E>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+}
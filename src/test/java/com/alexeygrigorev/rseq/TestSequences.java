@@ -0,0 +1,84 @@
+package com.alexeygrigorev.rseq;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sequences shared by the tests
+ */
+class TestSequences {
+
+    private static final String[] TAGS = { "DT", "JJ", "NN", "VB" };
+
+    private TestSequences() {
+    }
+
+    static List<String> seq(String sequence) {
+        return Arrays.asList(sequence.split(" "));
+    }
+
+    /**
+     * @return a sequence of the letters "a", "b" and "c", the same for the
+     *         same size
+     */
+    static List<String> randomSequence(int size) {
+        Random random = new Random(1);
+        List<String> sequence = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            sequence.add(letter(random));
+        }
+        return sequence;
+    }
+
+    /**
+     * @return documents of up to 19 letters "a", "b" and "c"
+     */
+    static List<List<String>> randomDocuments(int count) {
+        Random random = new Random(1);
+        List<List<String>> documents = new ArrayList<List<String>>(count);
+        for (int i = 0; i < count; i++) {
+            int size = random.nextInt(20);
+            List<String> document = new ArrayList<String>(size);
+            for (int j = 0; j < size; j++) {
+                document.add(letter(random));
+            }
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    /**
+     * Writes a corpus of sentences with the columns "token" and "pos", the
+     * tokens are drawn from <code>vocabulary</code> words
+     * 
+     * @return the sentences written
+     */
+    static List<List<Word>> writeRandom(Path file, int count, int vocabulary) throws Exception {
+        Random random = new Random(1);
+        List<List<Word>> sentences = new ArrayList<List<Word>>(count);
+        try (CorpusWriter writer = new CorpusWriter(file, "token", "pos")) {
+            for (int i = 0; i < count; i++) {
+                int length = random.nextInt(25);
+                String[] tokens = new String[length];
+                String[] pos = new String[length];
+                List<Word> words = new ArrayList<Word>(length);
+                for (int j = 0; j < length; j++) {
+                    tokens[j] = "w" + random.nextInt(vocabulary);
+                    pos[j] = TAGS[random.nextInt(TAGS.length)];
+                    words.add(new Word(tokens[j], pos[j]));
+                }
+                writer.addSentence(tokens, pos);
+                sentences.add(words);
+            }
+        }
+        return sentences;
+    }
+
+    private static String letter(Random random) {
+        return String.valueOf((char) ('a' + random.nextInt(3)));
+    }
+
+}